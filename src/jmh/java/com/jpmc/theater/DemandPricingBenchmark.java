@@ -0,0 +1,68 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link DemandPricing} on the reserve path: {@link Theater#reserve(Customer, long, int)} with demand pricing
+ * switched off and on, and a single quote. Every reservation is cancelled right away, so the schedule never sells out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DemandPricingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean demandPricing;
+
+    Theater theater;
+    DemandPricing pricing;
+    Showing[] showings;
+    Customer customer = new Customer("Rajesh", "1");
+    SplittableRandom random = new SplittableRandom();
+
+    @Setup
+    public void setup() {
+        LocalDateProvider provider = LocalDateProvider.singleton();
+        ScheduleFixture fixture = new ScheduleFixture(ScheduleFixture.MONTH_OF_MULTIPLEX, LocalDate.now());
+        theater = new Theater(provider, fixture.getSchedule());
+        pricing = new DemandPricing(DemandPricing.DEFAULT_CURVE, provider.getClock());
+        if (demandPricing) {
+            theater.setDemandPricing(pricing);
+        }
+        showings = fixture.getShowings().toArray(new Showing[0]);
+    }
+
+    @Benchmark
+    public Reservation reserve() {
+        Reservation reservation = theater.reserve(customer, showings[random.nextInt(showings.length)].getId(), 2);
+        return theater.cancel(reservation.getId());
+    }
+
+    @Benchmark
+    public long quote() {
+        return theater.quote(showings[random.nextInt(showings.length)]);
+    }
+
+    //same showing every time, so the showing and its seat counter stay in the cache
+    @Benchmark
+    public long quoteCached() {
+        return theater.quote(showings[0]);
+    }
+}
@@ -0,0 +1,46 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares pricing a reservation (25% off, 3 tickets) with the old BigDecimal based
+ * {@link Utility#roundOff(double)} against the long cents arithmetic of {@link Money}.
+ * Run with -prof gc to see the allocation rate of both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private double ticketPrice = 12.5;
+    private long ticketPriceInCents = 1250;
+    private int basisPoints = 2500;
+    private int tickets = 3;
+
+    @Benchmark
+    public double bigDecimalRoundOff() {
+        double discount = Utility.roundOff(ticketPrice * 0.25);
+        double fee = Utility.roundOff(ticketPrice - discount);
+        return Utility.roundOff(fee * tickets);
+    }
+
+    @Benchmark
+    public long fixedPointCents() {
+        long discount = Money.percentage(ticketPriceInCents, basisPoints);
+        long fee = ticketPriceInCents - discount;
+        return Money.times(fee, tickets);
+    }
+}
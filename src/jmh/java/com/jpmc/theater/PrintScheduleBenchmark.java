@@ -0,0 +1,61 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of printing the schedule of one day in TEXT and JSON format.
+ * System.out is swapped for a stream which discards everything, so only rendering is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrintScheduleBenchmark {
+
+    @Param({ScheduleFixture.SINGLE_DAY, ScheduleFixture.MONTH_OF_MULTIPLEX, ScheduleFixture.YEAR_OF_MULTIPLEX})
+    public String scheduleSize;
+
+    @Param({"TEXT", "JSON"})
+    public PrintSchedule format;
+
+    private Theater theater;
+    private LocalDate showDate;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() {
+        ScheduleFixture fixture = new ScheduleFixture(scheduleSize, LocalDate.now());
+        theater = new Theater(LocalDateProvider.singleton(), fixture.getSchedule());
+        showDate = fixture.getFirstDay();
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void printSchedule() {
+        theater.printSchedule(format, showDate);
+    }
+}
@@ -0,0 +1,79 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Theater#reserve(Customer, long, int)} during an on-sale spike, where every buyer wants the
+ * same showing: reserving on the calling thread, where buyers retry compare-and-set on the showing's seat counter
+ * and seat map, against the {@link ReservationPipeline}, where a single writer applies the requests in batches.
+ * Every operation reserves 2 seats and cancels the reservation right away, so the showing never sells out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationPipelineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TheaterState {
+        @Param({"false", "true"})
+        public boolean pipelined;
+
+        Theater theater;
+        ReservationPipeline pipeline;
+        long hotShowingId;
+        Customer customer = new Customer("Rajesh", "1");
+
+        @Setup(Level.Trial)
+        public void setup() {
+            LocalDate today = LocalDate.now();
+            ScheduleFixture fixture = new ScheduleFixture(ScheduleFixture.SINGLE_DAY, today);
+            theater = new Theater(LocalDateProvider.singleton(), fixture.getSchedule());
+            hotShowingId = fixture.getShowings().get(0).getId();
+            if (pipelined) {
+                pipeline = theater.startPipeline(1, ReservationPipeline.DEFAULT_RING_SIZE);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (pipeline != null) {
+                pipeline.close();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Reservation hotShowing_4Threads(TheaterState state) {
+        return reserve(state);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Reservation hotShowing_maxThreads(TheaterState state) {
+        return reserve(state);
+    }
+
+    private static Reservation reserve(TheaterState state) {
+        Reservation reservation = state.theater.reserve(state.customer, state.hotShowingId, 2);
+        return state.theater.cancel(reservation.getId());
+    }
+}
@@ -0,0 +1,90 @@
+package com.jpmc.theater;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds schedules of realistic sizes for the benchmarks, from a single screen with 9 showings a day
+ * up to a year of a 24 screen multiplex with 10 showings per screen a day.
+ */
+public class ScheduleFixture {
+
+    //days x screens x showings per screen, see the @Param values of the benchmarks
+    public static final String SINGLE_DAY = "1x1x9";
+    public static final String MONTH_OF_MULTIPLEX = "30x12x10";
+    public static final String YEAR_OF_MULTIPLEX = "365x24x10";
+
+    private static final LocalTime FIRST_SHOWING = LocalTime.of(8, 0);
+    private static final Duration SLOT = Duration.ofMinutes(100);
+
+    private static final Movie[] MOVIES = {
+            new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1),
+            new Movie("Turning Red", Duration.ofMinutes(85), 11),
+            new Movie("The Batman", Duration.ofMinutes(95), 9)
+    };
+
+    private final int days;
+    private final int screens;
+    private final int showingsPerScreen;
+    private final LocalDate firstDay;
+    private final Map<LocalDate, List<Showing>> schedule;
+    private final List<Showing> showings;
+
+    /**
+     * @param size schedule size as "days x screens x showings per screen", e.g. "365x24x10"
+     * @param firstDay date of the first day of the schedule
+     */
+    public ScheduleFixture(String size, LocalDate firstDay) {
+        String[] parts = size.split("x");
+        this.days = Integer.parseInt(parts[0]);
+        this.screens = Integer.parseInt(parts[1]);
+        this.showingsPerScreen = Integer.parseInt(parts[2]);
+        this.firstDay = firstDay;
+        this.schedule = new HashMap<>();
+        this.showings = new ArrayList<>(days * screens * showingsPerScreen);
+        for (int day = 0; day < days; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            List<Showing> showingsOfDay = new ArrayList<>(screens * showingsPerScreen);
+            for (int screenNumber = 1; screenNumber <= screens; screenNumber++) {
+                Screen screen = new Screen(screenNumber, "Screen " + screenNumber, Theater.SEATING_ROWS, Theater.SEATS_PER_ROW);
+                for (int sequence = 1; sequence <= showingsPerScreen; sequence++) {
+                    LocalDateTime startTime = LocalDateTime.of(date, FIRST_SHOWING).plus(SLOT.multipliedBy(sequence - 1));
+                    Movie movie = MOVIES[(screenNumber + sequence) % MOVIES.length];
+                    showingsOfDay.add(new Showing(movie, screen, sequence, startTime));
+                }
+            }
+            schedule.put(date, showingsOfDay);
+            showings.addAll(showingsOfDay);
+        }
+    }
+
+    public Map<LocalDate, List<Showing>> getSchedule() {
+        return schedule;
+    }
+
+    public List<Showing> getShowings() {
+        return showings;
+    }
+
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public int getShowingsPerDay() {
+        return screens * showingsPerScreen;
+    }
+
+    public static Movie movie(int index) {
+        return MOVIES[index % MOVIES.length];
+    }
+}
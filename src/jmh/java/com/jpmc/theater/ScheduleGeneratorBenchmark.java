@@ -0,0 +1,73 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating a quarter of schedule for a chain of screens, on one thread and on all available ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleGeneratorBenchmark {
+
+    private static final int DAYS_IN_QUARTER = 91;
+
+    @Param({"24", "300"})
+    public int screens;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private ScheduleGenerator generator;
+    private ForkJoinPool pool;
+    private LocalDate firstDay;
+
+    @Setup
+    public void setup() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            movies.add(new Movie("Movie " + i, Duration.ofMinutes(80 + 7 * i), 10 + i % 4, i % 3));
+        }
+        List<Screen> screenList = new ArrayList<>();
+        for (int number = 1; number <= screens; number++) {
+            screenList.add(new Screen(number, "Screen " + number, Theater.SEATING_ROWS, Theater.SEATS_PER_ROW));
+        }
+        generator = new ScheduleGenerator(movies, screenList, LocalTime.of(9, 0), LocalTime.MIDNIGHT, Duration.ofMinutes(15));
+        //0 threads stands for all available processors
+        pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        firstDay = LocalDate.now();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Map<LocalDate, List<Showing>> generateQuarter() {
+        return generator.generate(firstDay, firstDay.plusDays(DAYS_IN_QUARTER - 1), pool);
+    }
+}
@@ -0,0 +1,117 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of a {@link ShardedTheater} under a mix of 90% reservations (given back right away), 5% schedule
+ * reads and 5% schedule edits, from 1 to 32 and all available threads. With one shard every operation meets on the
+ * same locks; with 64 shards threads only meet when they pick the same (date, screen), so the throughput should grow
+ * close to linearly with the cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedTheaterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TheaterState {
+        @Param({"1", "64"})
+        public int shards;
+
+        ScheduleFixture fixture;
+        ShardedTheater theater;
+        long[] showingIds;
+        Customer customer = new Customer("Rajesh", "1");
+        //every thread edits a screen of its own, so edits never overlap each other
+        AtomicInteger editScreens = new AtomicInteger(1000);
+
+        @Setup
+        public void setup() {
+            fixture = new ScheduleFixture(ScheduleFixture.MONTH_OF_MULTIPLEX, LocalDate.now());
+            theater = new ShardedTheater(LocalDateProvider.singleton(), shards, fixture.getSchedule());
+            showingIds = fixture.getShowings().stream().mapToLong(Showing::getId).toArray();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random = new SplittableRandom();
+        Screen editScreen;
+        Movie movie = new Movie("The Batman", Duration.ofMinutes(95), 9);
+
+        @Setup
+        public void setup(TheaterState state) {
+            int number = state.editScreens.incrementAndGet();
+            editScreen = new Screen(number, "Screen " + number, Theater.SEATING_ROWS, Theater.SEATS_PER_ROW);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object mixed_1Thread(TheaterState state, ThreadState thread) {
+        return mixed(state, thread);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object mixed_4Threads(TheaterState state, ThreadState thread) {
+        return mixed(state, thread);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object mixed_16Threads(TheaterState state, ThreadState thread) {
+        return mixed(state, thread);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Object mixed_32Threads(TheaterState state, ThreadState thread) {
+        return mixed(state, thread);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object mixed_maxThreads(TheaterState state, ThreadState thread) {
+        return mixed(state, thread);
+    }
+
+    private static Object mixed(TheaterState state, ThreadState thread) {
+        int operation = thread.random.nextInt(100);
+        LocalDate showDate = state.fixture.getFirstDay().plusDays(thread.random.nextInt(state.fixture.getDays()));
+        if (operation < 5) {
+            Showing showing = new Showing(thread.movie, thread.editScreen, 1, LocalDateTime.of(showDate, LocalTime.of(12, 0)));
+            state.theater.addShowing(showing);
+            return state.theater.removeShowing(showing.getId());
+        }
+        if (operation < 10) {
+            Screen screen = state.fixture.getShowings().get(thread.random.nextInt(state.showingIds.length)).getScreen();
+            return state.theater.getShowings(showDate, screen);
+        }
+        long showingId = state.showingIds[thread.random.nextInt(state.showingIds.length)];
+        Reservation reservation = state.theater.reserve(state.customer, showingId, 2);
+        state.theater.cancel(reservation);
+        return reservation;
+    }
+}
@@ -0,0 +1,41 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a {@link Showing}, which prices it, and of the fee calculation on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShowingBenchmark {
+
+    private Movie movie = ScheduleFixture.movie(0);
+    private Screen screen = Theater.DEFAULT_SCREEN;
+    private LocalDateTime startTime = LocalDateTime.of(2022, 3, 7, 12, 50);
+    private int sequence = 3;
+
+    @Benchmark
+    public Showing createShowing() {
+        return new Showing(movie, screen, sequence, startTime);
+    }
+
+    @Benchmark
+    public AppliedDiscount calculateFee() {
+        return DiscountRuleSet.DEFAULT.evaluate(movie, sequence, startTime);
+    }
+}
@@ -0,0 +1,71 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning every showing of a schedule for its seats left and revenue per seat, over {@link Showing} objects
+ * against the columns of a {@link ShowingStore}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ShowingStoreBenchmark {
+
+    @Param({ScheduleFixture.MONTH_OF_MULTIPLEX, ScheduleFixture.YEAR_OF_MULTIPLEX})
+    public String scheduleSize;
+
+    private List<Showing> showings;
+    private ShowingStore store;
+    private LocalDateTime lastWeek;
+
+    @Setup
+    public void setup() {
+        ScheduleFixture fixture = new ScheduleFixture(scheduleSize, LocalDate.now());
+        showings = fixture.getShowings();
+        store = ShowingStore.of(fixture.getSchedule());
+        lastWeek = fixture.getFirstDay().plusDays(fixture.getDays() - 7).atStartOfDay();
+    }
+
+    @Benchmark
+    public long scanShowings() {
+        long revenue = 0;
+        for (Showing showing : showings) {
+            revenue += showing.getSeatsLeft() * showing.getDiscountedMovieFeeInCents();
+        }
+        return revenue;
+    }
+
+    @Benchmark
+    public long scanStore() {
+        ShowingStore.ShowingView view = store.showingView();
+        long revenue = 0;
+        for (int i = 0; i < store.getShowingCount(); i++) {
+            view.moveTo(i);
+            revenue += view.getSeatsLeft() * view.getDiscountedMovieFeeInCents();
+        }
+        return revenue;
+    }
+
+    @Benchmark
+    public long seatsLeftOfLastWeek() {
+        return store.sumSeatsLeft(store.firstIndexFrom(lastWeek), store.getShowingCount());
+    }
+}
@@ -0,0 +1,71 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of starting from a schedule snapshot: mapping it and walking every showing through the flyweight view,
+ * against starting a Theater from it and selling the first tickets, which builds the showings of a single date.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    @Param({ScheduleFixture.MONTH_OF_MULTIPLEX, ScheduleFixture.YEAR_OF_MULTIPLEX})
+    public String scheduleSize;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("schedule", ".snapshot");
+        ScheduleSnapshot.write(new ScheduleFixture(scheduleSize, LocalDate.now()).getSchedule(), file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long scanSeatsLeft() throws IOException {
+        ScheduleSnapshot snapshot = ScheduleSnapshot.open(file);
+        ScheduleSnapshot.ShowingView view = snapshot.showingView();
+        long seatsLeft = 0;
+        for (int i = 0; i < snapshot.getShowingCount(); i++) {
+            seatsLeft += view.moveTo(i).getSeatsLeft();
+        }
+        return seatsLeft;
+    }
+
+    @Benchmark
+    public Theater startTheater() throws IOException {
+        return new Theater(LocalDateProvider.singleton(), ScheduleSnapshot.open(file));
+    }
+
+    @Benchmark
+    public Reservation startTheaterAndReserve() throws IOException {
+        Theater theater = new Theater(LocalDateProvider.singleton(), ScheduleSnapshot.open(file));
+        return theater.reserve(new Customer("Rajesh", "1"), LocalDate.now(), 1, 2);
+    }
+}
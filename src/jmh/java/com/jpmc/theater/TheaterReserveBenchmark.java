@@ -0,0 +1,106 @@
+package com.jpmc.theater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Theater#reserve} under 1, 4 and all available threads.
+ * Every operation reserves 2 seats of a random showing and gives them back right away,
+ * so the schedule never sells out however long the benchmark runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TheaterReserveBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TheaterState {
+        @Param({ScheduleFixture.SINGLE_DAY, ScheduleFixture.MONTH_OF_MULTIPLEX, ScheduleFixture.YEAR_OF_MULTIPLEX})
+        public String scheduleSize;
+
+        ScheduleFixture fixture;
+        Theater theater;
+        long[] showingIds;
+        Customer customer = new Customer("Rajesh", "1");
+
+        @Setup
+        public void setup() {
+            fixture = new ScheduleFixture(scheduleSize, LocalDate.now());
+            theater = new Theater(LocalDateProvider.singleton(), fixture.getSchedule());
+            showingIds = fixture.getShowings().stream().mapToLong(Showing::getId).toArray();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Reservation reserveByDateAndSequence_1Thread(TheaterState state, ThreadState thread) {
+        return reserveByDateAndSequence(state, thread);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Reservation reserveByDateAndSequence_4Threads(TheaterState state, ThreadState thread) {
+        return reserveByDateAndSequence(state, thread);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Reservation reserveByDateAndSequence_maxThreads(TheaterState state, ThreadState thread) {
+        return reserveByDateAndSequence(state, thread);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Reservation reserveById_1Thread(TheaterState state, ThreadState thread) {
+        return reserveById(state, thread);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Reservation reserveById_4Threads(TheaterState state, ThreadState thread) {
+        return reserveById(state, thread);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Reservation reserveById_maxThreads(TheaterState state, ThreadState thread) {
+        return reserveById(state, thread);
+    }
+
+    private static Reservation reserveByDateAndSequence(TheaterState state, ThreadState thread) {
+        LocalDate showDate = state.fixture.getFirstDay().plusDays(thread.random.nextInt(state.fixture.getDays()));
+        int sequence = 1 + thread.random.nextInt(state.fixture.getShowingsPerDay());
+        return giveBack(state, state.theater.reserve(state.customer, showDate, sequence, 2));
+    }
+
+    private static Reservation reserveById(TheaterState state, ThreadState thread) {
+        long showingId = state.showingIds[thread.random.nextInt(state.showingIds.length)];
+        return giveBack(state, state.theater.reserve(state.customer, showingId, 2));
+    }
+
+    private static Reservation giveBack(TheaterState state, Reservation reservation) {
+        //cancelled rather than released, so the reservation registry does not grow during the run
+        return state.theater.cancel(reservation.getId());
+    }
+}
@@ -0,0 +1,48 @@
+package com.jpmc.theater;
+
+/**
+ * Outcome of evaluating a {@link DiscountRuleSet} for a showing: the winning rule and its discount.
+ */
+public class AppliedDiscount {
+
+    public static final AppliedDiscount NONE = new AppliedDiscount(null, 0);
+
+    private DiscountRule rule;
+    private long amountInCents;
+
+    /**
+     * @param rule winning rule, null if no rule applied
+     * @param amountInCents discount on a single ticket
+     */
+    public AppliedDiscount(DiscountRule rule, long amountInCents) {
+        this.rule = rule;
+        this.amountInCents = amountInCents;
+    }
+
+    public DiscountRule getRule() {
+        return rule;
+    }
+
+    /**
+     * @return name of the winning rule, or null if no rule applied
+     */
+    public String getRuleName() {
+        return rule == null ? null : rule.getName();
+    }
+
+    public double getAmount() {
+        return Money.toDouble(amountInCents);
+    }
+
+    public long getAmountInCents() {
+        return amountInCents;
+    }
+
+    @Override
+    public String toString() {
+        return "AppliedDiscount{" +
+                "rule=" + getRuleName() +
+                ", amount=" + getAmount() +
+                '}';
+    }
+}
@@ -12,6 +12,8 @@ import java.time.Duration;
  */
 public class CustomDurationSerializer extends StdSerializer<Duration> {
 
+    private static final long serialVersionUID = 1L;
+
     public CustomDurationSerializer() {
         this(null);
     }
@@ -22,8 +24,7 @@ public class CustomDurationSerializer extends StdSerializer<Duration> {
 
     @Override
     public void serialize(Duration duration, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        jsonGenerator.writeStartObject();
-        jsonGenerator.writeRaw(Utility.humanReadableFormat(duration));
-        jsonGenerator.writeEndObject();
+        //written as a plain string value, raw text inside an object is not valid JSon
+        jsonGenerator.writeString(Utility.humanReadableFormat(duration));
     }
 }
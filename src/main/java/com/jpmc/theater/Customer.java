@@ -13,7 +13,7 @@ public class Customer {
      */
     public Customer(String name, String id) {
         validate(name, id);
-        this.id = id; // NOTE - id is not used anywhere at the moment
+        this.id = id;
         this.name = name;
 
     }
@@ -0,0 +1,196 @@
+package com.jpmc.theater;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Demand based pricing: the ticket fee of a showing is its discounted fee scaled by a multiplier which depends on how
+ * full the showing is and how long it is until it starts.
+ * <p>
+ * The multipliers of a {@link Curve} are precomputed into a table of {@link #FILL_STEPS} + 1 fill rates by
+ * {@link #LEAD_HOURS} + 1 lead times, in basis points, and published through a volatile reference. Quoting a fee on
+ * the reserve path is a few integer operations and one table read, without a lock or an allocation; the local start
+ * minute comes from the showing id and the zone offset is cached until the next transition of the zone. Changing the
+ * curve, or recomputing it because it depends on other signals, builds a new table on an executor and swaps it in,
+ * so reservations never wait for it and always see either the old or the new table as a whole.
+ */
+public class DemandPricing {
+
+    //fill rate in 5% steps
+    public static final int FILL_STEPS = 20;
+    //lead time in hours, everything further out is priced as LEAD_HOURS
+    public static final int LEAD_HOURS = 7 * 24;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final int MINUTES_PER_HOUR = 60;
+
+    /**
+     * Price curve, evaluated only when the table is recomputed.
+     */
+    public interface Curve {
+
+        /**
+         * @param fillRate share of the seats which are sold, 0 - 1
+         * @param hoursToStart whole hours until the showing starts, 0 - {@link #LEAD_HOURS}
+         * @return factor the discounted fee is multiplied with, e.g. 1.2 for 20% more
+         */
+        double multiplierOf(double fillRate, int hoursToStart);
+    }
+
+    /**
+     * Up to 30% more as the showing fills from half to fully sold, and up to 20% less for a showing which is less
+     * than a third sold when it starts within 3 hours.
+     */
+    public static final Curve DEFAULT_CURVE = (fillRate, hoursToStart) -> {
+        double multiplier = 1 + 0.6 * Math.max(0, fillRate - 0.5);
+        if (hoursToStart < 3 && fillRate < 1.0 / 3) {
+            multiplier -= 0.2 * (1 - fillRate * 3);
+        }
+        return multiplier;
+    };
+
+    private final Clock clock;
+    private final Executor executor;
+    private final ZoneRules zoneRules;
+    //offset of the zone until its next transition, so quotes do not search the zone rules
+    private volatile OffsetWindow offsetWindow;
+    private volatile Curve curve;
+    //basis points by fill step and lead hour
+    private volatile int[] multipliers;
+
+    /**
+     * @param curve
+     * @param clock clock of the theater, see {@link LocalDateProvider#getClock()}; start times are in its zone
+     */
+    public DemandPricing(Curve curve, Clock clock) {
+        this(curve, clock, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param curve
+     * @param clock clock of the theater, see {@link LocalDateProvider#getClock()}; start times are in its zone
+     * @param executor runs the recomputations of the table
+     */
+    public DemandPricing(Curve curve, Clock clock, Executor executor) {
+        if(curve == null || clock == null || executor == null) {
+            throw new IllegalStateException("Demand pricing cannot be created");
+        }
+        this.clock = clock;
+        this.executor = executor;
+        this.zoneRules = clock.getZone().getRules();
+        this.offsetWindow = offsetWindowAt(clock.millis());
+        this.curve = curve;
+        //the first table is built right away, so the pricing can quote as soon as it exists
+        this.multipliers = tableOf(curve);
+    }
+
+    /**
+     * Method to quote the fee of a single ticket for the showing, as of now.
+     * @param showing a {@link Showing} or a row of a {@link ShowingStore}
+     * @return fee in cents, never negative
+     */
+    public long quote(ShowingInfo showing) {
+        int capacity = showing.getScreen().getCapacity();
+        int sold = capacity - showing.getSeatsLeft();
+        int fillStep = (int) ((long) sold * FILL_STEPS / capacity);
+        //the id holds the local start minute, see Showing#idOf
+        long startMinute = showing.getId() >>> 20;
+        long leadHours = Math.max(0, Math.min(LEAD_HOURS, (startMinute - currentLocalMinute()) / MINUTES_PER_HOUR));
+        int basisPoints = multipliers[fillStep * (LEAD_HOURS + 1) + (int) leadHours];
+        return Money.percentage(showing.getDiscountedMovieFeeInCents(), basisPoints);
+    }
+
+    private long currentLocalMinute() {
+        long now = clock.millis();
+        OffsetWindow window = offsetWindow;
+        if (now < window.fromMillis || now >= window.untilMillis) {
+            window = offsetWindowAt(now);
+            offsetWindow = window;
+        }
+        return Math.floorDiv(now + window.offsetMillis, MILLIS_PER_MINUTE);
+    }
+
+    private OffsetWindow offsetWindowAt(long millis) {
+        Instant instant = Instant.ofEpochMilli(millis);
+        ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+        return new OffsetWindow(millis, next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000,
+                zoneRules.getOffset(instant).getTotalSeconds() * 1000L);
+    }
+
+    private static final class OffsetWindow {
+        private final long fromMillis;
+        private final long untilMillis;
+        private final long offsetMillis;
+
+        private OffsetWindow(long fromMillis, long untilMillis, long offsetMillis) {
+            this.fromMillis = fromMillis;
+            this.untilMillis = untilMillis;
+            this.offsetMillis = offsetMillis;
+        }
+    }
+
+    /**
+     * Method to switch to another curve; the table is computed on the executor and swapped in when done.
+     * A curve with an invalid multiplier is not taken, the current curve and its table stay in place.
+     * @param curve
+     * @return completes once the new curve is used for quotes
+     */
+    public CompletableFuture<Void> changeCurve(Curve curve) {
+        if(curve == null) {
+            throw new IllegalStateException("price curve cannot be null");
+        }
+        return CompletableFuture.runAsync(() -> rebuild(curve), executor);
+    }
+
+    /**
+     * Method to evaluate the curve again, e.g. periodically when it depends on signals other than its arguments.
+     * @return completes once the recomputed table is used for quotes
+     */
+    public CompletableFuture<Void> recompute() {
+        return CompletableFuture.runAsync(() -> rebuild(null), executor);
+    }
+
+    private synchronized void rebuild(Curve changed) {
+        //synchronized so that a recompute always sees the curve of the last change which was applied
+        Curve next = changed == null ? curve : changed;
+        int[] table = tableOf(next);
+        //curve and table change together, and only once the table is built
+        curve = next;
+        multipliers = table;
+    }
+
+    /**
+     * @return multiplier used for the given fill step and lead hour, in basis points
+     */
+    public int getMultiplier(int fillStep, int leadHours) {
+        return multipliers[fillStep * (LEAD_HOURS + 1) + leadHours];
+    }
+
+    private static int[] tableOf(Curve curve) {
+        int[] table = new int[(FILL_STEPS + 1) * (LEAD_HOURS + 1)];
+        for (int fillStep = 0; fillStep <= FILL_STEPS; fillStep++) {
+            for (int leadHours = 0; leadHours <= LEAD_HOURS; leadHours++) {
+                double multiplier = curve.multiplierOf((double) fillStep / FILL_STEPS, leadHours);
+                if (!(multiplier >= 0) || Double.isInfinite(multiplier)) {
+                    throw new IllegalStateException("invalid price multiplier " + multiplier + " for fill step " + fillStep + " and lead hour " + leadHours);
+                }
+                table[fillStep * (LEAD_HOURS + 1) + leadHours] = Money.toBasisPoints(multiplier);
+            }
+        }
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        return "DemandPricing{" +
+                "zone=" + clock.getZone() +
+                ", fullAtStart=" + getMultiplier(FILL_STEPS, 0) +
+                ", emptyAtStart=" + getMultiplier(0, 0) +
+                '}';
+    }
+}
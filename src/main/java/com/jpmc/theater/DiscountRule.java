@@ -0,0 +1,38 @@
+package com.jpmc.theater;
+
+import java.time.LocalDateTime;
+
+/**
+ * A discount (promotion) which can be given on the ticket price of a showing.
+ * Rules are combined in a {@link DiscountRuleSet}, where the biggest discount wins.
+ */
+public interface DiscountRule {
+
+    /**
+     * @return name of the rule, reported as the winning rule of a showing
+     */
+    String getName();
+
+    /**
+     * Method used when a rule set is compiled, to leave out rules which can never apply to showings
+     * starting on the given day of the month and hour. Rules which do not depend on the date and time keep the default.
+     * @param dayOfMonth 1 - 31
+     * @param hour 0 - 23
+     * @return false if the rule can never give a discount for such showings
+     */
+    default boolean canApply(int dayOfMonth, int hour) {
+        return true;
+    }
+
+    /**
+     * The discount may only depend on the movie and the sequence; the start time may only decide whether the rule
+     * applies at all, through {@link #canApply(int, int)}. Discounts are memoized per slot class, see
+     * {@link PricingTable}, so {@link DiscountRuleSet#compile(java.util.List)} rejects rules whose discount varies
+     * between the slots they apply to.
+     * @param movie
+     * @param sequenceOfTheDay
+     * @param showStartTime
+     * @return discount on a single ticket in cents, zero if the rule does not apply
+     */
+    long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime);
+}
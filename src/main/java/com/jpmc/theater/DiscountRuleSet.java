@@ -0,0 +1,178 @@
+package com.jpmc.theater;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.jpmc.theater.Showing.START_TIME_DISCOUNT_LOWER_HOUR;
+import static com.jpmc.theater.Showing.START_TIME_DISCOUNT_UPPER_HOUR;
+
+/**
+ * A set of discount rules compiled once for evaluation.
+ * For every (day of month, hour) slot the rules which can apply are resolved up front, so evaluating a showing
+ * only looks at the rules of its slot, e.g. the day 7th rule is not even visited on other days.
+ * In case a showing is eligible for multiple discounts, the biggest one wins.
+ * Slots with the same applicable rules form a slot class; the {@link PricingTable} of the rule set memoizes
+ * discounts per slot class. That is only correct if a rule gives the same discount in every slot it applies to, which
+ * {@link #compile(List)} checks with sample showings.
+ */
+public class DiscountRuleSet {
+
+    private static final int DAYS_IN_MONTH = 31;
+    private static final int HOURS_IN_DAY = 24;
+    //sample showings for checking the rules, declared before DEFAULT which is compiled with them
+    private static final List<Movie> PROBE_MOVIES = List.of(
+            new Movie("probe", Duration.ofMinutes(90), 10),
+            new Movie("special probe", Duration.ofMinutes(90), 10, 1));
+    private static final int PROBE_SEQUENCES = 3;
+
+    public static final DiscountRuleSet DEFAULT = compile(List.of(
+            DiscountRules.specialMovie(1, 0.2),   // 20% discount for special movie
+            DiscountRules.sequenceOfTheDay(1, 3), // $3 discount for 1st show
+            DiscountRules.sequenceOfTheDay(2, 2), // $2 discount for 2nd show
+            DiscountRules.startTimeWindow(START_TIME_DISCOUNT_LOWER_HOUR, START_TIME_DISCOUNT_UPPER_HOUR, 0.25),
+            DiscountRules.dayOfMonth(7, 1)        // $1 discount for showing on day 7th
+    ));
+
+    private final List<DiscountRule> rules;
+    //applicable rules per [dayOfMonth - 1][hour]; slots with the same rules share one array
+    private final DiscountRule[][][] rulesBySlot;
+    //slot class per [dayOfMonth - 1][hour], numbered in order of appearance
+    private final int[][] slotClasses;
+    private final int slotClassCount;
+    private final PricingTable pricingTable;
+
+    private DiscountRuleSet(List<DiscountRule> rules, DiscountRule[][][] rulesBySlot, int[][] slotClasses, int slotClassCount) {
+        this.rules = rules;
+        this.rulesBySlot = rulesBySlot;
+        this.slotClasses = slotClasses;
+        this.slotClassCount = slotClassCount;
+        this.pricingTable = new PricingTable(this, PricingTable.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Method to compile the given rules into a rule set.
+     * @param rules rules whose discount does not depend on the start time other than through
+     *              {@link DiscountRule#canApply(int, int)}
+     * @return compiled rule set
+     */
+    public static DiscountRuleSet compile(List<DiscountRule> rules) {
+        if(rules == null || rules.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalStateException("Discount rule set cannot be created");
+        }
+        rules.forEach(DiscountRuleSet::validateSameDiscountInEverySlot);
+        Map<List<DiscountRule>, DiscountRule[]> distinctSlots = new HashMap<>();
+        Map<List<DiscountRule>, Integer> classes = new HashMap<>();
+        DiscountRule[][][] rulesBySlot = new DiscountRule[DAYS_IN_MONTH][HOURS_IN_DAY][];
+        int[][] slotClasses = new int[DAYS_IN_MONTH][HOURS_IN_DAY];
+        for (int day = 1; day <= DAYS_IN_MONTH; day++) {
+            for (int hour = 0; hour < HOURS_IN_DAY; hour++) {
+                List<DiscountRule> applicable = new ArrayList<>();
+                for (DiscountRule rule : rules) {
+                    if (rule.canApply(day, hour)) {
+                        applicable.add(rule);
+                    }
+                }
+                rulesBySlot[day - 1][hour] = distinctSlots.computeIfAbsent(applicable, slot -> slot.toArray(new DiscountRule[0]));
+                slotClasses[day - 1][hour] = classes.computeIfAbsent(applicable, slot -> classes.size());
+            }
+        }
+        return new DiscountRuleSet(List.copyOf(rules), rulesBySlot, slotClasses, classes.size());
+    }
+
+    private static void validateSameDiscountInEverySlot(DiscountRule rule) {
+        long[] expected = null;
+        for (int day = 1; day <= DAYS_IN_MONTH; day++) {
+            for (int hour = 0; hour < HOURS_IN_DAY; hour++) {
+                if (!rule.canApply(day, hour)) {
+                    continue;
+                }
+                long[] discounts = probe(rule, LocalDateTime.of(2030, Month.JANUARY, day, hour, 0));
+                if (expected == null) {
+                    expected = discounts;
+                } else if (!Arrays.equals(expected, discounts)) {
+                    throw new IllegalStateException("discount of rule " + rule.getName()
+                            + " depends on the start time, not only on canApply");
+                }
+            }
+        }
+    }
+
+    private static long[] probe(DiscountRule rule, LocalDateTime showStartTime) {
+        long[] discounts = new long[PROBE_MOVIES.size() * PROBE_SEQUENCES];
+        int i = 0;
+        for (Movie movie : PROBE_MOVIES) {
+            for (int sequence = 1; sequence <= PROBE_SEQUENCES; sequence++) {
+                discounts[i++] = rule.getDiscount(movie, sequence, showStartTime);
+            }
+        }
+        return discounts;
+    }
+
+    /**
+     * Method to find the biggest discount for a showing.
+     * @param movie
+     * @param sequenceOfTheDay
+     * @param showStartTime
+     * @return the winning rule and its discount, {@link AppliedDiscount#NONE} if no rule applies
+     */
+    public AppliedDiscount evaluate(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+        DiscountRule[] candidates = rulesBySlot[showStartTime.getDayOfMonth() - 1][showStartTime.getHour()];
+        DiscountRule winner = null;
+        long biggestDiscount = 0;
+        for (DiscountRule rule : candidates) {
+            long discount = rule.getDiscount(movie, sequenceOfTheDay, showStartTime);
+            if (discount > biggestDiscount) {
+                biggestDiscount = discount;
+                winner = rule;
+            }
+        }
+        return winner == null ? AppliedDiscount.NONE : new AppliedDiscount(winner, biggestDiscount);
+    }
+
+    /**
+     * @return slot class of showings starting at the given time; showings of the same movie, sequence and slot class
+     * get the same discount
+     */
+    public int slotClassOf(LocalDateTime showStartTime) {
+        return slotClasses[showStartTime.getDayOfMonth() - 1][showStartTime.getHour()];
+    }
+
+    /**
+     * @return number of distinct slot classes, at most 31 * 24
+     */
+    public int getSlotClassCount() {
+        return slotClassCount;
+    }
+
+    /**
+     * @return memoized prices of the rule set, shared by every showing priced with it, also across theaters
+     */
+    public PricingTable getPricingTable() {
+        return pricingTable;
+    }
+
+    /**
+     * @return rules which can apply to showings starting on the given day of the month and hour
+     */
+    public List<DiscountRule> getApplicableRules(int dayOfMonth, int hour) {
+        return Arrays.asList(rulesBySlot[dayOfMonth - 1][hour].clone());
+    }
+
+    public List<DiscountRule> getRules() {
+        return rules;
+    }
+
+    @Override
+    public String toString() {
+        return "DiscountRuleSet{" +
+                "rules=" + rules +
+                '}';
+    }
+}
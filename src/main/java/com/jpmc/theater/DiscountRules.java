@@ -0,0 +1,93 @@
+package com.jpmc.theater;
+
+import java.time.LocalDateTime;
+
+/**
+ * Factory methods for the standard discount rules of the theater.
+ */
+public class DiscountRules {
+
+    private DiscountRules() {
+    }
+
+    /**
+     * @param percentage fraction of the ticket price, e.g. 0.2 for 20%
+     * @return rule giving a percentage of the ticket price off for movies with the given special code
+     */
+    public static DiscountRule specialMovie(int specialCode, double percentage) {
+        int basisPoints = Money.toBasisPoints(percentage);
+        return new NamedRule("special movie " + specialCode) {
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                return movie.getSpecialCode() == specialCode ? Money.percentage(movie.getTicketPriceInCents(), basisPoints) : 0;
+            }
+        };
+    }
+
+    /**
+     * @return rule giving a fixed amount off for the showing with the given sequence of the day
+     */
+    public static DiscountRule sequenceOfTheDay(int sequence, double amount) {
+        long amountInCents = Money.fromDouble(amount);
+        return new NamedRule("showing #" + sequence + " of the day") {
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                return sequenceOfTheDay == sequence ? amountInCents : 0;
+            }
+        };
+    }
+
+    /**
+     * @return rule giving a percentage of the ticket price off for showings starting between the given hours, both inclusive
+     */
+    public static DiscountRule startTimeWindow(int lowerHour, int upperHour, double percentage) {
+        int basisPoints = Money.toBasisPoints(percentage);
+        return new NamedRule("start between " + lowerHour + "h and " + upperHour + "h") {
+            @Override
+            public boolean canApply(int dayOfMonth, int hour) {
+                return Utility.checkIfHourFallsWithinRange(hour, lowerHour, upperHour);
+            }
+
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                return canApply(showStartTime.getDayOfMonth(), showStartTime.getHour()) ? Money.percentage(movie.getTicketPriceInCents(), basisPoints) : 0;
+            }
+        };
+    }
+
+    /**
+     * @return rule giving a fixed amount off for showings on the given day of the month
+     */
+    public static DiscountRule dayOfMonth(int day, double amount) {
+        long amountInCents = Money.fromDouble(amount);
+        return new NamedRule("showing on day " + day) {
+            @Override
+            public boolean canApply(int dayOfMonth, int hour) {
+                return dayOfMonth == day;
+            }
+
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                return showStartTime.getDayOfMonth() == day ? amountInCents : 0;
+            }
+        };
+    }
+
+    private abstract static class NamedRule implements DiscountRule {
+        private final String name;
+
+        private NamedRule(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -1,21 +1,106 @@
 package com.jpmc.theater;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 
+/**
+ * Provides the current date of a theater, in the time zone of its clock.
+ * The date is cached together with the instant of the next midnight, so asking for it is a volatile read and a
+ * clock read instead of a date computation with a time zone lookup; the date is recomputed only when the day rolls
+ * over (or the clock goes back).
+ */
 public class LocalDateProvider {
-    private static LocalDateProvider instance = null;
+
+    private final Clock clock;
+    private volatile Day today;
+
+    // lazy, thread-safe initialization by the class loader
+    private static final class Holder {
+        private static final LocalDateProvider INSTANCE = new LocalDateProvider(Clock.systemDefaultZone());
+    }
 
     /**
      * @return make sure to return singleton instance
      */
     public static LocalDateProvider singleton() {
-        if (instance == null) {
-            instance = new LocalDateProvider();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @param zone time zone of the theater
+     * @return provider on the system clock in the given zone
+     */
+    public static LocalDateProvider of(ZoneId zone) {
+        return new LocalDateProvider(Clock.system(zone));
+    }
+
+    /**
+     * Provider on the system clock in the default time zone, like {@link #singleton()} but a separate instance.
+     */
+    public LocalDateProvider() {
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock clock of the theater, in its time zone; tests can pass a clock they control
+     */
+    public LocalDateProvider(Clock clock) {
+        if(clock == null) {
+            throw new IllegalStateException("Local date provider cannot be created");
         }
-            return instance;
+        this.clock = clock;
+        this.today = Day.of(clock, clock.millis());
     }
 
     public LocalDate currentDate() {
-            return LocalDate.now();
+        Day day = today;
+        long now = clock.millis();
+        if (now >= day.endMillis || now < day.startMillis) {
+            //racing threads compute the same day, so whichever write wins is correct
+            day = Day.of(clock, now);
+            today = day;
+        }
+        return day.date;
+    }
+
+    public ZoneId getZone() {
+        return clock.getZone();
+    }
+
+    /**
+     * @return clock of the theater, e.g. for hold expiry
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    // a date and the instants it starts and ends at in the clock's zone
+    private static final class Day {
+        private final LocalDate date;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Day(LocalDate date, long startMillis, long endMillis) {
+            this.date = date;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        private static Day of(Clock clock, long millis) {
+            ZoneId zone = clock.getZone();
+            LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+            //atStartOfDay handles zones whose day does not start at midnight on a DST change
+            return new Day(date, date.atStartOfDay(zone).toInstant().toEpochMilli(), date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LocalDateProvider{" +
+                "zone=" + clock.getZone() +
+                ", today=" + today.date +
+                '}';
     }
 }
@@ -0,0 +1,164 @@
+package com.jpmc.theater;
+
+/**
+ * Open addressing hash index keyed by a primitive long, so lookups neither box the key nor allocate.
+ * Uses linear probing over a power of two table which is kept at most half full, so a lookup is usually a single probe.
+ * Not thread-safe for concurrent modification; readers are safe once the index is published and no longer modified.
+ * @param <V> type of the indexed values
+ */
+public class LongHashIndex<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongHashIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of entries to size the table for
+     */
+    public LongHashIndex(int expectedSize) {
+        if(expectedSize < 0) {
+            throw new IllegalStateException("Index cannot be created");
+        }
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * @param key
+     * @return the value for the key or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to add a value to the index.
+     * @param key
+     * @param value
+     * @return the previous value for the key or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if(value == null) {
+            throw new IllegalStateException("null values cannot be indexed");
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Method to remove a value from the index.
+     * @param key
+     * @return the removed value or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        values[slot] = null;
+        size--;
+        //shift back the entries of the probe chain so that later lookups do not stop at the hole
+        for (int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method to copy the index, e.g. to add entries to the copy and publish it to readers of this one.
+     * @param extraSize number of entries which are going to be added to the copy
+     * @return copy of the index, sized for the extra entries
+     */
+    @SuppressWarnings("unchecked")
+    public LongHashIndex<V> copy(int extraSize) {
+        LongHashIndex<V> copy = new LongHashIndex<>(size + Math.max(0, extraSize));
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                copy.put(keys[i], (V) values[i]);
+            }
+        }
+        return copy;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // murmur3 finalizer, spreads ids which only differ in their high bits
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    @Override
+    public String toString() {
+        return "LongHashIndex{" +
+                "size=" + size +
+                ", capacity=" + keys.length +
+                '}';
+    }
+}
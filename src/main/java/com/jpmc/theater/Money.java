@@ -0,0 +1,88 @@
+package com.jpmc.theater;
+
+/**
+ * Fixed-point money arithmetic on amounts held as a long number of cents.
+ * Works on primitives only, so pricing does not allocate; rounding is HALF_EVEN (banker's rounding),
+ * the same as {@link Utility#roundOff(double)} used before.
+ */
+public final class Money {
+
+    public static final int CENTS_PER_UNIT = 100;
+    //percentages are given in basis points, i.e. 1/100 of a percent
+    public static final int BASIS_POINTS_PER_UNIT = 10_000;
+
+    //tolerance for detecting an exact tie when converting from double, e.g. 0.125 * 100
+    private static final double TIE_TOLERANCE = 1e-9;
+
+    private Money() {
+    }
+
+    /**
+     * Method to convert a double amount, e.g. a price entered by hand, to cents.
+     * @param amount
+     * @return amount in cents, rounded HALF_EVEN
+     */
+    public static long fromDouble(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Invalid amount");
+        }
+        double scaled = amount * CENTS_PER_UNIT;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) < TIE_TOLERANCE) {
+            //exact tie, round to the even neighbour
+            return (long) floor % 2 == 0 ? (long) floor : (long) floor + 1;
+        }
+        return Math.round(scaled);
+    }
+
+    /**
+     * @param cents
+     * @return amount as a double, e.g. 938 -> 9.38
+     */
+    public static double toDouble(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+
+    /**
+     * Method to convert a fraction, e.g. 0.25 for 25%, to basis points.
+     * @param fraction
+     * @return basis points
+     */
+    public static int toBasisPoints(double fraction) {
+        return Math.toIntExact(Math.round(fraction * BASIS_POINTS_PER_UNIT));
+    }
+
+    /**
+     * Method to take a percentage of an amount.
+     * @param cents amount
+     * @param basisPoints percentage in basis points, e.g. 2500 for 25%
+     * @return percentage of the amount in cents, rounded HALF_EVEN
+     */
+    public static long percentage(long cents, int basisPoints) {
+        return divideHalfEven(Math.multiplyExact(cents, (long) basisPoints), BASIS_POINTS_PER_UNIT);
+    }
+
+    /**
+     * @param cents price of a single item
+     * @param quantity
+     * @return total price in cents
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    private static long divideHalfEven(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long twiceRemainder = Math.abs(remainder) * 2;
+        long direction = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        if (twiceRemainder > Math.abs(divisor) || (twiceRemainder == Math.abs(divisor) && quotient % 2 != 0)) {
+            return quotient + direction;
+        }
+        return quotient;
+    }
+}
@@ -1,5 +1,6 @@
 package com.jpmc.theater;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import java.time.Duration;
@@ -10,7 +11,7 @@ public class Movie {
     private String title;
     @JsonSerialize(using = CustomDurationSerializer.class)
     private Duration runningTime;
-    private double ticketPrice;
+    private long ticketPriceInCents;
     //special code is optional; if not provided will default it to zero (missing)
     private int specialCode;
 
@@ -18,14 +19,14 @@ public class Movie {
         validate(title, runningTime, ticketPrice);
         this.title = title;
         this.runningTime = runningTime;
-        this.ticketPrice = ticketPrice;
+        this.ticketPriceInCents = Money.fromDouble(ticketPrice);
     }
 
     public Movie(String title, Duration runningTime, double ticketPrice, int specialCode) {
         validate(title, runningTime, ticketPrice);
         this.title = title;
         this.runningTime = runningTime;
-        this.ticketPrice = ticketPrice;
+        this.ticketPriceInCents = Money.fromDouble(ticketPrice);
         this.specialCode = specialCode;
     }
 
@@ -47,19 +48,32 @@ public class Movie {
     }
 
     public double getTicketPrice() {
-        return ticketPrice;
+        return Money.toDouble(ticketPriceInCents);
+    }
+
+    @JsonIgnore
+    public long getTicketPriceInCents() {
+        return ticketPriceInCents;
     }
 
     public int getSpecialCode() {
         return specialCode;
     }
 
+    /**
+     * @param ticketPrice
+     * @return the same movie with another ticket price
+     */
+    public Movie withTicketPrice(double ticketPrice) {
+        return new Movie(title, runningTime, ticketPrice, specialCode);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Movie movie = (Movie) o;
-        return Double.compare(movie.ticketPrice, ticketPrice) == 0
+        return ticketPriceInCents == movie.ticketPriceInCents
                 && Objects.equals(title, movie.title)
                 && Objects.equals(runningTime, movie.runningTime)
                 && Objects.equals(specialCode, movie.specialCode);
@@ -67,7 +81,7 @@ public class Movie {
 
     @Override
     public int hashCode() {
-        return Objects.hash(title, runningTime, ticketPrice, specialCode);
+        return Objects.hash(title, runningTime, ticketPriceInCents, specialCode);
     }
 
     @Override
@@ -75,7 +89,7 @@ public class Movie {
         return "Movie{" +
                 "title='" + title + '\'' +
                 ", runningTime=" + runningTime +
-                ", ticketPrice=" + ticketPrice +
+                ", ticketPrice=" + getTicketPrice() +
                 ", specialCode=" + specialCode +
                 '}';
     }
@@ -0,0 +1,124 @@
+package com.jpmc.theater;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memoized discounts of a {@link DiscountRuleSet}, keyed by (movie, sequence of the day, slot class).
+ * The slot class stands for the hour and day of the month of the start time: slots with the same applicable rules
+ * are one class, so a bulk generated schedule of weeks of showings is priced with a handful of rule evaluations.
+ * Every rule set has one table, see {@link DiscountRuleSet#getPricingTable()}.
+ * <p>
+ * A movie is part of the key with its ticket price, as discounts can depend on it; a repriced movie is a new key,
+ * so the discounts of its old price are evicted with {@link #evict(Movie)} once no showing is priced with it.
+ * <p>
+ * A rule set, e.g. {@link DiscountRuleSet#DEFAULT}, lives as long as the JVM and its table is shared by every theater
+ * using it, so the table is bounded: once it holds {@code maxSize} discounts it is cleared and fills up again with
+ * the combinations still in use.
+ */
+public class PricingTable {
+
+    public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+    private final DiscountRuleSet discountRules;
+    private final int maxSize;
+    private final Map<Key, AppliedDiscount> discounts = new ConcurrentHashMap<>();
+
+    PricingTable(DiscountRuleSet discountRules, int maxSize) {
+        if(maxSize < 1) {
+            throw new IllegalStateException("Pricing table cannot be created");
+        }
+        this.discountRules = discountRules;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Method to find the biggest discount for a showing, evaluating the rules only for a new combination.
+     * @param movie
+     * @param sequenceOfTheDay
+     * @param showStartTime
+     * @return the winning rule and its discount, {@link AppliedDiscount#NONE} if no rule applies
+     */
+    public AppliedDiscount discountOf(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+        Key key = new Key(movie, sequenceOfTheDay, discountRules.slotClassOf(showStartTime));
+        AppliedDiscount discount = discounts.get(key);
+        if (discount == null) {
+            if (discounts.size() >= maxSize) {
+                //concurrent misses may overshoot a little, the bound only has to stop unlimited growth
+                discounts.clear();
+            }
+            //computeIfAbsent locks the bin, so only misses pay for it
+            discount = discounts.computeIfAbsent(key, k -> discountRules.evaluate(movie, sequenceOfTheDay, showStartTime));
+        }
+        return discount;
+    }
+
+    /**
+     * @param movie
+     * @param discount
+     * @return ticket price of the movie minus the discount, never below zero
+     */
+    public static long feeOf(Movie movie, AppliedDiscount discount) {
+        long ticketPrice = movie.getTicketPriceInCents();
+        if(discount.getAmountInCents() > ticketPrice) {
+            //assuming we don't want to give any money back to the user.
+            return 0;
+        }
+        return ticketPrice - discount.getAmountInCents();
+    }
+
+    /**
+     * Method to drop the memoized discounts of a movie, e.g. of its old ticket price once it was repriced.
+     * A showing which still uses the movie only pays for evaluating its rules again.
+     * @param movie
+     * @return number of discounts dropped
+     */
+    public int evict(Movie movie) {
+        int before = discounts.size();
+        discounts.keySet().removeIf(key -> key.movie.equals(movie));
+        return before - discounts.size();
+    }
+
+    /**
+     * @return number of memoized discounts
+     */
+    public int size() {
+        return discounts.size();
+    }
+
+    private static final class Key {
+        private final Movie movie;
+        private final int sequenceOfTheDay;
+        private final int slotClass;
+
+        private Key(Movie movie, int sequenceOfTheDay, int slotClass) {
+            this.movie = movie;
+            this.sequenceOfTheDay = sequenceOfTheDay;
+            this.slotClass = slotClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return sequenceOfTheDay == key.sequenceOfTheDay && slotClass == key.slotClass && movie.equals(key.movie);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(movie, sequenceOfTheDay, slotClass);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PricingTable{" +
+                "discountRules=" + discountRules +
+                ", size=" + size() +
+                ", maxSize=" + maxSize +
+                '}';
+    }
+}
@@ -1,13 +1,22 @@
 package com.jpmc.theater;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Reservation {
+    //assigned by the ReservationRegistry, 0 until the reservation is registered
+    private long id;
     private Customer customer;
     //showDate is needed as customer should be able to book show for current as well as future dates
     private LocalDate showDate;
     private Showing showing;
     private int audienceCount;
+    //seat numbers in the showing's seat map; empty if seats were not assigned
+    private int[] seats;
+    //fee of a single ticket as quoted when the reservation was made
+    private long ticketFeeInCents;
+    private AtomicBoolean cancelled = new AtomicBoolean();
 
     public Reservation(Customer customer, LocalDate showDate, Showing showing, int audienceCount) {
         validate(customer, showDate, showing, audienceCount);
@@ -15,6 +24,32 @@ public class Reservation {
         this.showDate = showDate;
         this.showing = showing;
         this.audienceCount = audienceCount;
+        this.seats = new int[0];
+        this.ticketFeeInCents = showing.getDiscountedMovieFeeInCents();
+    }
+
+    /**
+     * @param seats seat numbers reserved for the customer, one per audience member
+     */
+    public Reservation(Customer customer, LocalDate showDate, Showing showing, int[] seats) {
+        this(customer, showDate, showing, seats, showing == null ? 0 : showing.getDiscountedMovieFeeInCents());
+    }
+
+    /**
+     * @param seats seat numbers reserved for the customer, one per audience member
+     * @param ticketFeeInCents fee of a single ticket the customer was quoted, e.g. by {@link DemandPricing}
+     */
+    public Reservation(Customer customer, LocalDate showDate, Showing showing, int[] seats, long ticketFeeInCents) {
+        validate(customer, showDate, showing, seats == null ? 0 : seats.length);
+        if(ticketFeeInCents < 0) {
+            throw new IllegalStateException("Reservation cannot be created");
+        }
+        this.customer = customer;
+        this.showDate = showDate;
+        this.showing = showing;
+        this.audienceCount = seats.length;
+        this.seats = seats.clone();
+        this.ticketFeeInCents = ticketFeeInCents;
     }
 
     private void validate(Customer customer, LocalDate showDate, Showing showing, int audienceCount) {
@@ -25,6 +60,34 @@ public class Reservation {
         }
     }
 
+    /**
+     * @return id of the reservation, see {@link ReservationRegistry}; 0 if it is not registered
+     */
+    public long getId() {
+        return id;
+    }
+
+    void registered(long id) {
+        this.id = id;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Method to mark the reservation as cancelled; only one caller can win, so its seats are given back once.
+     * @return false if it was cancelled before
+     */
+    boolean cancel() {
+        return cancelled.compareAndSet(false, true);
+    }
+
+    //undoes cancel() if the seats could not be given back
+    void uncancel() {
+        cancelled.set(false);
+    }
+
     public Customer getCustomer() {
         return customer;
     }
@@ -41,17 +104,34 @@ public class Reservation {
         return audienceCount;
     }
 
+    public int[] getSeats() {
+        return seats.clone();
+    }
+
     public double getTotalFee() {
-        return Utility.roundOff(showing.getDiscountedMovieFee() * audienceCount);
+        return Money.toDouble(getTotalFeeInCents());
+    }
+
+    /**
+     * @return fee of a single ticket as quoted when the reservation was made; later price changes do not affect it
+     */
+    public long getTicketFeeInCents() {
+        return ticketFeeInCents;
+    }
+
+    public long getTotalFeeInCents() {
+        return Money.times(ticketFeeInCents, audienceCount);
     }
 
     @Override
     public String toString() {
         return "Reservation{" +
-                "customer=" + customer +
+                "id=" + id +
+                ", customer=" + customer +
                 ", showDate=" + showDate +
                 ", showing=" + showing +
                 ", audienceCount=" + audienceCount +
+                ", seats=" + Arrays.toString(seats) +
                 ", totalFee=" + getTotalFee() +
                 '}';
     }
@@ -0,0 +1,433 @@
+package com.jpmc.theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of reservations and their cancellations, so sold seats survive a restart.
+ * <p>
+ * Every record is {@code length | type | showingId | seat count | seats... | reservation | crc32c} and is appended
+ * through a {@link FileChannel}. The reservation part of a reservation record is
+ * {@code reservationId | ticket fee | show date | customer id | customer name}, the one of a cancellation record is
+ * {@code reservationId}, so the bookings of the customers, and with them cancellations and refunds, survive a restart
+ * too.
+ * <p>
+ * Appends use group commit: the first appender which finds no sync in progress writes and fsyncs everything
+ * appended so far, while the others wait; appends arriving during that sync are batched into the next one. So at an
+ * on-sale peak one fsync covers many tickets, yet no append returns before its record is durable.
+ * <p>
+ * {@link #replay(LongFunction, ReservationRegistry)} reads the file sequentially through a large buffer, re-applies
+ * every record and truncates a torn tail left by a crash in the middle of a write.
+ */
+public class ReservationJournal implements Closeable {
+
+    public static final byte RESERVATION = 1;
+    public static final byte CANCELLATION = 2;
+
+    //far above the capacity of any real screen; bounds the length field when scanning a damaged file
+    public static final int MAX_SEATS_PER_RECORD = 1 << 16;
+    //bounds the customer id and name of a reservation record, in UTF-8 bytes
+    public static final int MAX_TEXT_BYTES = 1 << 10;
+
+    private static final int MAGIC = 0x524a4e31; //"RJN1"
+    private static final int FILE_HEADER_SIZE = Integer.BYTES;
+    //type, showing id and seat count
+    private static final int PAYLOAD_HEADER_SIZE = Byte.BYTES + Long.BYTES + Integer.BYTES;
+    //reservation id, ticket fee, show date epoch day and the lengths of customer id and name
+    private static final int RESERVATION_SIZE = 2 * Long.BYTES + 3 * Integer.BYTES;
+    private static final int MAX_PAYLOAD_SIZE = PAYLOAD_HEADER_SIZE + MAX_SEATS_PER_RECORD * Integer.BYTES + RESERVATION_SIZE + 2 * MAX_TEXT_BYTES;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int INITIAL_WRITE_BUFFER_SIZE = 1 << 12;
+
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+
+    //guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_WRITE_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_WRITE_BUFFER_SIZE);
+    private final CRC32C writeChecksum = new CRC32C();
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean syncInProgress;
+    //an existing journal has to be replayed before appending, so its records are not lost on the next replay
+    private boolean replayRequired;
+    private boolean replayed;
+    private IOException failure;
+    private long writePosition;
+
+    /**
+     * Opens the journal, creating the file if it does not exist.
+     * An existing journal has to be {@link #replay(LongFunction) replayed} before anything can be appended to it.
+     * @param file
+     * @throws IOException
+     */
+    public ReservationJournal(Path file) throws IOException {
+        if(file == null) {
+            throw new IllegalStateException("Reservation journal cannot be created");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            this.writePosition = FILE_HEADER_SIZE;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                //keep reading until the header is complete or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IllegalStateException("not a reservation journal: " + file);
+            }
+            this.replayRequired = true;
+        }
+    }
+
+    /**
+     * Method to rebuild the seat state of the showings from the journal.
+     * Records for showings which are no longer scheduled are skipped; a torn or corrupt tail is cut off.
+     * @param showings lookup of a showing by its id, returning null for unknown ids
+     * @return number of records which were applied
+     * @throws IOException
+     */
+    public long replay(LongFunction<Showing> showings) throws IOException {
+        return replay(showings, null);
+    }
+
+    /**
+     * Method to rebuild the seat state of the showings and the reservations which are not cancelled from the journal.
+     * @param showings lookup of a showing by its id, returning null for unknown ids
+     * @param registry registry the reservations are registered with again under their ids, or null to rebuild seats only
+     * @return number of records which were applied
+     * @throws IOException
+     */
+    public long replay(LongFunction<Showing> showings, ReservationRegistry registry) throws IOException {
+        lock.lock();
+        try {
+            if (replayed || appendedSequence > 0) {
+                throw new IllegalStateException("journal is already replayed");
+            }
+            long applied = 0;
+            long validEnd = FILE_HEADER_SIZE;
+            long readPosition = FILE_HEADER_SIZE;
+            CRC32C checksum = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            boolean endOfValidRecords = false;
+            while (!endOfValidRecords) {
+                int read = channel.read(buffer, readPosition);
+                if (read > 0) {
+                    readPosition += read;
+                }
+                buffer.flip();
+                while (buffer.remaining() >= Integer.BYTES) {
+                    int start = buffer.position();
+                    int length = buffer.getInt(start);
+                    if (length < PAYLOAD_HEADER_SIZE || length > MAX_PAYLOAD_SIZE) {
+                        endOfValidRecords = true;
+                        break;
+                    }
+                    int recordSize = Integer.BYTES + length + Integer.BYTES;
+                    if (buffer.remaining() < recordSize) {
+                        //record continues in the next read
+                        break;
+                    }
+                    checksum.reset();
+                    checksum.update(payload(buffer, start, length));
+                    if ((int) checksum.getValue() != buffer.getInt(start + Integer.BYTES + length)) {
+                        endOfValidRecords = true;
+                        break;
+                    }
+                    buffer.position(start + Integer.BYTES);
+                    if (apply(buffer, showings, registry)) {
+                        applied++;
+                    }
+                    buffer.position(start + recordSize);
+                    validEnd += recordSize;
+                }
+                if (read < 0) {
+                    break;
+                }
+                buffer.compact();
+            }
+            if (validEnd < channel.size()) {
+                //crash in the middle of an append, the record was never acknowledged
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+            writePosition = validEnd;
+            replayed = true;
+            replayRequired = false;
+            return applied;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean apply(ByteBuffer record, LongFunction<Showing> showings, ReservationRegistry registry) {
+        byte type = record.get();
+        long showingId = record.getLong();
+        int[] seats = new int[record.getInt()];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = record.getInt();
+        }
+        Showing showing = showings.apply(showingId);
+        if (showing == null) {
+            return false;
+        }
+        if (type == RESERVATION) {
+            long reservationId = record.getLong();
+            long ticketFeeInCents = record.getLong();
+            LocalDate showDate = LocalDate.ofEpochDay(record.getInt());
+            String customerId = text(record);
+            Customer customer = new Customer(text(record), customerId);
+            showing.restoreSeats(seats);
+            if (registry != null) {
+                Reservation reservation = new Reservation(customer, showDate, showing, seats, ticketFeeInCents);
+                reservation.registered(reservationId);
+                registry.register(reservation);
+            }
+        } else if (type == CANCELLATION) {
+            long reservationId = record.getLong();
+            showing.releaseSeats(seats);
+            Reservation reservation = registry == null ? null : registry.get(reservationId);
+            if (reservation != null && reservation.cancel()) {
+                registry.remove(reservation);
+            }
+        } else {
+            throw new IllegalStateException("unknown journal record type " + type + " for showing " + showingId);
+        }
+        return true;
+    }
+
+    private static String text(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method to durably record a reservation, with its seats and what is needed to cancel it after a restart;
+     * returns once the record is on disk.
+     * @param reservation reservation with its id assigned, see {@link ReservationRegistry#identify(Reservation)}
+     */
+    public void reserved(Reservation reservation) {
+        reservedAll(List.of(reservation));
+    }
+
+    /**
+     * Method to durably record the cancellation of a reservation; returns once the record is on disk.
+     * @param reservation
+     */
+    public void released(Reservation reservation) {
+        if(reservation == null || reservation.getId() == 0) {
+            throw new IllegalStateException("invalid reservation for the journal");
+        }
+        int[] seats = reservation.getSeats();
+        validateSeats(seats);
+        lock.lock();
+        try {
+            prepareAppend();
+            int start = encodeSeats(CANCELLATION, reservation.getShowing().getId(), seats, Long.BYTES);
+            pending.putLong(reservation.getId());
+            seal(start);
+            awaitDurable(++appendedSequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to durably record the reservations of a batch, see {@link #reserved(Reservation)}; all records are synced
+     * together and the method returns once the last one is on disk.
+     * @param reservations reservations with their ids assigned
+     */
+    public void reservedAll(List<Reservation> reservations) {
+        if(reservations == null || reservations.isEmpty()) {
+            throw new IllegalStateException("invalid reservations for the journal");
+        }
+        int count = reservations.size();
+        int[][] seats = new int[count][];
+        byte[][] customerIds = new byte[count][];
+        byte[][] customerNames = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            Reservation reservation = reservations.get(i);
+            if(reservation == null || reservation.getId() == 0) {
+                throw new IllegalStateException("invalid reservation for the journal");
+            }
+            seats[i] = reservation.getSeats();
+            validateSeats(seats[i]);
+            customerIds[i] = validateText(reservation.getCustomer().getId());
+            customerNames[i] = validateText(reservation.getCustomer().getName());
+        }
+        lock.lock();
+        try {
+            prepareAppend();
+            for (int i = 0; i < count; i++) {
+                Reservation reservation = reservations.get(i);
+                int start = encodeSeats(RESERVATION, reservation.getShowing().getId(), seats[i],
+                        RESERVATION_SIZE + customerIds[i].length + customerNames[i].length);
+                pending.putLong(reservation.getId()).putLong(reservation.getTicketFeeInCents()).putInt((int) reservation.getShowDate().toEpochDay())
+                        .putInt(customerIds[i].length).put(customerIds[i]).putInt(customerNames[i].length).put(customerNames[i]);
+                seal(start);
+                ++appendedSequence;
+            }
+            awaitDurable(appendedSequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static byte[] validateText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > MAX_TEXT_BYTES) {
+            throw new IllegalStateException("customer is too long for the journal: " + text);
+        }
+        return bytes;
+    }
+
+    private static void validateSeats(int[] seats) {
+        if(seats == null || seats.length == 0 || seats.length > MAX_SEATS_PER_RECORD) {
+            throw new IllegalStateException("invalid seats for the journal");
+        }
+    }
+
+    private void prepareAppend() {
+        if (replayRequired) {
+            throw new IllegalStateException("journal has to be replayed before appending");
+        }
+        failIfBroken();
+    }
+
+    //writes the record up to its seats, leaving room for the given number of bytes after them; returns its start
+    private int encodeSeats(byte type, long showingId, int[] seats, int extraSize) {
+        int length = PAYLOAD_HEADER_SIZE + seats.length * Integer.BYTES + extraSize;
+        int recordSize = Integer.BYTES + length + Integer.BYTES;
+        if (pending.remaining() < recordSize) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + recordSize));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        int start = pending.position();
+        pending.putInt(length).put(type).putLong(showingId).putInt(seats.length);
+        for (int seat : seats) {
+            pending.putInt(seat);
+        }
+        return start;
+    }
+
+    //appends the checksum of the record written since start
+    private void seal(int start) {
+        int length = pending.position() - start - Integer.BYTES;
+        writeChecksum.reset();
+        writeChecksum.update(payload(pending, start, length));
+        pending.putInt((int) writeChecksum.getValue());
+    }
+
+    private static ByteBuffer payload(ByteBuffer buffer, int recordStart, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(recordStart + Integer.BYTES + length).position(recordStart + Integer.BYTES);
+        return payload;
+    }
+
+    // called with the lock held; the lock is released while the leader writes and syncs
+    private void awaitDurable(long sequence) {
+        while (durableSequence < sequence) {
+            failIfBroken();
+            if (syncInProgress) {
+                synced.awaitUninterruptibly();
+                continue;
+            }
+            //become the leader and sync everything appended so far, including the records of the waiting appenders
+            syncInProgress = true;
+            ByteBuffer batch = pending;
+            pending = spare;
+            spare = batch;
+            long batchSequence = appendedSequence;
+            long batchStart = writePosition;
+            lock.unlock();
+            IOException error = null;
+            long written = 0;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    written += channel.write(batch, batchStart + written);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                batch.clear();
+                lock.lock();
+            }
+            syncInProgress = false;
+            if (error == null) {
+                writePosition = batchStart + written;
+                durableSequence = batchSequence;
+            } else {
+                failure = error;
+                try {
+                    //none of the batch was acknowledged, so none of it may come back on replay
+                    channel.truncate(batchStart);
+                } catch (IOException ignored) {
+                    //the journal is unusable anyway
+                }
+            }
+            synced.signalAll();
+        }
+    }
+
+    private void failIfBroken() {
+        if (failure != null) {
+            throw new UncheckedIOException("reservation journal failed", failure);
+        }
+    }
+
+    /**
+     * @return number of records appended since the journal was opened
+     */
+    public long getAppendedRecords() {
+        lock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            while (syncInProgress) {
+                synced.awaitUninterruptibly();
+            }
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationJournal{" +
+                "appendedRecords=" + getAppendedRecords() +
+                '}';
+    }
+}
@@ -0,0 +1,386 @@
+package com.jpmc.theater;
+
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reservation mode for on-sale spikes: requests are published into preallocated ring buffers and applied to the seats
+ * by a single writer thread per shard, instead of every buyer retrying compare-and-set on the same hot showing.
+ * <p>
+ * Requests are routed to a shard by showing id, so all requests for a showing are applied by one writer in the order
+ * they were published. A writer takes everything published so far as one batch: consecutive requests for the same
+ * showing share the lookup and the date check, and the whole batch is journaled with a single group commit before
+ * any of its futures completes. Buyers only compete for claiming a slot; when a ring is full they wait for the writer.
+ * <p>
+ * Futures are completed on the writer thread, so callbacks attached without an executor hold up the whole shard.
+ */
+public class ReservationPipeline implements Closeable {
+
+    public static final int DEFAULT_RING_SIZE = 1 << 12;
+
+    //set on the claim counter of a ring once it is closed; the remaining bits are the number of claimed slots
+    private static final long CLOSED = Long.MIN_VALUE;
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long FULL_RING_PARK_NANOS = 1_000;
+
+    private final LongFunction<Showing> showings;
+    private final ToLongFunction<Showing> ticketFees;
+    private final LocalDateProvider provider;
+    //null if reservations are kept in memory only
+    private final ReservationJournal journal;
+    private final ReservationRegistry registry;
+    private final Ring[] rings;
+
+    /**
+     * Starts one writer thread per shard.
+     * @param showings lookup of a showing by its id, returning null for unknown ids
+     * @param ticketFees quotes the fee of a single ticket for a showing, before its seats are taken
+     * @param provider
+     * @param journal journal to write the reservations to, or null
+     * @param registry registry the reservations are entered into before their futures complete
+     * @param writers number of shards and so of writer threads
+     * @param ringSize number of requests each shard can buffer, a power of two
+     */
+    ReservationPipeline(LongFunction<Showing> showings, ToLongFunction<Showing> ticketFees, LocalDateProvider provider,
+                        ReservationJournal journal, ReservationRegistry registry, int writers, int ringSize) {
+        if(showings == null || ticketFees == null || provider == null || registry == null
+                || writers < 1 || ringSize < 1 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalStateException("Reservation pipeline cannot be created");
+        }
+        this.showings = showings;
+        this.ticketFees = ticketFees;
+        this.provider = provider;
+        this.journal = journal;
+        this.registry = registry;
+        this.rings = new Ring[writers];
+        for (int i = 0; i < writers; i++) {
+            rings[i] = new Ring(ringSize);
+        }
+        for (int i = 0; i < writers; i++) {
+            rings[i].writer = Thread.ofPlatform().name("reservation-writer-" + i).daemon().start(rings[i]);
+        }
+    }
+
+    /**
+     * Method to publish a reservation request; it is applied by the writer of the showing's shard.
+     * @param customer
+     * @param showingId id of the showing, see {@link Showing#getId()}
+     * @param howManyTickets
+     * @return future of the reservation; fails with a {@link ReservationRejectedException} if it cannot be booked
+     */
+    public CompletableFuture<Reservation> submit(Customer customer, long showingId, int howManyTickets) {
+        CompletableFuture<Reservation> result = offer(customer, showingId, howManyTickets);
+        if(result == null) {
+            throw new IllegalStateException("reservation pipeline is closed");
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #submit(Customer, long, int)}, but returns null instead of failing once the pipeline is closed.
+     */
+    CompletableFuture<Reservation> offer(Customer customer, long showingId, int howManyTickets) {
+        if(customer == null || howManyTickets < 1) {
+            throw new IllegalStateException("Reservation cannot be created");
+        }
+        return ringOf(showingId).publish(customer, showingId, howManyTickets);
+    }
+
+    public boolean isClosed() {
+        return rings[0].claimed.get() < 0;
+    }
+
+    public int getWriterCount() {
+        return rings.length;
+    }
+
+    /**
+     * @return number of requests applied so far
+     */
+    public long getProcessed() {
+        long processed = 0;
+        for (Ring ring : rings) {
+            processed += ring.processed;
+        }
+        return processed;
+    }
+
+    /**
+     * @return number of batches the requests were applied in so far; the lower, the more was amortized
+     */
+    public long getBatches() {
+        long batches = 0;
+        for (Ring ring : rings) {
+            batches += ring.batches;
+        }
+        return batches;
+    }
+
+    /**
+     * Method to stop taking requests; returns once every request published before is applied.
+     */
+    @Override
+    public void close() {
+        for (Ring ring : rings) {
+            ring.claimed.getAndUpdate(claimed -> claimed | CLOSED);
+            LockSupport.unpark(ring.writer);
+        }
+        boolean interrupted = false;
+        for (Ring ring : rings) {
+            while (ring.writer.isAlive()) {
+                try {
+                    ring.writer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Ring ringOf(long showingId) {
+        //Fibonacci hashing, so the showings of consecutive screens and start times spread over the shards
+        long hash = showingId * 0x9E3779B97F4A7C15L;
+        return rings[(int) ((hash >>> 32) % rings.length)];
+    }
+
+    /**
+     * Ring buffer of one shard. Any thread can publish into it, only the writer thread reads from it.
+     * Request fields are plain arrays; a slot becomes visible to the writer by the volatile write of its sequence
+     * into {@code published}, and free again to the buyers by the volatile write of {@code consumed}.
+     */
+    private final class Ring implements Runnable {
+        private final int mask;
+        private final Customer[] customers;
+        private final long[] showingIds;
+        private final int[] tickets;
+        private final CompletableFuture<Reservation>[] results;
+        //filled by the writer while a batch is applied
+        private final Reservation[] reserved;
+        private final RuntimeException[] failures;
+        //whether the reservations of the batch being applied were journaled
+        private boolean journaled;
+        //sequence of the request in every slot, -1 until the first one is published
+        private final AtomicLongArray published;
+        //next sequence to claim, with CLOSED set once the ring is closed
+        private final AtomicLong claimed = new AtomicLong();
+        //every sequence below was applied and its slot can be reused
+        private volatile long consumed;
+        private volatile boolean sleeping;
+        //written by the writer thread only
+        private volatile long processed;
+        private volatile long batches;
+        private Thread writer;
+
+        @SuppressWarnings("unchecked")
+        private Ring(int size) {
+            this.mask = size - 1;
+            this.customers = new Customer[size];
+            this.showingIds = new long[size];
+            this.tickets = new int[size];
+            this.results = (CompletableFuture<Reservation>[]) new CompletableFuture<?>[size];
+            this.reserved = new Reservation[size];
+            this.failures = new RuntimeException[size];
+            this.published = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                published.set(i, -1);
+            }
+        }
+
+        private CompletableFuture<Reservation> publish(Customer customer, long showingId, int howManyTickets) {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence < 0) {
+                    return null;
+                }
+            } while (!claimed.compareAndSet(sequence, sequence + 1));
+            while (sequence - consumed > mask) {
+                //full, the writer is busy with the requests before this one
+                LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+            }
+            int slot = (int) sequence & mask;
+            CompletableFuture<Reservation> result = new CompletableFuture<>();
+            customers[slot] = customer;
+            showingIds[slot] = showingId;
+            tickets[slot] = howManyTickets;
+            results[slot] = result;
+            published.set(slot, sequence);
+            if (sleeping) {
+                LockSupport.unpark(writer);
+            }
+            return result;
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int idle = 0;
+            while (true) {
+                long end = next;
+                while (end - next <= mask && published.get((int) end & mask) == end) {
+                    end++;
+                }
+                if (end > next) {
+                    try {
+                        apply(next, end);
+                    } catch (Throwable e) {
+                        //the writer has to survive, otherwise every later request of the shard would wait forever
+                        abort(next, end, e);
+                    }
+                    next = end;
+                    consumed = end;
+                    idle = 0;
+                    continue;
+                }
+                long claims = claimed.get();
+                if (claims < 0 && (claims & ~CLOSED) == next) {
+                    return;
+                }
+                if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                //publishers check the flag after publishing, so either they see it or the check below sees their request
+                sleeping = true;
+                if (published.get((int) next & mask) != next && claimed.get() == claims) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+        }
+
+        private void apply(long from, long to) {
+            journaled = false;
+            LocalDate today = provider.currentDate();
+            int sold = 0;
+            long run = from;
+            while (run < to) {
+                long showingId = showingIds[(int) run & mask];
+                long runEnd = run + 1;
+                while (runEnd < to && showingIds[(int) runEnd & mask] == showingId) {
+                    runEnd++;
+                }
+                //one lookup and date check for the whole run of requests for the showing
+                Showing showing = showings.apply(showingId);
+                RuntimeException rejection = null;
+                if (showing == null) {
+                    rejection = new ReservationRejectedException(ReservationRejectedException.Reason.NO_SHOWING,
+                            "not able to find any showing for id: " + showingId);
+                } else if (showing.getStartTime().toLocalDate().isBefore(today)) {
+                    rejection = new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE,
+                            "cannot book tickets for showing in the past");
+                }
+                for (long sequence = run; sequence < runEnd; sequence++) {
+                    int slot = (int) sequence & mask;
+                    if (rejection != null) {
+                        failures[slot] = rejection;
+                        continue;
+                    }
+                    try {
+                        long ticketFeeInCents = ticketFees.applyAsLong(showing);
+                        int[] seats = showing.reserveSeats(tickets[slot]);
+                        reserved[slot] = new Reservation(customers[slot], showing.getStartTime().toLocalDate(), showing, seats,
+                                ticketFeeInCents);
+                        sold++;
+                    } catch (RuntimeException e) {
+                        failures[slot] = e;
+                    }
+                }
+                run = runEnd;
+            }
+            if (sold > 0) {
+                record(from, to, sold);
+            }
+            //counted before the futures complete, so a buyer who got the result sees the request counted
+            processed += to - from;
+            batches++;
+            for (long sequence = from; sequence < to; sequence++) {
+                complete((int) sequence & mask);
+            }
+        }
+
+        private void record(long from, long to, int sold) {
+            List<Reservation> reservations = new ArrayList<>(sold);
+            for (long sequence = from; sequence < to; sequence++) {
+                int slot = (int) sequence & mask;
+                if (reserved[slot] != null) {
+                    reservations.add(reserved[slot]);
+                }
+            }
+            try {
+                registry.record(reservations, journal);
+                journaled = journal != null;
+            } catch (RuntimeException e) {
+                //not durable, so none of the seats of the batch are sold; the registry gave them back
+                for (long sequence = from; sequence < to; sequence++) {
+                    int slot = (int) sequence & mask;
+                    if (reserved[slot] != null) {
+                        reserved[slot] = null;
+                        failures[slot] = e;
+                    }
+                }
+            }
+        }
+
+        //fails the requests of the batch which are not completed yet, giving back the seats they took
+        private void abort(long from, long to, Throwable failure) {
+            for (long sequence = from; sequence < to; sequence++) {
+                int slot = (int) sequence & mask;
+                Reservation reservation = reserved[slot];
+                if (reservation != null && registry.get(reservation.getId()) != reservation) {
+                    try {
+                        if (journaled) {
+                            journal.released(reservation);
+                        }
+                        reservation.getShowing().releaseSeats(reservation.getSeats());
+                    } catch (RuntimeException e) {
+                        failure.addSuppressed(e);
+                    }
+                }
+                if (results[slot] != null) {
+                    results[slot].completeExceptionally(failure);
+                }
+                clear(slot);
+            }
+        }
+
+        private void complete(int slot) {
+            CompletableFuture<Reservation> result = results[slot];
+            if (reserved[slot] != null) {
+                result.complete(registry.register(reserved[slot]));
+            } else {
+                result.completeExceptionally(failures[slot]);
+            }
+            clear(slot);
+        }
+
+        private void clear(int slot) {
+            //drop the references, the slot is reused
+            customers[slot] = null;
+            results[slot] = null;
+            reserved[slot] = null;
+            failures[slot] = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationPipeline{" +
+                "writers=" + rings.length +
+                ", processed=" + getProcessed() +
+                ", batches=" + getBatches() +
+                ", closed=" + isClosed() +
+                '}';
+    }
+}
@@ -0,0 +1,212 @@
+package com.jpmc.theater;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the active reservations of a theater, by reservation id and indexed by customer id and by showing.
+ * <p>
+ * Ids are handed out in sequence and the primary index is split into stripes by the low bits of the id, each a
+ * {@link LongHashIndex} under its own lock, so registering does not box ids and concurrent bookings rarely meet on
+ * the same lock. The secondary indexes keep the reservations of every customer and every showing in a list of
+ * their own, so "my bookings" costs O(k) in the customer's bookings however many reservations the theater holds.
+ * Cancelled reservations are removed from every index.
+ */
+public class ReservationRegistry {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final AtomicLong lastId = new AtomicLong();
+    private final LongHashIndex<Reservation>[] byId;
+    private final Map<String, Bookings> byCustomer = new ConcurrentHashMap<>();
+    private final Map<Long, Bookings> byShowing = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public ReservationRegistry() {
+        this.byId = (LongHashIndex<Reservation>[]) new LongHashIndex<?>[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            byId[i] = new LongHashIndex<>();
+        }
+    }
+
+    /**
+     * Method to give a new reservation its id without indexing it yet, e.g. so the id can be journaled first.
+     * @param reservation
+     * @return the reservation, with its id assigned
+     */
+    public Reservation identify(Reservation reservation) {
+        if(reservation == null || reservation.getId() != 0) {
+            throw new IllegalStateException("Reservation cannot be registered");
+        }
+        reservation.registered(lastId.incrementAndGet());
+        return reservation;
+    }
+
+    /**
+     * Method to sell new reservations whose seats are already taken: they are identified and journaled together, and
+     * if that fails the seats of all of them are given back. They are not indexed yet, see {@link #register(Reservation)}.
+     * @param reservations
+     * @param journal journal to write the reservations to, or null if they are kept in memory only
+     * @return the reservations, with their ids assigned
+     */
+    List<Reservation> record(List<Reservation> reservations, ReservationJournal journal) {
+        try {
+            //identified before they are journaled, so the journal knows which reservation to cancel
+            reservations.forEach(this::identify);
+            if(journal != null) {
+                journal.reservedAll(reservations);
+            }
+        } catch (RuntimeException e) {
+            //not durable, so the seats are not sold
+            for (Reservation reservation : reservations) {
+                reservation.getShowing().releaseSeats(reservation.getSeats());
+            }
+            throw e;
+        }
+        return reservations;
+    }
+
+    /**
+     * Same as {@link #record(List, ReservationJournal)} for a single reservation.
+     */
+    Reservation record(Reservation reservation, ReservationJournal journal) {
+        return record(List.of(reservation), journal).get(0);
+    }
+
+    /**
+     * Method to index a reservation, giving it a new id unless it has one, e.g. from {@link #identify(Reservation)}
+     * or from the journal after a restart.
+     * @param reservation
+     * @return the reservation, with its id assigned
+     */
+    public Reservation register(Reservation reservation) {
+        if(reservation == null) {
+            throw new IllegalStateException("Reservation cannot be registered");
+        }
+        long id = reservation.getId();
+        if (id == 0) {
+            id = identify(reservation).getId();
+        } else {
+            //ids handed out later must not clash with the ones restored
+            lastId.accumulateAndGet(id, Math::max);
+        }
+        LongHashIndex<Reservation> stripe = stripeOf(id);
+        synchronized (stripe) {
+            if (stripe.get(id) != null) {
+                throw new IllegalStateException("Reservation cannot be registered");
+            }
+            stripe.put(id, reservation);
+        }
+        //compute locks the key, so a list is never dropped by a concurrent remove while it is added to
+        byCustomer.compute(reservation.getCustomer().getId(), (customerId, bookings) -> add(bookings, reservation));
+        byShowing.compute(reservation.getShowing().getId(), (showingId, bookings) -> add(bookings, reservation));
+        return reservation;
+    }
+
+    /**
+     * Method to take a reservation out of every index, e.g. once it is cancelled.
+     * @param reservation
+     * @return false if the reservation was not registered
+     */
+    public boolean remove(Reservation reservation) {
+        long id = reservation.getId();
+        LongHashIndex<Reservation> stripe = stripeOf(id);
+        synchronized (stripe) {
+            if (stripe.get(id) != reservation) {
+                return false;
+            }
+            stripe.remove(id);
+        }
+        byCustomer.computeIfPresent(reservation.getCustomer().getId(), (customerId, bookings) -> remove(bookings, reservation));
+        byShowing.computeIfPresent(reservation.getShowing().getId(), (showingId, bookings) -> remove(bookings, reservation));
+        return true;
+    }
+
+    /**
+     * @return the reservation with the given id, or null if there is none or it was cancelled
+     */
+    public Reservation get(long reservationId) {
+        LongHashIndex<Reservation> stripe = stripeOf(reservationId);
+        synchronized (stripe) {
+            return stripe.get(reservationId);
+        }
+    }
+
+    /**
+     * @return reservations of the customer, in the order they were made
+     */
+    public List<Reservation> getByCustomer(String customerId) {
+        Bookings bookings = byCustomer.get(customerId);
+        return bookings == null ? List.of() : bookings.snapshot();
+    }
+
+    /**
+     * @return reservations for the showing, in the order they were made
+     */
+    public List<Reservation> getByShowing(long showingId) {
+        Bookings bookings = byShowing.get(showingId);
+        return bookings == null ? List.of() : bookings.snapshot();
+    }
+
+    /**
+     * @return number of active reservations
+     */
+    public int size() {
+        int size = 0;
+        for (LongHashIndex<Reservation> stripe : byId) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private LongHashIndex<Reservation> stripeOf(long reservationId) {
+        return byId[(int) reservationId & (STRIPES - 1)];
+    }
+
+    private static Bookings add(Bookings bookings, Reservation reservation) {
+        Bookings added = bookings == null ? new Bookings() : bookings;
+        added.add(reservation);
+        return added;
+    }
+
+    private static Bookings remove(Bookings bookings, Reservation reservation) {
+        bookings.remove(reservation);
+        return bookings.isEmpty() ? null : bookings;
+    }
+
+    /**
+     * Reservations of one customer or one showing; changed under the lock of its map entry, read under its own.
+     */
+    private static final class Bookings {
+        private final List<Reservation> reservations = new ArrayList<>(2);
+
+        private synchronized void add(Reservation reservation) {
+            reservations.add(reservation);
+        }
+
+        private synchronized void remove(Reservation reservation) {
+            reservations.remove(reservation);
+        }
+
+        private synchronized boolean isEmpty() {
+            return reservations.isEmpty();
+        }
+
+        private synchronized List<Reservation> snapshot() {
+            return new ArrayList<>(reservations);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationRegistry{" +
+                "reservations=" + size() +
+                '}';
+    }
+}
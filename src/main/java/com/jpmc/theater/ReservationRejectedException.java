@@ -0,0 +1,28 @@
+package com.jpmc.theater;
+
+/**
+ * Thrown when tickets cannot be booked for a reason the customer can act on.
+ * It is an {@link IllegalStateException} like every other validation error of the theater; the reason tells callers,
+ * e.g. the metrics, why the booking was rejected without parsing the message.
+ */
+public class ReservationRejectedException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        PAST_DATE,
+        NO_SHOWING,
+        SOLD_OUT
+    }
+
+    private final Reason reason;
+
+    public ReservationRejectedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
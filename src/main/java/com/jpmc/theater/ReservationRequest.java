@@ -0,0 +1,87 @@
+package com.jpmc.theater;
+
+import java.time.LocalDate;
+
+/**
+ * One entry of a batch reservation, see {@link Theater#reserveAll(java.util.List)}.
+ * The showing is either given by date and sequence of the day or by its id.
+ */
+public class ReservationRequest {
+
+    private Customer customer;
+    private LocalDate showDate;
+    private int sequence;
+    private long showingId;
+    private int howManyTickets;
+
+    /**
+     * @param customer
+     * @param showDate
+     * @param sequence sequence of the showing on the show date
+     * @param howManyTickets
+     */
+    public ReservationRequest(Customer customer, LocalDate showDate, int sequence, int howManyTickets) {
+        validate(customer, howManyTickets);
+        if(showDate == null) {
+            throw new IllegalStateException("Reservation request cannot be created");
+        }
+        this.customer = customer;
+        this.showDate = showDate;
+        this.sequence = sequence;
+        this.howManyTickets = howManyTickets;
+    }
+
+    /**
+     * @param customer
+     * @param showingId id of the showing, see {@link Showing#getId()}
+     * @param howManyTickets
+     */
+    public ReservationRequest(Customer customer, long showingId, int howManyTickets) {
+        validate(customer, howManyTickets);
+        this.customer = customer;
+        this.showingId = showingId;
+        this.howManyTickets = howManyTickets;
+    }
+
+    private void validate(Customer customer, int howManyTickets) {
+        if(customer == null || howManyTickets < 1) {
+            throw new IllegalStateException("Reservation request cannot be created");
+        }
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    /**
+     * @return show date, or null if the showing is given by its id
+     */
+    public LocalDate getShowDate() {
+        return showDate;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public long getShowingId() {
+        return showingId;
+    }
+
+    public boolean isByShowingId() {
+        return showDate == null;
+    }
+
+    public int getHowManyTickets() {
+        return howManyTickets;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationRequest{" +
+                "customer=" + customer +
+                (isByShowingId() ? ", showingId=" + showingId : ", showDate=" + showDate + ", sequence=" + sequence) +
+                ", howManyTickets=" + howManyTickets +
+                '}';
+    }
+}
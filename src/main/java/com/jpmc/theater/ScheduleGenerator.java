@@ -0,0 +1,347 @@
+package com.jpmc.theater;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Generates the schedule of a theater from its movies, screens, opening hours and the cleaning buffer needed
+ * between two showings of a screen.
+ * <p>
+ * Every (date, screen) is packed on its own: start times are on a 5 minute grid from the opening time, and a dynamic
+ * program over the grid picks the sequence of movies which keeps the screen showing movies for the most minutes,
+ * i.e. leaves the smallest total gap before closing. Two consecutive showings of a screen are never the same movie
+ * (unless there is only one), and among equally good plans the movies are preferred in an order rotated by screen
+ * and day, so screens and days do not all get the same lineup.
+ * <p>
+ * The packing only depends on the rotation, so it is computed once per rotation and reused for every (date, screen)
+ * with it. Building the showings of the (date, screen) pairs is independent work, done in parallel with fork-join,
+ * both into {@link Showing} objects and into a {@link ShowingStore}.
+ */
+public class ScheduleGenerator {
+
+    public static final int START_TIME_GRID_MINUTES = 5;
+    //(date, screen) plans computed by a single fork-join task
+    private static final int PLANS_PER_TASK = 8;
+    //choices of the packing besides a movie index
+    private static final int WAIT = -1;
+    private static final int STOP = -2;
+
+    private final Movie[] movies;
+    private final Screen[] screens;
+    private final LocalTime opening;
+    private final int openMinutes;
+    private final Duration cleaningBuffer;
+    private final DiscountRuleSet discountRules;
+    //running time, and running time plus cleaning buffer in grid units, per movie
+    private final int[] runningMinutes;
+    private final int[] slotUnits;
+    //packing per rotation, computed on first use
+    private final AtomicReferenceArray<int[]> packings;
+
+    /**
+     * @param movies movies to show
+     * @param screens screens to schedule, with unique numbers
+     * @param opening time of the first showing
+     * @param closing time by which the last showing has ended; midnight stands for the end of the day
+     * @param cleaningBuffer time between the end of a showing and the start of the next one on the same screen
+     */
+    public ScheduleGenerator(List<Movie> movies, List<Screen> screens, LocalTime opening, LocalTime closing, Duration cleaningBuffer) {
+        this(movies, screens, opening, closing, cleaningBuffer, DiscountRuleSet.DEFAULT);
+    }
+
+    /**
+     * @param movies movies to show
+     * @param screens screens to schedule, with unique numbers
+     * @param opening time of the first showing
+     * @param closing time by which the last showing has ended; midnight stands for the end of the day
+     * @param cleaningBuffer time between the end of a showing and the start of the next one on the same screen
+     * @param discountRules discounts offered for the generated showings
+     */
+    public ScheduleGenerator(List<Movie> movies, List<Screen> screens, LocalTime opening, LocalTime closing, Duration cleaningBuffer,
+                             DiscountRuleSet discountRules) {
+        validate(movies, screens, opening, closing, cleaningBuffer, discountRules);
+        this.movies = movies.toArray(new Movie[0]);
+        this.screens = screens.toArray(new Screen[0]);
+        this.opening = opening;
+        long closingMinute = closing.equals(LocalTime.MIDNIGHT) ? Duration.ofDays(1).toMinutes() : closing.toSecondOfDay() / 60;
+        this.openMinutes = (int) (closingMinute - opening.toSecondOfDay() / 60);
+        this.cleaningBuffer = cleaningBuffer;
+        this.discountRules = discountRules;
+        this.runningMinutes = new int[this.movies.length];
+        this.slotUnits = new int[this.movies.length];
+        for (int m = 0; m < this.movies.length; m++) {
+            runningMinutes[m] = (int) Math.min(Integer.MAX_VALUE, ceilMinutes(this.movies[m].getRunningTime()));
+            long minutes = ceilMinutes(this.movies[m].getRunningTime().plus(cleaningBuffer));
+            slotUnits[m] = (int) Math.min(Integer.MAX_VALUE, (minutes + START_TIME_GRID_MINUTES - 1) / START_TIME_GRID_MINUTES);
+        }
+        this.packings = new AtomicReferenceArray<>(this.movies.length);
+    }
+
+    private void validate(List<Movie> movies, List<Screen> screens, LocalTime opening, LocalTime closing, Duration cleaningBuffer,
+                          DiscountRuleSet discountRules) {
+        if(movies == null || movies.isEmpty() || movies.stream().anyMatch(Objects::isNull)
+                || screens == null || screens.isEmpty() || screens.stream().anyMatch(Objects::isNull)
+                || opening == null || closing == null || cleaningBuffer == null || cleaningBuffer.isNegative() || discountRules == null
+                || (!closing.equals(LocalTime.MIDNIGHT) && !closing.isAfter(opening))) {
+            throw new IllegalStateException("Schedule generator cannot be created");
+        }
+        Set<Integer> numbers = new HashSet<>();
+        for (Screen screen : screens) {
+            if(!numbers.add(screen.getNumber())) {
+                throw new IllegalStateException("Schedule generator cannot be created");
+            }
+        }
+    }
+
+    /**
+     * Method to generate the schedule of a date range, in the common fork-join pool.
+     * @param from first date
+     * @param to last date, inclusive
+     * @return showings by date, ordered by screen and start time
+     */
+    public Map<LocalDate, List<Showing>> generate(LocalDate from, LocalDate to) {
+        return generate(from, to, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Method to generate the schedule of a date range.
+     * @param from first date
+     * @param to last date, inclusive
+     * @param pool pool to generate in
+     * @return showings by date, ordered by screen and start time
+     */
+    public Map<LocalDate, List<Showing>> generate(LocalDate from, LocalDate to, ForkJoinPool pool) {
+        if(from == null || to == null || to.isBefore(from) || pool == null) {
+            throw new IllegalStateException("invalid date range: " + from + " - " + to);
+        }
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        List<Showing> showings = pool.invoke(new PlanTask(from, 0, days * screens.length));
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        for (int day = 0; day < days; day++) {
+            //a date keeps its (empty) entry even if no movie fits the opening hours
+            schedule.put(from.plusDays(day), new ArrayList<>());
+        }
+        for (Showing showing : showings) {
+            schedule.get(showing.getStartTime().toLocalDate()).add(showing);
+        }
+        //plans come back in (date, screen) order; screens are sorted in case they were not given in order
+        Comparator<Showing> order = Comparator.comparingInt((Showing showing) -> showing.getScreen().getNumber()).thenComparing(Showing::getStartTime);
+        schedule.values().forEach(showingsOfDay -> showingsOfDay.sort(order));
+        return schedule;
+    }
+
+    /**
+     * Method to generate the schedule of a date range into a columnar store, in the common fork-join pool.
+     * @param from first date
+     * @param to last date, inclusive
+     * @return store of the generated showings
+     */
+    public ShowingStore generateStore(LocalDate from, LocalDate to) {
+        return generateStore(from, to, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Method to generate the schedule of a date range into a columnar store, without creating a {@link Showing}
+     * per showing; meant for schedules too large to keep as objects. Like {@link #generate(LocalDate, LocalDate, ForkJoinPool)},
+     * the (date, screen) pairs are planned and priced in parallel, each task into a builder of its own, and the
+     * builders are appended in order.
+     * @param from first date
+     * @param to last date, inclusive
+     * @param pool pool to generate in
+     * @return store of the generated showings
+     */
+    public ShowingStore generateStore(LocalDate from, LocalDate to, ForkJoinPool pool) {
+        if(from == null || to == null || to.isBefore(from) || pool == null) {
+            throw new IllegalStateException("invalid date range: " + from + " - " + to);
+        }
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        List<ShowingStore.Builder> parts = pool.invoke(new StoreTask(from, 0, days * screens.length));
+        ShowingStore.Builder builder = parts.get(0);
+        for (int i = 1; i < parts.size(); i++) {
+            builder.addAll(parts.get(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Method to plan the showings of one screen on one date.
+     * @param showDate
+     * @param screen
+     * @param rotation offset of the preferred movie order, to break ties differently per screen and date
+     * @return showings ordered by start time
+     */
+    List<Showing> plan(LocalDate showDate, Screen screen, int rotation) {
+        int[] packing = packing(rotation % movies.length);
+        List<Showing> showings = new ArrayList<>(packing.length / 2);
+        LocalDateTime openingTime = LocalDateTime.of(showDate, opening);
+        for (int i = 0; i < packing.length; i += 2) {
+            LocalDateTime startTime = openingTime.plusMinutes((long) packing[i + 1] * START_TIME_GRID_MINUTES);
+            showings.add(new Showing(movies[packing[i]], screen, i / 2 + 1, startTime, discountRules));
+        }
+        return showings;
+    }
+
+    // the packing only depends on the rotation, so there are as many distinct ones as movies
+    private int[] packing(int rotation) {
+        int[] packing = packings.get(rotation);
+        if (packing == null) {
+            //racing threads compute the same packing
+            packing = pack(rotation);
+            packings.set(rotation, packing);
+        }
+        return packing;
+    }
+
+    // (movie index, start grid unit) pairs of the packing with the most screened minutes
+    private int[] pack(int rotation) {
+        int units = openMinutes / START_TIME_GRID_MINUTES;
+        int movieCount = movies.length;
+        int[] order = new int[movieCount];
+        for (int i = 0; i < movieCount; i++) {
+            order[i] = (i + rotation) % movieCount;
+        }
+        //best[t][last + 1]: most screened minutes from grid unit t on, when the previous showing was movie last (-1: none)
+        //choice: movie to start at t, WAIT to leave the unit empty, or STOP when nothing fits any more
+        int[][] best = new int[units + 2][movieCount + 1];
+        int[][] choice = new int[units + 1][movieCount + 1];
+        for (int t = units; t >= 0; t--) {
+            int startMinute = t * START_TIME_GRID_MINUTES;
+            for (int last = -1; last < movieCount; last++) {
+                int bestMinutes = best[t + 1][last + 1];
+                int bestChoice = bestMinutes > 0 ? WAIT : STOP;
+                for (int m : order) {
+                    if ((m == last && movieCount > 1) || startMinute + (long) runningMinutes[m] > openMinutes) {
+                        continue;
+                    }
+                    int next = (int) Math.min(units + 1, t + (long) slotUnits[m]);
+                    int minutes = runningMinutes[m] + best[next][m + 1];
+                    if (minutes > bestMinutes) {
+                        bestMinutes = minutes;
+                        bestChoice = m;
+                    }
+                }
+                best[t][last + 1] = bestMinutes;
+                choice[t][last + 1] = bestChoice;
+            }
+        }
+        List<Integer> packing = new ArrayList<>();
+        int t = 0;
+        int last = -1;
+        while (t <= units && choice[t][last + 1] != STOP) {
+            int chosen = choice[t][last + 1];
+            if (chosen == WAIT) {
+                t++;
+                continue;
+            }
+            packing.add(chosen);
+            packing.add(t);
+            t += slotUnits[chosen];
+            last = chosen;
+        }
+        return packing.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long ceilMinutes(Duration duration) {
+        return (duration.getSeconds() + 59) / 60;
+    }
+
+    // plans the (date, screen) pairs [first, first + count) in date-major order, splitting in halves
+    private final class PlanTask extends RecursiveTask<List<Showing>> {
+        private static final long serialVersionUID = 1L;
+        private final LocalDate from;
+        private final int first;
+        private final int count;
+
+        private PlanTask(LocalDate from, int first, int count) {
+            this.from = from;
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        protected List<Showing> compute() {
+            if (count > PLANS_PER_TASK) {
+                int half = count / 2;
+                PlanTask left = new PlanTask(from, first, half);
+                PlanTask right = new PlanTask(from, first + half, count - half);
+                right.fork();
+                List<Showing> showings = left.compute();
+                showings.addAll(right.join());
+                return showings;
+            }
+            List<Showing> showings = new ArrayList<>();
+            for (int i = first; i < first + count; i++) {
+                int day = i / screens.length;
+                int screenIndex = i % screens.length;
+                showings.addAll(plan(from.plusDays(day), screens[screenIndex], day + screenIndex));
+            }
+            return showings;
+        }
+    }
+
+    // adds the (date, screen) pairs [first, first + count) to builders in date-major order, splitting in halves
+    private final class StoreTask extends RecursiveTask<List<ShowingStore.Builder>> {
+        private static final long serialVersionUID = 1L;
+        private final LocalDate from;
+        private final int first;
+        private final int count;
+
+        private StoreTask(LocalDate from, int first, int count) {
+            this.from = from;
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        protected List<ShowingStore.Builder> compute() {
+            if (count > PLANS_PER_TASK) {
+                int half = count / 2;
+                StoreTask left = new StoreTask(from, first, half);
+                StoreTask right = new StoreTask(from, first + half, count - half);
+                right.fork();
+                List<ShowingStore.Builder> parts = left.compute();
+                parts.addAll(right.join());
+                return parts;
+            }
+            ShowingStore.Builder builder = new ShowingStore.Builder(discountRules);
+            for (int i = first; i < first + count; i++) {
+                int day = i / screens.length;
+                int screenIndex = i % screens.length;
+                LocalDateTime openingTime = LocalDateTime.of(from.plusDays(day), opening);
+                int[] packing = packing((day + screenIndex) % movies.length);
+                for (int p = 0; p < packing.length; p += 2) {
+                    builder.add(movies[packing[p]], screens[screenIndex], p / 2 + 1, openingTime.plusMinutes((long) packing[p + 1] * START_TIME_GRID_MINUTES));
+                }
+            }
+            List<ShowingStore.Builder> parts = new ArrayList<>();
+            parts.add(builder);
+            return parts;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleGenerator{" +
+                "movies=" + Arrays.toString(movies) +
+                ", screens=" + screens.length +
+                ", opening=" + opening +
+                ", openMinutes=" + openMinutes +
+                ", cleaningBuffer=" + cleaningBuffer +
+                '}';
+    }
+}
@@ -0,0 +1,251 @@
+package com.jpmc.theater;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted index of the theater schedule.
+ * Showings are kept ordered by (date, screen, start time), plus a second ordering by start time per movie,
+ * so that range queries like "showings of a screen on a date" or "next showings of a movie after 7pm"
+ * take O(log n) to find the first match instead of scanning every list.
+ * <p>
+ * Every screen also has a timeline of its showings ordered by start time, across dates. The showings of a screen
+ * never overlap, so the only ones a new showing can overlap with are its neighbours on the timeline: adding checks
+ * those two in O(log n), validating a whole imported schedule takes O(n log n), and "what's playing at 8pm" is a
+ * floor lookup per screen.
+ */
+public class ScheduleIndex {
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing((Key key) -> key.date)
+            .thenComparingInt(key -> key.screenNumber)
+            .thenComparing(key -> key.startTime);
+
+    private final NavigableMap<Key, Showing> byDateScreenTime = new ConcurrentSkipListMap<>(KEY_ORDER);
+    private final Map<Movie, NavigableMap<LocalDateTime, List<Showing>>> byMovie = new ConcurrentHashMap<>();
+    //showings per screen number by start time, across dates
+    private final Map<Integer, NavigableMap<LocalDateTime, Showing>> byScreen = new ConcurrentHashMap<>();
+
+    /**
+     * Method to add a showing to the index.
+     * @param showDate date of the schedule the showing belongs to
+     * @param showing
+     */
+    public void add(LocalDate showDate, Showing showing) {
+        if(showDate == null || showing == null) {
+            throw new IllegalStateException("Showing cannot be indexed");
+        }
+        int screenNumber = showing.getScreen().getNumber();
+        NavigableMap<LocalDateTime, Showing> timeline = byScreen.computeIfAbsent(screenNumber, number -> new ConcurrentSkipListMap<>());
+        //check and insert as one step, so two concurrent adds cannot both pass the check
+        synchronized (timeline) {
+            Showing overlapping = findOverlap(timeline, showing.getStartTime(), showing.getEndTime());
+            if (overlapping != null) {
+                throw new IllegalStateException("screen " + screenNumber + " already has a showing at " + showing.getStartTime()
+                        + ": " + overlapping.getMovie().getTitle() + " " + overlapping.getStartTime() + " - " + overlapping.getEndTime());
+            }
+            timeline.put(showing.getStartTime(), showing);
+            byDateScreenTime.put(new Key(showDate, screenNumber, showing.getStartTime()), showing);
+        }
+        byMovie.computeIfAbsent(showing.getMovie(), movie -> new ConcurrentSkipListMap<>())
+                .compute(showing.getStartTime(), (startTime, showings) -> {
+                    List<Showing> updated = showings == null ? new ArrayList<>(1) : new ArrayList<>(showings);
+                    updated.add(showing);
+                    return Collections.unmodifiableList(updated);
+                });
+    }
+
+    /**
+     * Method to remove a showing from the index.
+     * @param showDate date of the schedule the showing belongs to
+     * @param showing
+     * @return false if the showing was not in the index
+     */
+    public boolean remove(LocalDate showDate, Showing showing) {
+        int screenNumber = showing.getScreen().getNumber();
+        NavigableMap<LocalDateTime, Showing> timeline = byScreen.get(screenNumber);
+        if (timeline == null) {
+            return false;
+        }
+        synchronized (timeline) {
+            if (!timeline.remove(showing.getStartTime(), showing)) {
+                return false;
+            }
+            byDateScreenTime.remove(new Key(showDate, screenNumber, showing.getStartTime()));
+        }
+        byMovie.computeIfPresent(showing.getMovie(), (movie, showingsOfMovie) -> {
+            showingsOfMovie.computeIfPresent(showing.getStartTime(), (startTime, showings) -> {
+                List<Showing> updated = new ArrayList<>(showings);
+                updated.remove(showing);
+                return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+            });
+            return showingsOfMovie.isEmpty() ? null : showingsOfMovie;
+        });
+        return true;
+    }
+
+    /**
+     * @return all showings on the given date, ordered by screen and start time
+     */
+    public List<Showing> getShowings(LocalDate showDate) {
+        return new ArrayList<>(byDateScreenTime.subMap(Key.first(showDate, 0), true, Key.first(showDate.plusDays(1), 0), false).values());
+    }
+
+    /**
+     * @return showings of the given screen on the given date, ordered by start time
+     */
+    public List<Showing> getShowings(LocalDate showDate, Screen screen) {
+        int screenNumber = screen.getNumber();
+        return new ArrayList<>(byDateScreenTime.subMap(Key.first(showDate, screenNumber), true, Key.first(showDate, screenNumber + 1), false).values());
+    }
+
+    /**
+     * Method to find the showing of a screen on a date by its sequence.
+     * @return the showing or null if there is none
+     */
+    public Showing findShowing(LocalDate showDate, Screen screen, int sequence) {
+        int screenNumber = screen.getNumber();
+        for (Showing showing : byDateScreenTime.subMap(Key.first(showDate, screenNumber), true, Key.first(showDate, screenNumber + 1), false).values()) {
+            if (showing.getSequenceOfTheDay() == sequence) {
+                return showing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to find the showing of a screen which overlaps the given time range.
+     * @param screen
+     * @param startTime
+     * @param endTime
+     * @return an overlapping showing or null if the screen is free for the whole range
+     */
+    public Showing findOverlap(Screen screen, LocalDateTime startTime, LocalDateTime endTime) {
+        NavigableMap<LocalDateTime, Showing> timeline = byScreen.get(screen.getNumber());
+        return timeline == null ? null : findOverlap(timeline, startTime, endTime);
+    }
+
+    // a showing which starts at the same time always counts, even if one of them has no running time
+    private static Showing findOverlap(NavigableMap<LocalDateTime, Showing> timeline, LocalDateTime startTime, LocalDateTime endTime) {
+        Map.Entry<LocalDateTime, Showing> before = timeline.floorEntry(startTime);
+        if (before != null && (before.getKey().equals(startTime) || before.getValue().getEndTime().isAfter(startTime))) {
+            return before.getValue();
+        }
+        Map.Entry<LocalDateTime, Showing> after = timeline.higherEntry(startTime);
+        if (after != null && after.getKey().isBefore(endTime)) {
+            return after.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * @return showing playing on the screen at the given time, null if the screen is dark
+     */
+    public Showing playingAt(Screen screen, LocalDateTime time) {
+        NavigableMap<LocalDateTime, Showing> timeline = byScreen.get(screen.getNumber());
+        if (timeline == null) {
+            return null;
+        }
+        Map.Entry<LocalDateTime, Showing> latest = timeline.floorEntry(time);
+        return latest != null && latest.getValue().getEndTime().isAfter(time) ? latest.getValue() : null;
+    }
+
+    /**
+     * @return showings playing at the given time on any screen, ordered by screen
+     */
+    public List<Showing> playingAt(LocalDateTime time) {
+        List<Showing> result = new ArrayList<>();
+        for (NavigableMap<LocalDateTime, Showing> timeline : byScreen.values()) {
+            Map.Entry<LocalDateTime, Showing> latest = timeline.floorEntry(time);
+            if (latest != null && latest.getValue().getEndTime().isAfter(time)) {
+                result.add(latest.getValue());
+            }
+        }
+        result.sort(Comparator.comparingInt(showing -> showing.getScreen().getNumber()));
+        return result;
+    }
+
+    /**
+     * Method to find the next showings of a movie on any screen.
+     * @param movie
+     * @param after only showings starting strictly after this time are returned
+     * @param limit maximum number of showings to return
+     * @return showings ordered by start time
+     */
+    public List<Showing> nextShowings(Movie movie, LocalDateTime after, int limit) {
+        NavigableMap<LocalDateTime, List<Showing>> showingsOfMovie = byMovie.get(movie);
+        List<Showing> result = new ArrayList<>();
+        if (showingsOfMovie == null || limit < 1) {
+            return result;
+        }
+        for (List<Showing> showings : showingsOfMovie.tailMap(after, false).values()) {
+            for (Showing showing : showings) {
+                result.add(showing);
+                if (result.size() == limit) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all showings of the given movie, ordered by start time
+     */
+    public List<Showing> getShowings(Movie movie) {
+        NavigableMap<LocalDateTime, List<Showing>> showingsOfMovie = byMovie.get(movie);
+        List<Showing> result = new ArrayList<>();
+        if (showingsOfMovie != null) {
+            showingsOfMovie.values().forEach(result::addAll);
+        }
+        return result;
+    }
+
+    /**
+     * Method to file the showings of a movie under the movie they were repriced with, see {@link Showing#reprice(Movie)}.
+     * @param movie
+     * @param repriced
+     */
+    public void movieRepriced(Movie movie, Movie repriced) {
+        NavigableMap<LocalDateTime, List<Showing>> showingsOfMovie = byMovie.remove(movie);
+        if (showingsOfMovie == null) {
+            return;
+        }
+        byMovie.merge(repriced, showingsOfMovie, (existing, moved) -> {
+            moved.forEach((startTime, showings) -> existing.merge(startTime, showings, (first, second) -> {
+                List<Showing> merged = new ArrayList<>(first);
+                merged.addAll(second);
+                return Collections.unmodifiableList(merged);
+            }));
+            return existing;
+        });
+    }
+
+    public int size() {
+        return byDateScreenTime.size();
+    }
+
+    private static final class Key {
+        private final LocalDate date;
+        private final int screenNumber;
+        private final LocalDateTime startTime;
+
+        private Key(LocalDate date, int screenNumber, LocalDateTime startTime) {
+            this.date = date;
+            this.screenNumber = screenNumber;
+            this.startTime = startTime;
+        }
+
+        // lowest possible key for the date and screen
+        private static Key first(LocalDate date, int screenNumber) {
+            return new Key(date, screenNumber, LocalDateTime.MIN);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.jpmc.theater;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache of rendered schedules, keyed by (date, format) and held as pre-encoded bytes.
+ * Movie, start time and price parts never change for a showing, so they are encoded once and kept.
+ * Only the seats left change: every render compares the seat count each showing was rendered with against
+ * its current one, and re-encodes just that showing's seats count when it moved; the bytes before and after it are
+ * encoded once, for JSON by Jackson when the showing is first rendered.
+ * A repeat render with no seat changes is a sequence of byte array copies.
+ */
+public class ScheduleRenderCache {
+
+    private static final byte[] RULER = ("===================================================" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+
+    private final Function<LocalDate, List<Showing>> showingsOfDate;
+    private final Map<Key, RenderedSchedule> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param showingsOfDate source of the showings of a date, null if there are none
+     */
+    public ScheduleRenderCache(Function<LocalDate, List<Showing>> showingsOfDate) {
+        if(showingsOfDate == null) {
+            throw new IllegalStateException("Schedule render cache cannot be created");
+        }
+        this.showingsOfDate = showingsOfDate;
+    }
+
+    /**
+     * Method to write the rendered schedule of a date.
+     * @param format
+     * @param showDate
+     * @param out stream to write to; not flushed or closed
+     * @throws IOException
+     */
+    public void render(PrintSchedule format, LocalDate showDate, OutputStream out) throws IOException {
+        RenderedSchedule rendered = cache.computeIfAbsent(new Key(showDate, format), this::build);
+        out.write(rendered.header);
+        for (Segment segment : rendered.segments) {
+            segment.writeTo(out);
+        }
+        out.write(RULER);
+    }
+
+    /**
+     * Method to drop the rendered schedules of a date, e.g. when showings are added or removed.
+     * @param showDate
+     */
+    public void invalidate(LocalDate showDate) {
+        for (PrintSchedule format : PrintSchedule.values()) {
+            cache.remove(new Key(showDate, format));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private RenderedSchedule build(Key key) {
+        List<Showing> showings = showingsOfDate.apply(key.showDate);
+        if(showings == null) {
+            throw new IllegalStateException("not able to find any showing for showDate: " + key.showDate);
+        }
+        byte[] header = (key.showDate + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        Segment[] segments = new Segment[showings.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = key.format == PrintSchedule.TEXT ? new TextSegment(showings.get(i)) : new JsonSegment(showings.get(i));
+        }
+        return new RenderedSchedule(concat(header, RULER), segments);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static final class Key {
+        private final LocalDate showDate;
+        private final PrintSchedule format;
+
+        private Key(LocalDate showDate, PrintSchedule format) {
+            this.showDate = showDate;
+            this.format = format;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(showDate, key.showDate) && format == key.format;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(showDate, format);
+        }
+    }
+
+    private static final class RenderedSchedule {
+        private final byte[] header;
+        private final Segment[] segments;
+
+        private RenderedSchedule(byte[] header, Segment[] segments) {
+            this.header = header;
+            this.segments = segments;
+        }
+    }
+
+    // encoded bytes of the part of a showing which depends on the seats left, with the count they were encoded for
+    private static final class SeatsPart {
+        private final int seatsLeft;
+        private final byte[] bytes;
+
+        private SeatsPart(int seatsLeft, byte[] bytes) {
+            this.seatsLeft = seatsLeft;
+            this.bytes = bytes;
+        }
+    }
+
+    private abstract static class Segment {
+        protected final Showing showing;
+        //replaced as a whole, so concurrent renders always see a matching count and bytes
+        private volatile SeatsPart seatsPart;
+
+        private Segment(Showing showing) {
+            this.showing = showing;
+        }
+
+        protected byte[] currentSeatsPart() {
+            int seatsLeft = showing.getSeatsLeft();
+            SeatsPart part = seatsPart;
+            if (part == null || part.seatsLeft != seatsLeft) {
+                part = new SeatsPart(seatsLeft, encodeSeatsPart(seatsLeft));
+                seatsPart = part;
+            }
+            return part.bytes;
+        }
+
+        protected abstract byte[] encodeSeatsPart(int seatsLeft);
+
+        protected abstract void writeTo(OutputStream out) throws IOException;
+    }
+
+    // "<seq>: <start> <title> <duration> Seats left: <n> $<fee> (movieFee) --> $<fee> (discountedMovieFee)"
+    private static final class TextSegment extends Segment {
+        private final byte[] prefix;
+        private final byte[] suffix;
+
+        private TextSegment(Showing showing) {
+            super(showing);
+            this.prefix = (showing.getSequenceOfTheDay() + ": " + showing.getStartTime() + " " + showing.getMovie().getTitle() + " "
+                    + Utility.humanReadableFormat(showing.getMovie().getRunningTime()) + " Seats left: ").getBytes(StandardCharsets.UTF_8);
+            this.suffix = (" $" + showing.getMovieFee() + " (movieFee) --> $" + showing.getDiscountedMovieFee() + " (discountedMovieFee)"
+                    + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected byte[] encodeSeatsPart(int seatsLeft) {
+            return Integer.toString(seatsLeft).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        protected void writeTo(OutputStream out) throws IOException {
+            out.write(prefix);
+            out.write(currentSeatsPart());
+            out.write(suffix);
+        }
+    }
+
+    // the line is encoded by Jackson once and split around the value of "seatsLeft", which is the only part re-encoded
+    private static final class JsonSegment extends Segment {
+        private static final byte[] SEATS_LEFT_FIELD = "\"seatsLeft\":".getBytes(StandardCharsets.US_ASCII);
+
+        private final byte[] prefix;
+        private final byte[] suffix;
+
+        private JsonSegment(Showing showing) {
+            super(showing);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            try {
+                ScheduleWriter.shared().write(List.of(showing), ScheduleWriter.Layout.NDJSON, line);
+            } catch (IOException e) {
+                //writing to memory does not fail
+                throw new IllegalStateException("not able to render showing " + showing.getId(), e);
+            }
+            byte[] bytes = line.toByteArray();
+            int field = indexOf(bytes, SEATS_LEFT_FIELD);
+            if (field < 0) {
+                throw new IllegalStateException("not able to find the seats left of showing " + showing.getId());
+            }
+            int valueStart = field + SEATS_LEFT_FIELD.length;
+            int valueEnd = valueStart;
+            while (valueEnd < bytes.length && bytes[valueEnd] >= '0' && bytes[valueEnd] <= '9') {
+                valueEnd++;
+            }
+            this.prefix = Arrays.copyOfRange(bytes, 0, valueStart);
+            this.suffix = Arrays.copyOfRange(bytes, valueEnd, bytes.length);
+        }
+
+        private static int indexOf(byte[] bytes, byte[] pattern) {
+            for (int i = 0; i + pattern.length <= bytes.length; i++) {
+                if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        protected byte[] encodeSeatsPart(int seatsLeft) {
+            return Integer.toString(seatsLeft).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        protected void writeTo(OutputStream out) throws IOException {
+            out.write(prefix);
+            out.write(currentSeatsPart());
+            out.write(suffix);
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.jpmc.theater;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact binary snapshot of a schedule: movies, screens, showings with their prices and the seat bitmap of every showing.
+ * <p>
+ * The file is read through a {@link MappedByteBuffer}; nothing is parsed up front. Readers walk it through flyweight
+ * views ({@link MovieView}, {@link ShowingView}) which are moved over fixed-size records, so listing or inspecting
+ * a year of showings allocates a handful of objects instead of one per showing, movie and seat.
+ * {@link #showingsOf(LocalDate, DiscountRuleSet)} materializes the mutable {@link Showing}s of a date a {@link Theater}
+ * sells from, sharing one {@link Movie} and {@link Screen} instance per record and restoring sold seats from the bitmaps.
+ * <p>
+ * Layout, all big-endian: a header with the record counts, then the string pool, the movie, screen and showing
+ * tables, an (id, showing index) table sorted by id, and finally the seat bitmaps, one long per row.
+ * Showings are written date by date, so the showings of a date are found by a binary search.
+ * A snapshot file is limited to 2 GB, the size of a single mapping.
+ */
+public class ScheduleSnapshot {
+
+    private static final int MAGIC = 0x54534e31; //"TSN1"
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+    //title offset and length, running time seconds, ticket price cents, special code, padding
+    private static final int MOVIE_RECORD_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+    //number, rows, seats per row, name offset and length, padding
+    private static final int SCREEN_RECORD_SIZE = 6 * Integer.BYTES;
+    //id, start epoch second, discounted fee cents, first bitmap word, movie, screen, sequence, seats left, show date epoch day, padding
+    private static final int SHOWING_RECORD_SIZE = 4 * Long.BYTES + 6 * Integer.BYTES;
+    //showing id and index, padding
+    private static final int ID_RECORD_SIZE = Long.BYTES + 2 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int movieCount;
+    private final int screenCount;
+    private final int showingCount;
+    private final int moviesOffset;
+    private final int screensOffset;
+    private final int showingsOffset;
+    private final int idsOffset;
+    private final int bitmapsOffset;
+    private final int stringsOffset = HEADER_SIZE;
+    //built on first use and shared by all showings built from the snapshot
+    private Movie[] movies;
+    private Screen[] screens;
+
+    private ScheduleSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Schedule snapshot cannot be created");
+        }
+        int stringPoolSize = buffer.getInt(Integer.BYTES);
+        this.movieCount = buffer.getInt(2 * Integer.BYTES);
+        this.screenCount = buffer.getInt(3 * Integer.BYTES);
+        this.showingCount = buffer.getInt(4 * Integer.BYTES);
+        int bitmapWords = buffer.getInt(5 * Integer.BYTES);
+        this.moviesOffset = align(stringsOffset + stringPoolSize);
+        this.screensOffset = moviesOffset + movieCount * MOVIE_RECORD_SIZE;
+        this.showingsOffset = screensOffset + screenCount * SCREEN_RECORD_SIZE;
+        this.idsOffset = showingsOffset + showingCount * SHOWING_RECORD_SIZE;
+        this.bitmapsOffset = idsOffset + showingCount * ID_RECORD_SIZE;
+        if((long) bitmapsOffset + (long) bitmapWords * Long.BYTES != buffer.capacity()) {
+            throw new IllegalStateException("Schedule snapshot cannot be created");
+        }
+    }
+
+    /**
+     * Method to map a snapshot file; the file is read lazily by the operating system as records are accessed.
+     * @param file
+     * @return snapshot
+     * @throws IOException
+     */
+    public static ScheduleSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel is closed
+            return new ScheduleSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Method to write the schedule, including the seats sold so far, to a snapshot file.
+     * @param schedule
+     * @param file
+     * @throws IOException
+     */
+    public static void write(Map<LocalDate, List<Showing>> schedule, Path file) throws IOException {
+        Map<Movie, Integer> movies = new LinkedHashMap<>();
+        Map<Screen, Integer> screens = new LinkedHashMap<>();
+        Map<String, int[]> strings = new LinkedHashMap<>();
+        List<LocalDate> dates = new ArrayList<>();
+        List<Showing> showings = new ArrayList<>();
+        int stringPoolSize = 0;
+        long bitmapWords = 0;
+        for (Map.Entry<LocalDate, List<Showing>> day : new TreeMap<>(schedule).entrySet()) {
+            for (Showing showing : day.getValue()) {
+                movies.putIfAbsent(showing.getMovie(), movies.size());
+                screens.putIfAbsent(showing.getScreen(), screens.size());
+                for (String text : new String[]{showing.getMovie().getTitle(), showing.getScreen().getName()}) {
+                    if (!strings.containsKey(text)) {
+                        int length = text.getBytes(StandardCharsets.UTF_8).length;
+                        strings.put(text, new int[]{stringPoolSize, length});
+                        stringPoolSize += length;
+                    }
+                }
+                dates.add(day.getKey());
+                showings.add(showing);
+                bitmapWords += showing.getScreen().getRows();
+            }
+        }
+        long size = align(HEADER_SIZE + stringPoolSize) + (long) movies.size() * MOVIE_RECORD_SIZE + (long) screens.size() * SCREEN_RECORD_SIZE
+                + (long) showings.size() * (SHOWING_RECORD_SIZE + ID_RECORD_SIZE) + bitmapWords * Long.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("schedule is too large for a snapshot: " + size + " bytes");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putInt(stringPoolSize).putInt(movies.size()).putInt(screens.size()).putInt(showings.size()).putInt((int) bitmapWords);
+        for (String text : strings.keySet()) {
+            out.put(text.getBytes(StandardCharsets.UTF_8));
+        }
+        out.position(align(out.position()));
+        for (Movie movie : movies.keySet()) {
+            int[] title = strings.get(movie.getTitle());
+            out.putInt(title[0]).putInt(title[1]).putLong(movie.getRunningTime().getSeconds()).putLong(movie.getTicketPriceInCents())
+                    .putInt(movie.getSpecialCode()).putInt(0);
+        }
+        for (Screen screen : screens.keySet()) {
+            int[] name = strings.get(screen.getName());
+            out.putInt(screen.getNumber()).putInt(screen.getRows()).putInt(screen.getSeatsPerRow()).putInt(name[0]).putInt(name[1]).putInt(0);
+        }
+        //seats left are counted from the bitmap, so both agree even while tickets are being sold
+        long[] bitmaps = new long[(int) bitmapWords];
+        long[][] ids = new long[showings.size()][];
+        int bitmapWord = 0;
+        for (int i = 0; i < showings.size(); i++) {
+            Showing showing = showings.get(i);
+            Screen screen = showing.getScreen();
+            int takenSeats = 0;
+            for (int row = 0; row < screen.getRows(); row++) {
+                long taken = 0;
+                for (int position = 0; position < screen.getSeatsPerRow(); position++) {
+                    if (showing.isSeatTaken(row * screen.getSeatsPerRow() + position)) {
+                        taken |= 1L << position;
+                    }
+                }
+                bitmaps[bitmapWord + row] = taken;
+                takenSeats += Long.bitCount(taken);
+            }
+            out.putLong(showing.getId()).putLong(showing.getStartTime().toEpochSecond(ZoneOffset.UTC)).putLong(showing.getDiscountedMovieFeeInCents())
+                    .putLong(bitmapWord).putInt(movies.get(showing.getMovie())).putInt(screens.get(screen))
+                    .putInt(showing.getSequenceOfTheDay()).putInt(screen.getCapacity() - takenSeats).putInt((int) dates.get(i).toEpochDay()).putInt(0);
+            ids[i] = new long[]{showing.getId(), i};
+            bitmapWord += screen.getRows();
+        }
+        Arrays.sort(ids, (first, second) -> Long.compare(first[0], second[0]));
+        for (long[] id : ids) {
+            out.putLong(id[0]).putInt((int) id[1]).putInt(0);
+        }
+        out.asLongBuffer().put(bitmaps);
+        out.position(out.position() + bitmaps.length * Long.BYTES);
+        out.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+    }
+
+    public int getMovieCount() {
+        return movieCount;
+    }
+
+    public int getShowingCount() {
+        return showingCount;
+    }
+
+    /**
+     * @return a new movie view; views are not thread-safe, every thread should use its own
+     */
+    public MovieView movieView() {
+        return new MovieView();
+    }
+
+    /**
+     * @return a new showing view; views are not thread-safe, every thread should use its own
+     */
+    public ShowingView showingView() {
+        return new ShowingView();
+    }
+
+    /**
+     * Method to find a showing by its id, a binary search over the id table.
+     * @param showingId
+     * @return index of the showing or -1 if there is none
+     */
+    public int indexOf(long showingId) {
+        int low = 0;
+        int high = showingCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long id = buffer.getLong(idsOffset + middle * ID_RECORD_SIZE);
+            if (id < showingId) {
+                low = middle + 1;
+            } else if (id > showingId) {
+                high = middle - 1;
+            } else {
+                return buffer.getInt(idsOffset + middle * ID_RECORD_SIZE + Long.BYTES);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return dates which have showings, in ascending order
+     */
+    public List<LocalDate> getShowDates() {
+        List<LocalDate> showDates = new ArrayList<>();
+        ShowingView view = showingView();
+        //showings are written date by date, so the first showing of the next date is found by a binary search
+        for (int i = 0; i < showingCount; i = firstIndexOf(view.getShowDateEpochDay() + 1)) {
+            showDates.add(LocalDate.ofEpochDay(view.moveTo(i).getShowDateEpochDay()));
+        }
+        return showDates;
+    }
+
+    /**
+     * @param index index of a showing
+     * @return date the showing is listed under
+     */
+    public LocalDate showDateOf(int index) {
+        return LocalDate.ofEpochDay(showingView().moveTo(index).getShowDateEpochDay());
+    }
+
+    /**
+     * Method to build the showings of a single date, e.g. when a {@link Theater} first needs them.
+     * Showings keep the discounted fee stored in the snapshot; seats sold at the time of the snapshot are sold again.
+     * Every call builds new showings, which share one {@link Movie} and {@link Screen} instance per record.
+     * @param showDate
+     * @param discountRules discount rules the showings are repriced with when the price of their movie changes
+     * @return showings of the date in the order they were written, or null if the date has none
+     */
+    public List<Showing> showingsOf(LocalDate showDate, DiscountRuleSet discountRules) {
+        if(showDate == null || discountRules == null) {
+            throw new IllegalStateException("not able to build the showings of " + showDate);
+        }
+        int from = firstIndexOf(showDate.toEpochDay());
+        int to = firstIndexOf(showDate.toEpochDay() + 1);
+        if (from == to) {
+            return null;
+        }
+        List<Showing> showings = new ArrayList<>(to - from);
+        ShowingView view = showingView();
+        for (int i = from; i < to; i++) {
+            showings.add(showingAt(view.moveTo(i), discountRules));
+        }
+        return showings;
+    }
+
+    /**
+     * Method to build the whole schedule at once.
+     * @param discountRules see {@link #showingsOf(LocalDate, DiscountRuleSet)}
+     * @return schedule, by date, with showings in the order they were written
+     */
+    public Map<LocalDate, List<Showing>> toSchedule(DiscountRuleSet discountRules) {
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        for (LocalDate showDate : getShowDates()) {
+            schedule.put(showDate, showingsOf(showDate, discountRules));
+        }
+        return schedule;
+    }
+
+    private Showing showingAt(ShowingView view, DiscountRuleSet discountRules) {
+        Screen screen = screens()[view.getScreenIndex()];
+        Showing showing = new Showing(movies()[view.getMovieIndex()], screen, view.getSequenceOfTheDay(), view.getStartTime(),
+                discountRules, view.getDiscountedMovieFeeInCents());
+        //showings far ahead usually have nothing sold yet and skip the bitmap
+        if (view.getSeatsLeft() < screen.getCapacity()) {
+            showing.restoreSeats(view.takenSeats());
+        }
+        return showing;
+    }
+
+    //index of the first showing listed on the given day or later
+    private int firstIndexOf(long showDateEpochDay) {
+        int low = 0;
+        int high = showingCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getInt(showingsOffset + middle * SHOWING_RECORD_SIZE + 4 * Long.BYTES + 4 * Integer.BYTES) < showDateEpochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private synchronized Movie[] movies() {
+        if (movies == null) {
+            Movie[] movies = new Movie[movieCount];
+            MovieView movieView = movieView();
+            for (int i = 0; i < movieCount; i++) {
+                movieView.moveTo(i);
+                movies[i] = new Movie(movieView.getTitle(), movieView.getRunningTime(), Money.toDouble(movieView.getTicketPriceInCents()), movieView.getSpecialCode());
+            }
+            this.movies = movies;
+        }
+        return movies;
+    }
+
+    private synchronized Screen[] screens() {
+        if (screens == null) {
+            Screen[] screens = new Screen[screenCount];
+            for (int i = 0; i < screenCount; i++) {
+                int record = screensOffset + i * SCREEN_RECORD_SIZE;
+                screens[i] = new Screen(buffer.getInt(record), string(buffer.getInt(record + 3 * Integer.BYTES), buffer.getInt(record + 4 * Integer.BYTES)),
+                        buffer.getInt(record + Integer.BYTES), buffer.getInt(record + 2 * Integer.BYTES));
+            }
+            this.screens = screens;
+        }
+        return screens;
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringsOffset + offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int align(int offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    /**
+     * Flyweight over the movie records; {@link #moveTo(int)} points it to another movie without allocating.
+     */
+    public final class MovieView {
+        private int record;
+
+        private MovieView() {
+        }
+
+        public MovieView moveTo(int index) {
+            if(index < 0 || index >= movieCount) {
+                throw new IllegalStateException("invalid movie index: " + index);
+            }
+            record = moviesOffset + index * MOVIE_RECORD_SIZE;
+            return this;
+        }
+
+        public String getTitle() {
+            return string(buffer.getInt(record), buffer.getInt(record + Integer.BYTES));
+        }
+
+        public Duration getRunningTime() {
+            return Duration.ofSeconds(buffer.getLong(record + 2 * Integer.BYTES));
+        }
+
+        public long getTicketPriceInCents() {
+            return buffer.getLong(record + 2 * Integer.BYTES + Long.BYTES);
+        }
+
+        public int getSpecialCode() {
+            return buffer.getInt(record + 2 * Integer.BYTES + 2 * Long.BYTES);
+        }
+    }
+
+    /**
+     * Flyweight over the showing records; {@link #moveTo(int)} points it to another showing without allocating.
+     */
+    public final class ShowingView {
+        private int record;
+
+        private ShowingView() {
+        }
+
+        public ShowingView moveTo(int index) {
+            if(index < 0 || index >= showingCount) {
+                throw new IllegalStateException("invalid showing index: " + index);
+            }
+            record = showingsOffset + index * SHOWING_RECORD_SIZE;
+            return this;
+        }
+
+        public long getId() {
+            return buffer.getLong(record);
+        }
+
+        public long getStartEpochSecond() {
+            return buffer.getLong(record + Long.BYTES);
+        }
+
+        public LocalDateTime getStartTime() {
+            return LocalDateTime.ofEpochSecond(getStartEpochSecond(), 0, ZoneOffset.UTC);
+        }
+
+        public long getDiscountedMovieFeeInCents() {
+            return buffer.getLong(record + 2 * Long.BYTES);
+        }
+
+        public int getMovieIndex() {
+            return buffer.getInt(record + 4 * Long.BYTES);
+        }
+
+        public int getScreenIndex() {
+            return buffer.getInt(record + 4 * Long.BYTES + Integer.BYTES);
+        }
+
+        public int getScreenNumber() {
+            return buffer.getInt(screensOffset + getScreenIndex() * SCREEN_RECORD_SIZE);
+        }
+
+        public int getSequenceOfTheDay() {
+            return buffer.getInt(record + 4 * Long.BYTES + 2 * Integer.BYTES);
+        }
+
+        public int getSeatsLeft() {
+            return buffer.getInt(record + 4 * Long.BYTES + 3 * Integer.BYTES);
+        }
+
+        public long getShowDateEpochDay() {
+            return buffer.getInt(record + 4 * Long.BYTES + 4 * Integer.BYTES);
+        }
+
+        public boolean isSeatTaken(int seat) {
+            int screen = screensOffset + getScreenIndex() * SCREEN_RECORD_SIZE;
+            int rows = buffer.getInt(screen + Integer.BYTES);
+            int seatsPerRow = buffer.getInt(screen + 2 * Integer.BYTES);
+            if(seat < 0 || seat >= rows * seatsPerRow) {
+                throw new IllegalStateException("invalid seat: " + seat);
+            }
+            long word = buffer.getLong(bitmapsOffset + (int) (buffer.getLong(record + 3 * Long.BYTES) + seat / seatsPerRow) * Long.BYTES);
+            return (word & (1L << (seat % seatsPerRow))) != 0;
+        }
+
+        private int[] takenSeats() {
+            int screen = screensOffset + getScreenIndex() * SCREEN_RECORD_SIZE;
+            int rows = buffer.getInt(screen + Integer.BYTES);
+            int seatsPerRow = buffer.getInt(screen + 2 * Integer.BYTES);
+            int firstWord = bitmapsOffset + (int) buffer.getLong(record + 3 * Long.BYTES) * Long.BYTES;
+            int[] seats = new int[rows * seatsPerRow - getSeatsLeft()];
+            int count = 0;
+            //the writer counts seats left from the bitmap, so the array fits exactly
+            for (int row = 0; row < rows; row++) {
+                for (long word = buffer.getLong(firstWord + row * Long.BYTES); word != 0; word &= word - 1) {
+                    seats[count++] = row * seatsPerRow + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return seats;
+        }
+    }
+}
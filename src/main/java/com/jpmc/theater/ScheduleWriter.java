@@ -0,0 +1,95 @@
+package com.jpmc.theater;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Streams showings as JSON straight to an output stream or writer.
+ * The mapper is configured once and shared; it is thread-safe, so one writer serves any number of concurrent exports.
+ * Showings are written one by one through a single generator, without building intermediate Strings.
+ */
+public class ScheduleWriter {
+
+    /**
+     * How showings are laid out in the output.
+     */
+    public enum Layout {
+        //one JSON array holding all showings
+        ARRAY,
+        //newline delimited JSON, one showing per line
+        NDJSON
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+            //flush once per export instead of once per showing
+            .configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false)
+            //the caller owns the stream, e.g. System.out, and decides when to close it
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    private static final ObjectWriter SHOWING_WRITER = MAPPER.writerFor(Showing.class);
+    private static final SerializedString NEW_LINE = new SerializedString("\n");
+
+    private static final ScheduleWriter INSTANCE = new ScheduleWriter();
+
+    /**
+     * @return shared instance; the writer holds no per-export state
+     */
+    public static ScheduleWriter shared() {
+        return INSTANCE;
+    }
+
+    /**
+     * Method to write showings to an output stream, encoded as UTF-8.
+     * @param showings
+     * @param layout
+     * @param out stream to write to; flushed but not closed
+     * @throws IOException
+     */
+    public void write(List<Showing> showings, Layout layout, OutputStream out) throws IOException {
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+            write(showings, layout, generator);
+        }
+    }
+
+    /**
+     * Method to write showings to a writer.
+     * @param showings
+     * @param layout
+     * @param out writer to write to; flushed but not closed
+     * @throws IOException
+     */
+    public void write(List<Showing> showings, Layout layout, Writer out) throws IOException {
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+            write(showings, layout, generator);
+        }
+    }
+
+    private void write(List<Showing> showings, Layout layout, JsonGenerator generator) throws IOException {
+        if (layout == Layout.ARRAY) {
+            generator.writeStartArray();
+            for (Showing showing : showings) {
+                SHOWING_WRITER.writeValue(generator, showing);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.setRootValueSeparator(NEW_LINE);
+            for (Showing showing : showings) {
+                SHOWING_WRITER.writeValue(generator, showing);
+            }
+            if (!showings.isEmpty()) {
+                generator.writeRaw('\n');
+            }
+        }
+        generator.flush();
+    }
+}
@@ -0,0 +1,83 @@
+package com.jpmc.theater;
+
+import java.util.Objects;
+
+/**
+ * A screen (auditorium) of the theater with its own seating layout.
+ */
+public class Screen {
+
+    //screen numbers are part of the showing id, see Showing#getId()
+    public static final int MAX_SCREEN_NUMBER = (1 << 20) - 1;
+
+    private int number;
+    private String name;
+    private int rows;
+    private int seatsPerRow;
+
+    /**
+     * @param number screen number, unique within the theater
+     * @param name screen name to display
+     * @param rows number of seat rows
+     * @param seatsPerRow number of seats in every row
+     */
+    public Screen(int number, String name, int rows, int seatsPerRow) {
+        validate(number, name, rows, seatsPerRow);
+        this.number = number;
+        this.name = name;
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+    }
+
+    private void validate(int number, String name, int rows, int seatsPerRow) {
+        if(number < 1 || number > MAX_SCREEN_NUMBER || name == null || name.trim().isEmpty() || rows < 1 || seatsPerRow < 1 || seatsPerRow > SeatMap.MAX_SEATS_PER_ROW) {
+            throw new IllegalStateException("Screen cannot be created");
+        }
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int getCapacity() {
+        return rows * seatsPerRow;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Screen screen = (Screen) o;
+        return number == screen.number
+                && rows == screen.rows
+                && seatsPerRow == screen.seatsPerRow
+                && Objects.equals(name, screen.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(number, name, rows, seatsPerRow);
+    }
+
+    @Override
+    public String toString() {
+        return "Screen{" +
+                "number=" + number +
+                ", name='" + name + '\'' +
+                ", rows=" + rows +
+                ", seatsPerRow=" + seatsPerRow +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+package com.jpmc.theater;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Seats of a showing held for a customer during checkout.
+ * A hold ends exactly once: it is confirmed into a reservation, released by the customer or expires.
+ * The transitions are a compare-and-set on the state, so a confirmation racing with the expiry has a single winner.
+ */
+public class SeatHold {
+
+    public enum State {
+        HELD,
+        CONFIRMED,
+        RELEASED,
+        EXPIRED
+    }
+
+    private long id;
+    private Customer customer;
+    private LocalDate showDate;
+    private Showing showing;
+    private int[] seats;
+    private long expiresAtMillis;
+    //fee of a single ticket as quoted when the seats were held
+    private long ticketFeeInCents;
+    private AtomicReference<State> state = new AtomicReference<>(State.HELD);
+
+    public SeatHold(long id, Customer customer, LocalDate showDate, Showing showing, int[] seats, long expiresAtMillis) {
+        this(id, customer, showDate, showing, seats, expiresAtMillis, showing == null ? 0 : showing.getDiscountedMovieFeeInCents());
+    }
+
+    /**
+     * @param ticketFeeInCents fee of a single ticket the customer was quoted, kept when the hold is confirmed
+     */
+    public SeatHold(long id, Customer customer, LocalDate showDate, Showing showing, int[] seats, long expiresAtMillis, long ticketFeeInCents) {
+        validate(customer, showDate, showing, seats);
+        this.id = id;
+        this.customer = customer;
+        this.showDate = showDate;
+        this.showing = showing;
+        this.seats = seats.clone();
+        this.expiresAtMillis = expiresAtMillis;
+        this.ticketFeeInCents = ticketFeeInCents;
+    }
+
+    private void validate(Customer customer, LocalDate showDate, Showing showing, int[] seats) {
+        if(customer == null || showDate == null || showing == null || seats == null || seats.length == 0) {
+            throw new IllegalStateException("Seat hold cannot be created");
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public LocalDate getShowDate() {
+        return showDate;
+    }
+
+    public Showing getShowing() {
+        return showing;
+    }
+
+    public int[] getSeats() {
+        return seats.clone();
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public long getTicketFeeInCents() {
+        return ticketFeeInCents;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    boolean transition(State from, State to) {
+        return state.compareAndSet(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return "SeatHold{" +
+                "id=" + id +
+                ", customer=" + customer +
+                ", showDate=" + showDate +
+                ", showingId=" + showing.getId() +
+                ", seats=" + Arrays.toString(seats) +
+                ", expiresAtMillis=" + expiresAtMillis +
+                ", state=" + state.get() +
+                '}';
+    }
+}
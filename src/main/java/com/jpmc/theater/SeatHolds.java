@@ -0,0 +1,143 @@
+package com.jpmc.theater;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hold, confirm and release lifecycle of seats during checkout.
+ * Held seats are taken out of the showing's inventory right away and go back automatically when the hold expires.
+ * Expiry runs on a {@link TimingWheel}, so adding and expiring a hold is O(1) however many holds are open;
+ * {@link #expire()} has to be called periodically, e.g. from a scheduled executor, to move the wheel.
+ */
+public class SeatHolds {
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    private final Clock clock;
+    private final TimingWheel<SeatHold> wheel;
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger activeHolds = new AtomicInteger();
+
+    public SeatHolds(Clock clock) {
+        this(clock, DEFAULT_TICK);
+    }
+
+    /**
+     * @param clock source of the current time
+     * @param tick resolution of the expiry; holds expire up to one tick late
+     */
+    public SeatHolds(Clock clock, Duration tick) {
+        if(clock == null || tick == null || tick.toMillis() < 1) {
+            throw new IllegalStateException("Seat holds cannot be created");
+        }
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(tick.toMillis(), clock.millis());
+    }
+
+    /**
+     * Method to hold seats of a showing for a while.
+     * @param customer
+     * @param showDate
+     * @param showing
+     * @param howManyTickets
+     * @param timeToLive how long the seats are held before they go back to the showing
+     * @return hold
+     */
+    public SeatHold hold(Customer customer, LocalDate showDate, Showing showing, int howManyTickets, Duration timeToLive) {
+        return hold(customer, showDate, showing, howManyTickets, timeToLive, showing.getDiscountedMovieFeeInCents());
+    }
+
+    /**
+     * Same as {@link #hold(Customer, LocalDate, Showing, int, Duration)} at a quoted ticket fee.
+     * @param ticketFeeInCents fee of a single ticket, kept when the hold is confirmed
+     */
+    public SeatHold hold(Customer customer, LocalDate showDate, Showing showing, int howManyTickets, Duration timeToLive, long ticketFeeInCents) {
+        if(timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalStateException("invalid hold time: " + timeToLive);
+        }
+        int[] seats = showing.reserveSeats(howManyTickets);
+        SeatHold hold = new SeatHold(nextId.incrementAndGet(), customer, showDate, showing, seats, clock.millis() + timeToLive.toMillis(), ticketFeeInCents);
+        activeHolds.incrementAndGet();
+        wheel.schedule(hold, hold.getExpiresAtMillis());
+        return hold;
+    }
+
+    /**
+     * Method to turn a hold into sold seats; the seats stay taken and the hold can no longer expire.
+     * @param hold
+     */
+    public void confirm(SeatHold hold) {
+        if(clock.millis() >= hold.getExpiresAtMillis()) {
+            //the wheel may not have moved yet, but the hold is over
+            expire(hold);
+        }
+        if(!hold.transition(SeatHold.State.HELD, SeatHold.State.CONFIRMED)) {
+            throw new IllegalStateException("hold " + hold.getId() + " is " + hold.getState());
+        }
+        activeHolds.decrementAndGet();
+    }
+
+    /**
+     * Method to give held seats back to the showing, e.g. when the customer abandons the checkout.
+     * @param hold
+     */
+    public void release(SeatHold hold) {
+        if(!hold.transition(SeatHold.State.HELD, SeatHold.State.RELEASED)) {
+            throw new IllegalStateException("hold " + hold.getId() + " is " + hold.getState());
+        }
+        activeHolds.decrementAndGet();
+        hold.getShowing().releaseSeats(hold.getSeats());
+    }
+
+    /**
+     * Method to expire the holds whose time is up.
+     * @return number of holds which expired
+     */
+    public int expire() {
+        return expire(hold -> { });
+    }
+
+    /**
+     * Method to expire the holds whose time is up.
+     * @param expired called for every hold which expired, after its seats went back to the showing
+     * @return number of holds which expired
+     */
+    public int expire(Consumer<SeatHold> expired) {
+        int[] count = new int[1];
+        wheel.advance(clock.millis(), hold -> {
+            if (expire(hold)) {
+                count[0]++;
+                expired.accept(hold);
+            }
+        });
+        return count[0];
+    }
+
+    private boolean expire(SeatHold hold) {
+        //confirmed and released holds stay in the wheel until their deadline and are skipped here
+        if(!hold.transition(SeatHold.State.HELD, SeatHold.State.EXPIRED)) {
+            return false;
+        }
+        activeHolds.decrementAndGet();
+        hold.getShowing().releaseSeats(hold.getSeats());
+        return true;
+    }
+
+    /**
+     * @return number of holds which are neither confirmed, released nor expired
+     */
+    public int getActiveHolds() {
+        return activeHolds.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SeatHolds{" +
+                "activeHolds=" + activeHolds.get() +
+                '}';
+    }
+}
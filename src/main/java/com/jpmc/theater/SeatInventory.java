@@ -0,0 +1,86 @@
+package com.jpmc.theater;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free seat counter for a single showing.
+ * All updates go through compare-and-set, so concurrent buyers can never take more seats than the capacity
+ * and no thread ever blocks another one.
+ */
+public class SeatInventory {
+
+    private final int capacity;
+    private final AtomicInteger seatsLeft;
+
+    /**
+     * @param capacity total number of seats which can be sold
+     */
+    public SeatInventory(int capacity) {
+        if(capacity < 0) {
+            throw new IllegalStateException("Seat inventory cannot be created");
+        }
+        this.capacity = capacity;
+        this.seatsLeft = new AtomicInteger(capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of seats left at the time of the call; a single atomic read, so it is always a value
+     * which the inventory actually went through.
+     */
+    public int getSeatsLeft() {
+        return seatsLeft.get();
+    }
+
+    /**
+     * Method to take seats out of the inventory if enough of them are left.
+     * @param noOfSeats
+     * @return true if the seats were taken, false if there were not enough seats left
+     */
+    public boolean tryReserve(int noOfSeats) {
+        validate(noOfSeats);
+        while (true) {
+            int current = seatsLeft.get();
+            if (current < noOfSeats) {
+                return false;
+            }
+            if (seatsLeft.compareAndSet(current, current - noOfSeats)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Method to put seats back into the inventory, e.g. for a refund.
+     * @param noOfSeats
+     */
+    public void release(int noOfSeats) {
+        validate(noOfSeats);
+        while (true) {
+            int current = seatsLeft.get();
+            if (current + noOfSeats > capacity) {
+                throw new IllegalStateException("cannot release more seats than were reserved");
+            }
+            if (seatsLeft.compareAndSet(current, current + noOfSeats)) {
+                return;
+            }
+        }
+    }
+
+    private void validate(int noOfSeats) {
+        if(noOfSeats < 1) {
+            throw new IllegalStateException("invalid number of seats: " + noOfSeats);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SeatInventory{" +
+                "capacity=" + capacity +
+                ", seatsLeft=" + seatsLeft.get() +
+                '}';
+    }
+}
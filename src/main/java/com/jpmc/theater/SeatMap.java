@@ -0,0 +1,258 @@
+package com.jpmc.theater;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-seat map of a showing stored as a bitmap; one 64 bit word per row, where a set bit means the seat is taken.
+ * Seats are numbered row by row starting from 0, i.e. seat = row * seatsPerRow + position in the row.
+ * Every update is a compare-and-set on a single row word, so allocations never block each other.
+ */
+public class SeatMap {
+
+    public static final int MAX_SEATS_PER_ROW = Long.SIZE;
+
+    private final int rows;
+    private final int seatsPerRow;
+    private final long rowMask;
+    //rows ordered by preference, middle of the auditorium first
+    private final int[] rowOrder;
+    private final AtomicLongArray takenSeats;
+
+    /**
+     * @param rows number of rows
+     * @param seatsPerRow number of seats in every row, at most 64
+     */
+    public SeatMap(int rows, int seatsPerRow) {
+        validate(rows, seatsPerRow);
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.rowMask = lowBits(seatsPerRow);
+        this.rowOrder = middleOutOrder(rows);
+        this.takenSeats = new AtomicLongArray(rows);
+    }
+
+    private void validate(int rows, int seatsPerRow) {
+        if(rows < 1 || seatsPerRow < 1 || seatsPerRow > MAX_SEATS_PER_ROW) {
+            throw new IllegalStateException("Seat map cannot be created");
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int getCapacity() {
+        return rows * seatsPerRow;
+    }
+
+    public boolean isTaken(int seat) {
+        validateSeat(seat);
+        return (takenSeats.get(seat / seatsPerRow) & (1L << (seat % seatsPerRow))) != 0;
+    }
+
+    /**
+     * @return number of free seats; rows are read one by one, so under concurrent updates this is only an estimate.
+     */
+    public int getFreeSeats() {
+        int free = 0;
+        for (int row = 0; row < rows; row++) {
+            free += seatsPerRow - Long.bitCount(takenSeats.get(row));
+        }
+        return free;
+    }
+
+    /**
+     * Method to find and take the best block of adjacent seats in a single row.
+     * Rows are tried from the middle of the auditorium outwards and within a row the block closest to the centre wins.
+     * @param noOfSeats
+     * @return taken seat numbers, or null if there is no row with enough adjacent free seats
+     */
+    public int[] allocateContiguous(int noOfSeats) {
+        validateNoOfSeats(noOfSeats);
+        if (noOfSeats > seatsPerRow) {
+            return null;
+        }
+        long block = lowBits(noOfSeats);
+        int idealStart = (seatsPerRow - noOfSeats) / 2;
+        for (int row : rowOrder) {
+            while (true) {
+                long taken = takenSeats.get(row);
+                int start = bestStart(blockStarts(~taken & rowMask, noOfSeats), idealStart);
+                if (start < 0) {
+                    break;
+                }
+                if (takenSeats.compareAndSet(row, taken, taken | (block << start))) {
+                    return seatNumbers(row, start, noOfSeats);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to take seats for a group, adjacent ones if possible and otherwise the best single seats left.
+     * The caller is expected to have already reserved the number of seats (see {@link SeatInventory}),
+     * which guarantees that enough free seats exist; the rows are scanned again until all of them are taken,
+     * as seats may be freed in a row the scan has already passed while others are taken ahead of it.
+     * @param noOfSeats
+     * @return taken seat numbers
+     */
+    public int[] allocate(int noOfSeats) {
+        int[] seats = allocateContiguous(noOfSeats);
+        if (seats != null) {
+            return seats;
+        }
+        seats = new int[noOfSeats];
+        int allocated = 0;
+        while (true) {
+            int before = allocated;
+            for (int row : rowOrder) {
+                while (allocated < noOfSeats) {
+                    long taken = takenSeats.get(row);
+                    long free = ~taken & rowMask;
+                    if (free == 0) {
+                        break;
+                    }
+                    //take as many of the lowest free seats of this row as still needed
+                    long toTake = 0;
+                    for (int i = allocated; i < noOfSeats && free != 0; i++) {
+                        long lowest = free & -free;
+                        toTake |= lowest;
+                        free ^= lowest;
+                    }
+                    if (takenSeats.compareAndSet(row, taken, taken | toTake)) {
+                        while (toTake != 0) {
+                            seats[allocated++] = row * seatsPerRow + Long.numberOfTrailingZeros(toTake);
+                            toTake &= toTake - 1;
+                        }
+                    }
+                }
+                if (allocated == noOfSeats) {
+                    return seats;
+                }
+            }
+            //a pass without progress only fails if the seats really are not there, i.e. none were reserved for it
+            if (allocated == before && getFreeSeats() < noOfSeats - allocated) {
+                release(seats, allocated);
+                throw new IllegalStateException("not enough seats left in the seat map");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Method to mark the given seats as taken, e.g. when rebuilding the state of a showing.
+     * @param seats
+     */
+    public void take(int[] seats) {
+        for (int seat : seats) {
+            validateSeat(seat);
+        }
+        for (int i = 0; i < seats.length; i++) {
+            int seat = seats[i];
+            int row = seat / seatsPerRow;
+            long bit = 1L << (seat % seatsPerRow);
+            long previous = takenSeats.getAndAccumulate(row, bit, (current, mask) -> current | mask);
+            if ((previous & bit) != 0) {
+                //all or nothing, give back the seats taken so far
+                release(seats, i);
+                throw new IllegalStateException("seat " + seat + " is already taken");
+            }
+        }
+    }
+
+    /**
+     * Method to free the given seats.
+     * @param seats
+     */
+    public void release(int[] seats) {
+        release(seats, seats.length);
+    }
+
+    private void release(int[] seats, int count) {
+        for (int i = 0; i < count; i++) {
+            int seat = seats[i];
+            validateSeat(seat);
+            int row = seat / seatsPerRow;
+            long bit = 1L << (seat % seatsPerRow);
+            long previous = takenSeats.getAndAccumulate(row, ~bit, (current, mask) -> current & mask);
+            if ((previous & bit) == 0) {
+                throw new IllegalStateException("seat " + seat + " is not taken");
+            }
+        }
+    }
+
+    // bit i of the result is set if seats i .. i + length - 1 are all free; doubles the run length on every step
+    private static long blockStarts(long free, int length) {
+        long starts = free;
+        int covered = 1;
+        while (covered < length) {
+            int shift = Math.min(covered, length - covered);
+            starts &= starts >>> shift;
+            covered += shift;
+        }
+        return starts;
+    }
+
+    // candidate start closest to the ideal one, or -1 if there is none
+    private static int bestStart(long starts, int idealStart) {
+        if (starts == 0) {
+            return -1;
+        }
+        long atOrAfter = starts & (-1L << idealStart);
+        long before = starts & lowBits(idealStart);
+        int after = atOrAfter == 0 ? -1 : Long.numberOfTrailingZeros(atOrAfter);
+        int beforeStart = before == 0 ? -1 : 63 - Long.numberOfLeadingZeros(before);
+        if (after < 0) {
+            return beforeStart;
+        }
+        if (beforeStart < 0 || after - idealStart <= idealStart - beforeStart) {
+            return after;
+        }
+        return beforeStart;
+    }
+
+    private static long lowBits(int count) {
+        return count >= Long.SIZE ? -1L : (1L << count) - 1;
+    }
+
+    private int[] seatNumbers(int row, int start, int noOfSeats) {
+        int[] seats = new int[noOfSeats];
+        int first = row * seatsPerRow + start;
+        for (int i = 0; i < noOfSeats; i++) {
+            seats[i] = first + i;
+        }
+        return seats;
+    }
+
+    private static int[] middleOutOrder(int rows) {
+        int[] order = new int[rows];
+        int middle = (rows - 1) / 2;
+        order[0] = middle;
+        for (int i = 1, distance = 1; i < rows; distance++) {
+            if (middle + distance < rows) {
+                order[i++] = middle + distance;
+            }
+            if (i < rows && middle - distance >= 0) {
+                order[i++] = middle - distance;
+            }
+        }
+        return order;
+    }
+
+    private void validateSeat(int seat) {
+        if (seat < 0 || seat >= getCapacity()) {
+            throw new IllegalStateException("invalid seat: " + seat);
+        }
+    }
+
+    private void validateNoOfSeats(int noOfSeats) {
+        if (noOfSeats < 1) {
+            throw new IllegalStateException("invalid number of seats: " + noOfSeats);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.jpmc.theater;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A theater whose schedule can be edited while tickets are sold, partitioned for many cores.
+ * <p>
+ * Showings are spread over shards by (date, screen). Each shard has its own showing map, {@link ScheduleIndex} and
+ * locks, so reservations, reads and schedule edits on different shards share no lock and no written memory:
+ * <ul>
+ *     <li>reservations and cancellations lock one of the shard's striped locks, chosen by showing id, so a showing
+ *     cannot be removed while seats of it are being sold; the seats themselves are taken lock-free by the showing</li>
+ *     <li>schedule edits lock the stripe of the showing and the edit lock of the shard; adding a showing also locks
+ *     the shards of the day before and after on the same screen, as showings running past midnight overlap across them</li>
+ *     <li>reads go to the concurrent maps of the shard without locking</li>
+ * </ul>
+ * A showing id holds the start minute and the screen number, so the shard of a reservation by id is computed
+ * without any lookup. Unlike {@link Theater} there is no journal, seat holds or metrics; it is the selling core only.
+ */
+public class ShardedTheater {
+
+    private static final int STRIPE_BITS = 4;
+    public static final int STRIPES_PER_SHARD = 1 << STRIPE_BITS;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final LocalDateProvider provider;
+    private final Shard[] shards;
+
+    /**
+     * @param provider
+     * @param shardCount number of shards, e.g. the number of cores
+     */
+    public ShardedTheater(LocalDateProvider provider, int shardCount) {
+        if(provider == null || shardCount < 1) {
+            throw new IllegalStateException("Sharded theater cannot be created");
+        }
+        this.provider = provider;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * @param provider
+     * @param shardCount number of shards, e.g. the number of cores
+     * @param schedule showings to start with
+     */
+    public ShardedTheater(LocalDateProvider provider, int shardCount, Map<LocalDate, List<Showing>> schedule) {
+        this(provider, shardCount);
+        if(schedule == null) {
+            throw new IllegalStateException("Sharded theater cannot be created");
+        }
+        schedule.values().forEach(showings -> showings.forEach(this::addShowing));
+    }
+
+    /**
+     * Method to add a showing to the schedule, also while tickets are being sold.
+     * Final, as the constructor adds the showings of the initial schedule with it.
+     * @param showing
+     */
+    public final void addShowing(Showing showing) {
+        if(showing == null) {
+            throw new IllegalStateException("Showing cannot be added");
+        }
+        long epochDay = showing.getStartTime().toLocalDate().toEpochDay();
+        int screenNumber = showing.getScreen().getNumber();
+        Shard shard = shardOf(epochDay, screenNumber);
+        //the neighbouring days can hold a showing overlapping this one across midnight
+        Shard[] locked = distinctInOrder(shardOf(epochDay - 1, screenNumber), shard, shardOf(epochDay + 1, screenNumber));
+        ReentrantLock stripe = shard.stripeOf(showing.getId());
+        stripe.lock();
+        try {
+            for (Shard neighbour : locked) {
+                neighbour.editLock.lock();
+            }
+            try {
+                for (Shard neighbour : locked) {
+                    //a showing of this screen can only be in the shards of its day or the neighbouring ones
+                    Showing overlapping = neighbour.index.findOverlap(showing.getScreen(), showing.getStartTime(), showing.getEndTime());
+                    if (overlapping != null) {
+                        throw new IllegalStateException("screen " + screenNumber + " already has a showing at " + showing.getStartTime()
+                                + ": " + overlapping.getMovie().getTitle() + " " + overlapping.getStartTime() + " - " + overlapping.getEndTime());
+                    }
+                }
+                if (shard.showingsById.putIfAbsent(showing.getId(), showing) != null) {
+                    throw new IllegalStateException("duplicate showing: " + showing);
+                }
+                shard.index.add(showing.getStartTime().toLocalDate(), showing);
+            } finally {
+                for (int i = locked.length - 1; i >= 0; i--) {
+                    locked[i].editLock.unlock();
+                }
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Method to take a showing off the schedule; only showings without sold seats can be removed.
+     * @param showingId
+     * @return the removed showing
+     */
+    public Showing removeShowing(long showingId) {
+        Shard shard = shardOf(showingId);
+        ReentrantLock stripe = shard.stripeOf(showingId);
+        stripe.lock();
+        try {
+            shard.editLock.lock();
+            try {
+                Showing showing = shard.showingsById.get(showingId);
+                if(showing == null) {
+                    throw new IllegalStateException("not able to find any showing for id: " + showingId);
+                }
+                if(showing.getSeatsLeft() < showing.getScreen().getCapacity()) {
+                    throw new IllegalStateException("showing " + showingId + " has sold seats and cannot be removed");
+                }
+                shard.showingsById.remove(showingId);
+                shard.index.remove(showing.getStartTime().toLocalDate(), showing);
+                return showing;
+            } finally {
+                shard.editLock.unlock();
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Method to reserve tickets for a showing given by its id.
+     * @param customer
+     * @param showingId
+     * @param howManyTickets
+     * @return reservation with the reserved seats
+     */
+    public Reservation reserve(Customer customer, long showingId, int howManyTickets) {
+        if(customer == null) {
+            throw new IllegalStateException("Reservation cannot be created");
+        }
+        Shard shard = shardOf(showingId);
+        ReentrantLock stripe = shard.stripeOf(showingId);
+        stripe.lock();
+        try {
+            Showing showing = shard.showingsById.get(showingId);
+            if(showing == null) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.NO_SHOWING, "not able to find any showing for id: " + showingId);
+            }
+            LocalDate showDate = showing.getStartTime().toLocalDate();
+            if(showDate.isBefore(provider.currentDate())) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
+            }
+            return new Reservation(customer, showDate, showing, showing.reserveSeats(howManyTickets));
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Method to reserve tickets for a showing given by date, screen and its sequence on the screen.
+     * @param customer
+     * @param showDate
+     * @param screen
+     * @param sequence
+     * @param howManyTickets
+     * @return reservation with the reserved seats
+     */
+    public Reservation reserve(Customer customer, LocalDate showDate, Screen screen, int sequence, int howManyTickets) {
+        Showing showing = shardOf(showDate.toEpochDay(), screen.getNumber()).index.findShowing(showDate, screen, sequence);
+        if(showing == null) {
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.NO_SHOWING, "not able to find any showing for given sequence " + sequence);
+        }
+        //checked again under the stripe lock, the showing may be removed in between
+        return reserve(customer, showing.getId(), howManyTickets);
+    }
+
+    /**
+     * Method to give the seats of a reservation back.
+     * Only the first of several cancellations of the same reservation succeeds, so seats sold again since are kept.
+     * @param reservation
+     */
+    public void cancel(Reservation reservation) {
+        long showingId = reservation.getShowing().getId();
+        Shard shard = shardOf(showingId);
+        ReentrantLock stripe = shard.stripeOf(showingId);
+        stripe.lock();
+        try {
+            if(!reservation.cancel()) {
+                throw new IllegalStateException("reservation is already cancelled");
+            }
+            if(shard.showingsById.get(showingId) != reservation.getShowing()) {
+                reservation.uncancel();
+                throw new IllegalStateException("not able to find any showing for id: " + showingId);
+            }
+            reservation.getShowing().releaseSeats(reservation.getSeats());
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * @return the showing with the given id, or null if there is none
+     */
+    public Showing getShowing(long showingId) {
+        return shardOf(showingId).showingsById.get(showingId);
+    }
+
+    /**
+     * @return showings of the given screen on the given date, ordered by start time
+     */
+    public List<Showing> getShowings(LocalDate showDate, Screen screen) {
+        return shardOf(showDate.toEpochDay(), screen.getNumber()).index.getShowings(showDate, screen);
+    }
+
+    /**
+     * @return all showings on the given date, ordered by screen and start time; visits every shard
+     */
+    public List<Showing> getShowings(LocalDate showDate) {
+        List<Showing> showings = new ArrayList<>();
+        for (Shard shard : shards) {
+            showings.addAll(shard.index.getShowings(showDate));
+        }
+        showings.sort(Comparator.comparingInt((Showing showing) -> showing.getScreen().getNumber()).thenComparing(Showing::getStartTime));
+        return showings;
+    }
+
+    public int getShowingCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.showingsById.size();
+        }
+        return count;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return shard the showings of the given date and screen belong to, see {@link #getShardCount()}
+     */
+    public int shardIndexOf(LocalDate showDate, Screen screen) {
+        return shardOf(showDate.toEpochDay(), screen.getNumber()).number;
+    }
+
+    private Shard shardOf(long showingId) {
+        long epochMinute = showingId >>> 20;
+        return shardOf(Math.floorDiv(epochMinute, MINUTES_PER_DAY), (int) (showingId & Screen.MAX_SCREEN_NUMBER));
+    }
+
+    private Shard shardOf(long epochDay, int screenNumber) {
+        //Fibonacci hashing, so consecutive days and screens spread over the shards
+        long hash = (epochDay << 20 | screenNumber) * 0x9E3779B97F4A7C15L;
+        return shards[(int) ((hash >>> 32) % shards.length)];
+    }
+
+    private static Shard[] distinctInOrder(Shard... shards) {
+        //locked in shard order, so two edits never wait for each other's locks
+        return Arrays.stream(shards).distinct().sorted(Comparator.comparingInt(shard -> shard.number)).toArray(Shard[]::new);
+    }
+
+    private static final class Shard {
+        private final int number;
+        private final Map<Long, Showing> showingsById = new ConcurrentHashMap<>();
+        private final ScheduleIndex index = new ScheduleIndex();
+        private final ReentrantLock editLock = new ReentrantLock();
+        private final ReentrantLock[] stripes = new ReentrantLock[STRIPES_PER_SHARD];
+
+        private Shard(int number) {
+            this.number = number;
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+        }
+
+        private ReentrantLock stripeOf(long showingId) {
+            long hash = showingId * 0x9E3779B97F4A7C15L;
+            return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedTheater{" +
+                "shards=" + shards.length +
+                ", showings=" + getShowingCount() +
+                '}';
+    }
+}
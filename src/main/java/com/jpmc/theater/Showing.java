@@ -1,48 +1,125 @@
 package com.jpmc.theater;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
-import static com.jpmc.theater.Theater.SEATING_CAPACITY;
+import static com.jpmc.theater.Theater.DEFAULT_SCREEN;
 
-public class Showing {
+public class Showing implements ShowingInfo {
 
-    private static final int MOVIE_CODE_SPECIAL = 1;
     public static final int START_TIME_DISCOUNT_LOWER_HOUR = 11;
     public static final int START_TIME_DISCOUNT_UPPER_HOUR = 16;
 
-    private Movie movie;
+    private long id;
+    private Screen screen;
     private int sequenceOfTheDay;
     private LocalDateTime showStartTime;
-    private double discountedMovieFee;
-    private int seatsLeft;
+    private PricingTable pricingTable;
+    //movie, discount and fee change together when the movie is repriced
+    private volatile Price price;
+    private SeatInventory seatInventory;
+    private SeatMap seatMap;
 
     public Showing(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
-        validate(movie, sequenceOfTheDay, showStartTime);
-        this.movie = movie;
+        this(movie, DEFAULT_SCREEN, sequenceOfTheDay, showStartTime);
+    }
+
+    /**
+     * @param movie
+     * @param screen screen the movie is shown on
+     * @param sequenceOfTheDay sequence of the showing on its screen
+     * @param showStartTime
+     */
+    public Showing(Movie movie, Screen screen, int sequenceOfTheDay, LocalDateTime showStartTime) {
+        this(movie, screen, sequenceOfTheDay, showStartTime, DiscountRuleSet.DEFAULT);
+    }
+
+    /**
+     * @param movie
+     * @param screen screen the movie is shown on
+     * @param sequenceOfTheDay sequence of the showing on its screen
+     * @param showStartTime
+     * @param discountRules discounts offered for the showing; the biggest applicable one is given
+     */
+    public Showing(Movie movie, Screen screen, int sequenceOfTheDay, LocalDateTime showStartTime, DiscountRuleSet discountRules) {
+        validate(movie, screen, sequenceOfTheDay, showStartTime, discountRules);
+        this.screen = screen;
         this.sequenceOfTheDay = sequenceOfTheDay;
         this.showStartTime = showStartTime;
-        this.discountedMovieFee = calculateFee();
-        this.seatsLeft = SEATING_CAPACITY;
+        this.id = idOf(screen, showStartTime);
+        this.pricingTable = discountRules.getPricingTable();
+        this.price = priceOf(movie);
+        this.seatMap = new SeatMap(screen.getRows(), screen.getSeatsPerRow());
+        this.seatInventory = new SeatInventory(seatMap.getCapacity());
+    }
+
+    /**
+     * Creates a showing which keeps the discounted fee it was priced at before, e.g. when it is restored from a
+     * {@link ScheduleSnapshot}; the fee is worked out from the discount rules again when its movie is repriced.
+     * @param movie
+     * @param screen screen the movie is shown on
+     * @param sequenceOfTheDay sequence of the showing on its screen
+     * @param showStartTime
+     * @param discountRules discounts offered for the showing
+     * @param discountedMovieFeeInCents fee of a single ticket
+     */
+    Showing(Movie movie, Screen screen, int sequenceOfTheDay, LocalDateTime showStartTime, DiscountRuleSet discountRules, long discountedMovieFeeInCents) {
+        this(movie, screen, sequenceOfTheDay, showStartTime, discountRules);
+        if(discountedMovieFeeInCents < 0) {
+            throw new IllegalStateException("Showing cannot be created");
+        }
+        this.price = new Price(movie, price.appliedDiscount, discountedMovieFeeInCents);
     }
 
-    private void validate(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+    private void validate(Movie movie, Screen screen, int sequenceOfTheDay, LocalDateTime showStartTime, DiscountRuleSet discountRules) {
         //note: you can throw individual messages instead of a generic error message like 'Showing cannot be created';
         //I am doing this way to save some time.
-        if(movie == null || sequenceOfTheDay < 1 || showStartTime == null) {
+        if(movie == null || screen == null || sequenceOfTheDay < 1 || showStartTime == null || discountRules == null) {
             throw new IllegalStateException("Showing cannot be created");
         }
     }
 
+    /**
+     * @return stable id of the showing, built from its start time and screen number.
+     * A screen cannot show two movies at the same time, so the id is unique within the theater
+     * and does not change when the schedule is reordered.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return id of the showing starting at the given time on the given screen
+     */
+    public static long idOf(Screen screen, LocalDateTime showStartTime) {
+        long epochMinute = showStartTime.toEpochSecond(ZoneOffset.UTC) / 60;
+        return epochMinute << 20 | screen.getNumber();
+    }
+
     public Movie getMovie() {
-        return movie;
+        return price.movie;
+    }
+
+    public Screen getScreen() {
+        return screen;
     }
 
     public LocalDateTime getStartTime() {
         return showStartTime;
     }
 
+    /**
+     * @return time the movie ends, the screen is busy from the start time until then
+     */
+    @JsonIgnore
+    public LocalDateTime getEndTime() {
+        return showStartTime.plus(getMovie().getRunningTime());
+    }
+
     public double getMovieFee() {
-        return movie.getTicketPrice();
+        return price.movie.getTicketPrice();
     }
 
     public int getSequenceOfTheDay() {
@@ -50,80 +127,131 @@ public class Showing {
     }
 
     public double getDiscountedMovieFee() {
-        return discountedMovieFee;
+        return Money.toDouble(price.discountedMovieFeeInCents);
+    }
+
+    @JsonIgnore
+    public long getDiscountedMovieFeeInCents() {
+        return price.discountedMovieFeeInCents;
+    }
+
+    /**
+     * @return the discount given for the showing and the rule it came from
+     */
+    @JsonIgnore
+    public AppliedDiscount getAppliedDiscount() {
+        return price.appliedDiscount;
+    }
+
+    /**
+     * Method to price the showing again after the ticket price of its movie changed, see {@link Movie#withTicketPrice(double)}.
+     * @param movie the movie of the showing with its new ticket price
+     */
+    public void reprice(Movie movie) {
+        Movie current = price.movie;
+        if(movie == null || !movie.getTitle().equals(current.getTitle()) || !movie.getRunningTime().equals(current.getRunningTime())) {
+            throw new IllegalStateException("not able to reprice showing " + id + " with another movie");
+        }
+        this.price = priceOf(movie);
+    }
+
+    /**
+     * @return memoized discounts the showing is priced with
+     */
+    PricingTable getPricingTable() {
+        return pricingTable;
     }
 
     public int getSeatsLeft() {
-        return seatsLeft;
+        return seatInventory.getSeatsLeft();
     }
 
     /**
      * Method to reduce the seats from the showing depending on how many tickets were bought.
+     * Safe to call from multiple threads; the showing can never be oversold.
      * @param noOfTicketsToBuy
      */
     public void reduceSeatsLeft(int noOfTicketsToBuy) {
-        if(seatsLeft < noOfTicketsToBuy) {
-            throw new IllegalStateException("not enough tickets left for the showing");
-        }
-        seatsLeft = seatsLeft - noOfTicketsToBuy;
+        reserveSeats(noOfTicketsToBuy);
     }
 
-    private double calculateFee() {
-        double discount = getDiscount();
-        double ticketPrice = movie.getTicketPrice();
-        if(discount > ticketPrice) {
-            //assuming we don't want to give any money back to the user.
-            return 0.0;
+    /**
+     * Method to reserve seats for a group; adjacent seats are picked if there is a row with enough of them.
+     * The seat count is taken first, so the seat map always has enough free seats for the ones which passed.
+     * @param noOfTicketsToBuy
+     * @return reserved seat numbers
+     */
+    public int[] reserveSeats(int noOfTicketsToBuy) {
+        if(!seatInventory.tryReserve(noOfTicketsToBuy)) {
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.SOLD_OUT, "not enough tickets left for the showing");
+        }
+        try {
+            return seatMap.allocate(noOfTicketsToBuy);
+        } catch (IllegalStateException e) {
+            //give the count back, otherwise the seats stay free in the map but are counted as sold
+            seatInventory.release(noOfTicketsToBuy);
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.SOLD_OUT, "not enough seats left for the showing");
         }
-        return Utility.roundOff(movie.getTicketPrice() - getDiscount());
     }
 
     /**
-     * Method to find the discount if applicable.
-     * In case a showing is eligible for multiple discounts, will return the one which is maximum.
-     * @return
+     * Method to put seats back to the showing, e.g. when tickets are refunded.
+     * @param seats seat numbers returned by {@link #reserveSeats(int)}
      */
-    private double getDiscount() {
-        //discount# 1
-        double specialDiscount = 0;
-        if (MOVIE_CODE_SPECIAL == movie.getSpecialCode()) {
-            specialDiscount = movie.getTicketPrice() * 0.2;  // 20% discount for special movie
-        }
+    public void releaseSeats(int[] seats) {
+        //free the seats before the count so the seat map never has fewer free seats than the inventory
+        seatMap.release(seats);
+        seatInventory.release(seats.length);
+    }
 
-        //discount# 2
-        double sequenceDiscount = 0;
-        if (sequenceOfTheDay == 1) {
-            sequenceDiscount = 3; // $3 discount for 1st show
-        } else if (sequenceOfTheDay == 2) {
-            sequenceDiscount = 2; // $2 discount for 2nd show
+    /**
+     * Method to mark given seats as sold again, e.g. when replaying the reservation journal after a restart.
+     * @param seats seat numbers of an earlier reservation
+     */
+    public void restoreSeats(int[] seats) {
+        if(!seatInventory.tryReserve(seats.length)) {
+            throw new IllegalStateException("not enough tickets left for the showing");
         }
-
-        //discount# 3
-        double showStartTimeDiscount = 0;
-        //check start time to be between 11 am to 4 pm
-        if(Utility.checkIfHourFallsWithinRange(showStartTime.getHour(), START_TIME_DISCOUNT_LOWER_HOUR, START_TIME_DISCOUNT_UPPER_HOUR)) {
-            showStartTimeDiscount = movie.getTicketPrice() * 0.25;
+        try {
+            seatMap.take(seats);
+        } catch (IllegalStateException e) {
+            seatInventory.release(seats.length);
+            throw e;
         }
+    }
 
-        //discount# 4
-        double showingOn7thDiscount = 0;
-        if(showStartTime.getDayOfMonth() == 7) {
-            showingOn7thDiscount = 1; // $1 discount for showing on day 7th
-        }
+    public boolean isSeatTaken(int seat) {
+        return seatMap.isTaken(seat);
+    }
 
-        // biggest discount wins
-        double biggestDiscount = Math.max(specialDiscount, Math.max(sequenceDiscount, Math.max(showStartTimeDiscount, showingOn7thDiscount)));
-        return Utility.roundOff(biggestDiscount);
+    private Price priceOf(Movie movie) {
+        AppliedDiscount appliedDiscount = pricingTable.discountOf(movie, sequenceOfTheDay, showStartTime);
+        return new Price(movie, appliedDiscount, PricingTable.feeOf(movie, appliedDiscount));
+    }
+
+    private static final class Price {
+        private final Movie movie;
+        private final AppliedDiscount appliedDiscount;
+        private final long discountedMovieFeeInCents;
+
+        private Price(Movie movie, AppliedDiscount appliedDiscount, long discountedMovieFeeInCents) {
+            this.movie = movie;
+            this.appliedDiscount = appliedDiscount;
+            this.discountedMovieFeeInCents = discountedMovieFeeInCents;
+        }
     }
 
     @Override
     public String toString() {
+        Price price = this.price;
         return "Showing{" +
-                "movie=" + movie +
+                "id=" + id +
+                ", movie=" + price.movie +
+                ", screen=" + screen +
                 ", sequenceOfTheDay=" + sequenceOfTheDay +
                 ", showStartTime=" + showStartTime +
-                ", discountedMovieFee=" + discountedMovieFee +
-                ", seatsLeft=" + seatsLeft +
+                ", discountedMovieFee=" + Money.toDouble(price.discountedMovieFeeInCents) +
+                ", seatsLeft=" + getSeatsLeft() +
                 '}';
     }
 }
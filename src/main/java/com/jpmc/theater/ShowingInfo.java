@@ -0,0 +1,33 @@
+package com.jpmc.theater;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read access to a showing, whether it is a {@link Showing} of a theater or a row of a {@link ShowingStore} read
+ * through its {@link ShowingStore.ShowingView}, so pricing and copying work on either.
+ */
+public interface ShowingInfo {
+
+    /**
+     * @return id of the showing, see {@link Showing#idOf(Screen, LocalDateTime)}
+     */
+    long getId();
+
+    Movie getMovie();
+
+    Screen getScreen();
+
+    LocalDateTime getStartTime();
+
+    LocalDateTime getEndTime();
+
+    int getSequenceOfTheDay();
+
+    double getMovieFee();
+
+    double getDiscountedMovieFee();
+
+    long getDiscountedMovieFeeInCents();
+
+    int getSeatsLeft();
+}
@@ -0,0 +1,448 @@
+package com.jpmc.theater;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Columnar in-memory store of showings, for schedules too large to keep as one {@link Showing} object graph per
+ * showing, e.g. a year of a chain of multiplexes.
+ * <p>
+ * Every showing is a row of parallel primitive arrays: start as epoch minute, movie and screen index into shared
+ * dictionaries, sequence of the day, discounted fee in cents and seats left. That is 24 bytes per showing instead of
+ * a few hundred for a {@link Showing} with its {@link LocalDateTime}, price and seat map, and a scan over a column
+ * reads consecutive memory. Rows are sorted by showing id, i.e. by start time and screen, so a showing is found by
+ * binary search and the showings of a time range are a contiguous block.
+ * <p>
+ * Only seat counts are kept, not seat numbers. Readers go through a flyweight {@link ShowingView}, a {@link ShowingInfo}
+ * like {@link Showing}, so e.g. {@link DemandPricing} quotes its rows too; seats are sold with
+ * {@link #tryReserve(int, int)} and {@link #release(int, int)}, which are safe to call from multiple threads.
+ */
+public class ShowingStore {
+
+    private final Movie[] movies;
+    private final Screen[] screens;
+    private final int[] startEpochMinutes;
+    private final int[] movieIndexes;
+    private final int[] screenIndexes;
+    private final int[] sequences;
+    private final int[] discountedFeesInCents;
+    private final AtomicIntegerArray seatsLeft;
+
+    private ShowingStore(Movie[] movies, Screen[] screens, int[] startEpochMinutes, int[] movieIndexes, int[] screenIndexes, int[] sequences,
+                         int[] discountedFeesInCents, int[] seatsLeft) {
+        this.movies = movies;
+        this.screens = screens;
+        this.startEpochMinutes = startEpochMinutes;
+        this.movieIndexes = movieIndexes;
+        this.screenIndexes = screenIndexes;
+        this.sequences = sequences;
+        this.discountedFeesInCents = discountedFeesInCents;
+        this.seatsLeft = new AtomicIntegerArray(seatsLeft);
+    }
+
+    /**
+     * Method to compact a schedule into a store, keeping the fees and seats left of its showings.
+     * @param schedule
+     * @return store
+     */
+    public static ShowingStore of(Map<LocalDate, List<Showing>> schedule) {
+        if(schedule == null) {
+            throw new IllegalStateException("Showing store cannot be created");
+        }
+        Builder builder = new Builder(DiscountRuleSet.DEFAULT);
+        schedule.values().forEach(showings -> showings.forEach(builder::add));
+        return builder.build();
+    }
+
+    public int getShowingCount() {
+        return startEpochMinutes.length;
+    }
+
+    /**
+     * @return a new showing view; views are not thread-safe, every thread should use its own
+     */
+    public ShowingView showingView() {
+        return new ShowingView();
+    }
+
+    /**
+     * Method to find a showing by its id, a binary search over the rows.
+     * @param showingId
+     * @return index of the showing or -1 if there is none
+     */
+    public int indexOf(long showingId) {
+        int low = 0;
+        int high = startEpochMinutes.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long id = idAt(middle);
+            if (id < showingId) {
+                low = middle + 1;
+            } else if (id > showingId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the first showing starting at or after the given time, {@link #getShowingCount()} if there is none;
+     * showings from there on are in start time order
+     */
+    public int firstIndexFrom(LocalDateTime time) {
+        long minute = Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60L) + (time.getSecond() > 0 || time.getNano() > 0 ? 1 : 0);
+        int low = 0;
+        int high = startEpochMinutes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (startEpochMinutes[middle] < minute) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Method to take seats of a showing, if there are enough left.
+     * @param index
+     * @param count
+     * @return false if the showing does not have enough seats left
+     */
+    public boolean tryReserve(int index, int count) {
+        if(count < 1) {
+            throw new IllegalStateException("invalid number of seats: " + count);
+        }
+        while (true) {
+            int left = seatsLeft.get(index);
+            if (left < count) {
+                return false;
+            }
+            if (seatsLeft.compareAndSet(index, left, left - count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Method to give seats of a showing back.
+     * @param index
+     * @param count
+     */
+    public void release(int index, int count) {
+        int capacity = screens[screenIndexes[index]].getCapacity();
+        while (true) {
+            int left = seatsLeft.get(index);
+            if(count < 1 || left + count > capacity) {
+                throw new IllegalStateException("invalid number of seats to release: " + count);
+            }
+            if (seatsLeft.compareAndSet(index, left, left + count)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return seats left summed over the showings [from, to), e.g. to report the unsold inventory of a period
+     */
+    public long sumSeatsLeft(int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += seatsLeft.get(i);
+        }
+        return sum;
+    }
+
+    private long idAt(int index) {
+        return (long) startEpochMinutes[index] << 20 | screens[screenIndexes[index]].getNumber();
+    }
+
+    /**
+     * Collects showings for a store, without creating a {@link Showing} for each of them.
+     */
+    public static class Builder {
+
+        private final PricingTable pricingTable;
+        private final Map<Movie, Integer> movies = new HashMap<>();
+        private final Map<Integer, Integer> screensByNumber = new HashMap<>();
+        private final List<Movie> movieList = new ArrayList<>();
+        private final List<Screen> screenList = new ArrayList<>();
+        private int size;
+        private int[] startEpochMinutes = new int[64];
+        private int[] movieIndexes = new int[64];
+        private int[] screenIndexes = new int[64];
+        private int[] sequences = new int[64];
+        private int[] discountedFeesInCents = new int[64];
+        private int[] seatsLeft = new int[64];
+
+        /**
+         * @param discountRules discounts offered for the showings
+         */
+        public Builder(DiscountRuleSet discountRules) {
+            if(discountRules == null) {
+                throw new IllegalStateException("Showing store cannot be created");
+            }
+            this.pricingTable = discountRules.getPricingTable();
+        }
+
+        /**
+         * Method to add a showing with all of its seats left.
+         * @param movie
+         * @param screen
+         * @param sequenceOfTheDay
+         * @param showStartTime start time, whole minutes
+         * @return this builder
+         */
+        public Builder add(Movie movie, Screen screen, int sequenceOfTheDay, LocalDateTime showStartTime) {
+            if(movie == null || screen == null || sequenceOfTheDay < 1 || showStartTime == null) {
+                throw new IllegalStateException("Showing cannot be created");
+            }
+            AppliedDiscount discount = pricingTable.discountOf(movie, sequenceOfTheDay, showStartTime);
+            return add(movie, screen, sequenceOfTheDay, showStartTime, PricingTable.feeOf(movie, discount), screen.getCapacity());
+        }
+
+        /**
+         * Method to add an existing showing, with its current fee and seats left, e.g. a {@link Showing} or a row of
+         * another store.
+         * @param showing
+         * @return this builder
+         */
+        public Builder add(ShowingInfo showing) {
+            return add(showing.getMovie(), showing.getScreen(), showing.getSequenceOfTheDay(), showing.getStartTime(),
+                    showing.getDiscountedMovieFeeInCents(), showing.getSeatsLeft());
+        }
+
+        private Builder add(Movie movie, Screen screen, int sequenceOfTheDay, LocalDateTime showStartTime, long feeInCents, int seats) {
+            if(showStartTime.getSecond() != 0 || showStartTime.getNano() != 0 || feeInCents > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Showing cannot be stored: " + movie.getTitle() + " " + showStartTime);
+            }
+            int screenIndex = screenIndexOf(screen);
+            int movieIndex = movieIndexOf(movie);
+            ensureCapacity(size + 1);
+            startEpochMinutes[size] = Math.toIntExact(showStartTime.toEpochSecond(ZoneOffset.UTC) / 60);
+            movieIndexes[size] = movieIndex;
+            screenIndexes[size] = screenIndex;
+            sequences[size] = sequenceOfTheDay;
+            discountedFeesInCents[size] = (int) feeInCents;
+            seatsLeft[size] = seats;
+            size++;
+            return this;
+        }
+
+        /**
+         * Method to append the showings of another builder, e.g. one which collected a part of the schedule on
+         * another thread; only the dictionary indexes of its rows are translated, fees are taken as they are.
+         * @param other
+         * @return this builder
+         */
+        Builder addAll(Builder other) {
+            int[] movieIndexMap = new int[other.movieList.size()];
+            for (int i = 0; i < movieIndexMap.length; i++) {
+                movieIndexMap[i] = movieIndexOf(other.movieList.get(i));
+            }
+            int[] screenIndexMap = new int[other.screenList.size()];
+            for (int i = 0; i < screenIndexMap.length; i++) {
+                screenIndexMap[i] = screenIndexOf(other.screenList.get(i));
+            }
+            ensureCapacity(size + other.size);
+            System.arraycopy(other.startEpochMinutes, 0, startEpochMinutes, size, other.size);
+            System.arraycopy(other.sequences, 0, sequences, size, other.size);
+            System.arraycopy(other.discountedFeesInCents, 0, discountedFeesInCents, size, other.size);
+            System.arraycopy(other.seatsLeft, 0, seatsLeft, size, other.size);
+            for (int i = 0; i < other.size; i++) {
+                movieIndexes[size + i] = movieIndexMap[other.movieIndexes[i]];
+                screenIndexes[size + i] = screenIndexMap[other.screenIndexes[i]];
+            }
+            size += other.size;
+            return this;
+        }
+
+        private int screenIndexOf(Screen screen) {
+            int screenIndex = screensByNumber.computeIfAbsent(screen.getNumber(), number -> {
+                screenList.add(screen);
+                return screenList.size() - 1;
+            });
+            if(!screenList.get(screenIndex).equals(screen)) {
+                throw new IllegalStateException("two screens with number " + screen.getNumber());
+            }
+            return screenIndex;
+        }
+
+        private int movieIndexOf(Movie movie) {
+            return movies.computeIfAbsent(movie, key -> {
+                movieList.add(movie);
+                return movieList.size() - 1;
+            });
+        }
+
+        private void ensureCapacity(int rows) {
+            if (rows > startEpochMinutes.length) {
+                int capacity = Math.max(rows, startEpochMinutes.length * 2);
+                startEpochMinutes = Arrays.copyOf(startEpochMinutes, capacity);
+                movieIndexes = Arrays.copyOf(movieIndexes, capacity);
+                screenIndexes = Arrays.copyOf(screenIndexes, capacity);
+                sequences = Arrays.copyOf(sequences, capacity);
+                discountedFeesInCents = Arrays.copyOf(discountedFeesInCents, capacity);
+                seatsLeft = Arrays.copyOf(seatsLeft, capacity);
+            }
+        }
+
+        /**
+         * @return store of the added showings, sorted by id
+         */
+        public ShowingStore build() {
+            Screen[] screens = screenList.toArray(new Screen[0]);
+            long[] ids = new long[size];
+            boolean sorted = true;
+            for (int i = 0; i < size; i++) {
+                ids[i] = (long) startEpochMinutes[i] << 20 | screens[screenIndexes[i]].getNumber();
+                sorted &= i == 0 || ids[i - 1] <= ids[i];
+            }
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            //a schedule added in id order, e.g. one date after the other with showings by time, is taken as it is
+            if (!sorted) {
+                sortByKey(order, ids);
+            }
+            for (int i = 1; i < size; i++) {
+                if (ids[order[i - 1]] == ids[order[i]]) {
+                    throw new IllegalStateException("duplicate showing: " + ids[order[i]]);
+                }
+            }
+            return new ShowingStore(movieList.toArray(new Movie[0]), screens, permute(startEpochMinutes, order), permute(movieIndexes, order),
+                    permute(screenIndexes, order), permute(sequences, order), permute(discountedFeesInCents, order), permute(seatsLeft, order));
+        }
+
+        // bottom-up merge sort of the row positions by their keys, without boxing millions of positions
+        private static void sortByKey(int[] order, long[] keys) {
+            int[] buffer = new int[order.length];
+            int[] source = order;
+            int[] target = buffer;
+            for (int width = 1; width < order.length; width *= 2) {
+                for (int low = 0; low < order.length; low += 2 * width) {
+                    int middle = Math.min(low + width, order.length);
+                    int high = Math.min(low + 2 * width, order.length);
+                    int left = low;
+                    int right = middle;
+                    for (int i = low; i < high; i++) {
+                        target[i] = left < middle && (right >= high || keys[source[left]] <= keys[source[right]]) ? source[left++] : source[right++];
+                    }
+                }
+                int[] swap = source;
+                source = target;
+                target = swap;
+            }
+            if (source != order) {
+                System.arraycopy(source, 0, order, 0, order.length);
+            }
+        }
+
+        private static int[] permute(int[] column, int[] order) {
+            int[] result = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                result[i] = column[order[i]];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Flyweight over the rows; {@link #moveTo(int)} points it to another showing without allocating.
+     */
+    public final class ShowingView implements ShowingInfo {
+        private int index;
+
+        private ShowingView() {
+        }
+
+        public ShowingView moveTo(int index) {
+            if(index < 0 || index >= startEpochMinutes.length) {
+                throw new IllegalStateException("invalid showing index: " + index);
+            }
+            this.index = index;
+            return this;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getId() {
+            return idAt(index);
+        }
+
+        public Movie getMovie() {
+            return movies[movieIndexes[index]];
+        }
+
+        public Screen getScreen() {
+            return screens[screenIndexes[index]];
+        }
+
+        public long getStartEpochMinute() {
+            return startEpochMinutes[index];
+        }
+
+        public LocalDateTime getStartTime() {
+            return LocalDateTime.ofEpochSecond(startEpochMinutes[index] * 60L, 0, ZoneOffset.UTC);
+        }
+
+        public LocalDateTime getEndTime() {
+            return getStartTime().plus(getMovie().getRunningTime());
+        }
+
+        public int getSequenceOfTheDay() {
+            return sequences[index];
+        }
+
+        public double getMovieFee() {
+            return getMovie().getTicketPrice();
+        }
+
+        public double getDiscountedMovieFee() {
+            return Money.toDouble(discountedFeesInCents[index]);
+        }
+
+        public long getDiscountedMovieFeeInCents() {
+            return discountedFeesInCents[index];
+        }
+
+        public int getSeatsLeft() {
+            return seatsLeft.get(index);
+        }
+
+        @Override
+        public String toString() {
+            return "ShowingView{" +
+                    "id=" + getId() +
+                    ", movie=" + getMovie().getTitle() +
+                    ", screen=" + getScreen().getNumber() +
+                    ", sequenceOfTheDay=" + getSequenceOfTheDay() +
+                    ", showStartTime=" + getStartTime() +
+                    ", discountedMovieFee=" + getDiscountedMovieFee() +
+                    ", seatsLeft=" + getSeatsLeft() +
+                    '}';
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShowingStore{" +
+                "movies=" + movies.length +
+                ", screens=" + screens.length +
+                ", showings=" + getShowingCount() +
+                '}';
+    }
+}
@@ -1,23 +1,40 @@
 package com.jpmc.theater;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Theater {
 
-    //I am assuming the theater has only 1 screen where each movie is shown one by one and the seating capacity is 100.
-    //this will help us in making sure that we are not increasing the scope of the task.
-    public static final int SEATING_CAPACITY = 100;
+    //layout of the default screen, used for showings which are not given a screen of their own.
+    //a theater with a single screen can keep using it; multiplexes should create a Screen per auditorium.
+    public static final int SEATING_ROWS = 10;
+    public static final int SEATS_PER_ROW = 10;
+    public static final int SEATING_CAPACITY = SEATING_ROWS * SEATS_PER_ROW;
+    public static final Screen DEFAULT_SCREEN = new Screen(1, "Screen 1", SEATING_ROWS, SEATS_PER_ROW);
+
+    private static final System.Logger LOGGER = System.getLogger(Theater.class.getName());
 
     private LocalDateProvider provider;
 
@@ -25,10 +42,105 @@ public class Theater {
     //this will help a customer make reservation for current day or for future days.
     private Map<LocalDate, List<Showing>> schedule;
 
+    //same showings as the schedule, sorted by (date, screen, start time) and by movie for range lookups
+    private ScheduleIndex scheduleIndex;
+
+    //showings by their id, so that a reservation for a known showing is a single hash probe;
+    //replaced by a grown copy when showings are loaded from the snapshot
+    private volatile LongHashIndex<Showing> showingsById;
+
+    //snapshot the showings of a date are loaded from when they are first needed, null if the schedule is given up front
+    private ScheduleSnapshot snapshot;
+    private DiscountRuleSet discountRules;
+
+    private ScheduleRenderCache renderCache;
+
+    //durable record of sold seats, null if reservations are kept in memory only
+    private ReservationJournal journal;
+
+    private TheaterMetrics metrics = new TheaterMetrics();
+
+    //active reservations by id, customer and showing, so they can be looked up and cancelled
+    private ReservationRegistry reservations = new ReservationRegistry();
+
+    //prices by fill rate and time to start, null if tickets are sold at the discounted fee of their showing
+    private volatile DemandPricing demandPricing;
+
+    //seats held during checkout, not sold yet and so not journaled
+    private SeatHolds seatHolds;
+    //ticker expiring the holds, null unless started
+    private ScheduledExecutorService holdExpiry;
+
+    //single-writer reservation mode, null or closed if reservations are applied by the calling thread
+    private volatile ReservationPipeline pipeline;
+
+    //waitlists of sold out showings by showing id, created when the first party joins
+    private Map<Long, Waitlist> waitlists = new ConcurrentHashMap<>();
+    private volatile WaitlistListener waitlistListener = (entry, reservation) -> { };
+
     public Theater(LocalDateProvider provider, Map<LocalDate, List<Showing>> schedule) {
         validate(provider, schedule);
         this.provider = provider;
         this.schedule = schedule;
+        this.scheduleIndex = new ScheduleIndex();
+        this.showingsById = new LongHashIndex<>(schedule.values().stream().mapToInt(List::size).sum());
+        schedule.forEach((showDate, showings) -> showings.forEach(showing -> {
+            if(showingsById.put(showing.getId(), showing) != null) {
+                throw new IllegalStateException("duplicate showing: " + showing);
+            }
+            scheduleIndex.add(showDate, showing);
+        }));
+        this.renderCache = new ScheduleRenderCache(this::showingsOf);
+        this.seatHolds = new SeatHolds(provider.getClock());
+    }
+
+    /**
+     * Creates a theater whose reservations are written to the given journal.
+     * The seats sold before a restart are rebuilt by replaying the journal into the showings of the schedule, and the
+     * reservations which were not cancelled are registered again under their ids, so they can still be cancelled.
+     * @param provider
+     * @param schedule
+     * @param journal journal to replay and append to; owned and closed by the caller
+     */
+    public Theater(LocalDateProvider provider, Map<LocalDate, List<Showing>> schedule, ReservationJournal journal) {
+        this(provider, schedule);
+        if(journal == null) {
+            throw new IllegalStateException("Theater cannot be created");
+        }
+        try {
+            //the whole schedule is in the index, nothing to load from a snapshot
+            journal.replay(showingsById::get, reservations);
+        } catch (IOException e) {
+            throw new UncheckedIOException("not able to replay the reservation journal", e);
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * Creates a theater from a schedule snapshot priced with the default discount rules, see {@link #writeSnapshot(Path)}.
+     * @param provider
+     * @param snapshot
+     */
+    public Theater(LocalDateProvider provider, ScheduleSnapshot snapshot) {
+        this(provider, snapshot, DiscountRuleSet.DEFAULT);
+    }
+
+    /**
+     * Creates a theater from a schedule snapshot, see {@link #writeSnapshot(Path)}.
+     * Nothing is built up front: the showings of a date are built from the snapshot, with the fees stored in it and
+     * the seats sold so far, the first time the date or one of its showings is asked for. Asking for the next showings
+     * of a movie, changing a ticket price or writing a snapshot builds all of them.
+     * @param provider
+     * @param snapshot
+     * @param discountRules discount rules the snapshot was priced with, used when a movie is repriced
+     */
+    public Theater(LocalDateProvider provider, ScheduleSnapshot snapshot, DiscountRuleSet discountRules) {
+        this(provider, new ConcurrentHashMap<>());
+        if(snapshot == null || discountRules == null) {
+            throw new IllegalStateException("Theater cannot be created");
+        }
+        this.snapshot = snapshot;
+        this.discountRules = discountRules;
     }
 
     private void validate(LocalDateProvider provider, Map<LocalDate, List<Showing>> schedule) {
@@ -38,71 +150,727 @@ public class Theater {
     }
 
     public Reservation reserve(Customer customer, LocalDate showDate, int sequence, int howManyTickets) {
+        long start = System.nanoTime();
+        try {
+            if(showDate.isBefore(provider.currentDate())) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
+            }
+            Showing showing = findShowing(showDate, sequence);
+            Reservation pipelined = reserveInPipeline(customer, showing.getId(), howManyTickets);
+            return booked(start, pipelined != null ? pipelined : book(customer, showDate, showing, howManyTickets));
+        } catch (ReservationRejectedException e) {
+            throw rejected(start, e);
+        }
+    }
+
+    private Showing findShowing(LocalDate showDate, int sequence) {
+        List<Showing> showings = showingsOf(showDate);
+        if(showings == null) {
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.NO_SHOWING, "not able to find any showing for showDate: " + showDate);
+        }
+        if(sequence < 1 || sequence > showings.size()) {
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.NO_SHOWING, "not able to find any showing for given sequence " + sequence);
+        }
+        return showings.get(sequence - 1);
+    }
+
+    private Showing findShowing(long showingId) {
+        Showing showing = getShowing(showingId);
+        if(showing == null) {
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.NO_SHOWING, "not able to find any showing for id: " + showingId);
+        }
+        return showing;
+    }
+
+    /**
+     * Method to reserve tickets for a showing by its id.
+     * @param customer
+     * @param showingId id of the showing, see {@link Showing#getId()}
+     * @param howManyTickets
+     * @return reservation
+     */
+    public Reservation reserve(Customer customer, long showingId, int howManyTickets) {
+        long start = System.nanoTime();
+        try {
+            Reservation pipelined = reserveInPipeline(customer, showingId, howManyTickets);
+            if(pipelined != null) {
+                return booked(start, pipelined);
+            }
+            Showing showing = findShowing(showingId);
+            LocalDate showDate = showing.getStartTime().toLocalDate();
+            if(showDate.isBefore(provider.currentDate())) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
+            }
+            return booked(start, book(customer, showDate, showing, howManyTickets));
+        } catch (ReservationRejectedException e) {
+            throw rejected(start, e);
+        }
+    }
+
+    /**
+     * Method to switch to the single-writer reservation mode for an on-sale spike, see {@link ReservationPipeline}.
+     * Until the returned pipeline is closed, {@link #reserveAsync(Customer, long, int)} and every {@code reserve} method
+     * publish their requests to it and wait for the result.
+     * <p>
+     * Other paths still take and give back seats on the calling thread, next to the writers: {@link #reserveAll(List)},
+     * {@link #hold} and {@link #confirm(SeatHold)}, waitlist backfills and cancellations. The seat inventory of a
+     * showing stays consistent either way, but only requests through the pipeline are applied in the order they
+     * were published.
+     * @param writers number of shards, each with its own ring buffer and writer thread
+     * @param ringSize number of requests each shard can buffer, a power of two
+     * @return the running pipeline; closing it switches back to reserving on the calling thread
+     */
+    public synchronized ReservationPipeline startPipeline(int writers, int ringSize) {
+        if(pipeline != null && !pipeline.isClosed()) {
+            throw new IllegalStateException("reservation pipeline is already running");
+        }
+        pipeline = new ReservationPipeline(this::getShowing, this::quote, provider, journal, reservations, writers, ringSize);
+        return pipeline;
+    }
+
+    /**
+     * Method to reserve tickets without waiting for the result; goes through the pipeline while one is running.
+     * @param customer
+     * @param showingId id of the showing, see {@link Showing#getId()}
+     * @param howManyTickets
+     * @return future of the reservation; fails with a {@link ReservationRejectedException} if it cannot be booked
+     */
+    public CompletableFuture<Reservation> reserveAsync(Customer customer, long showingId, int howManyTickets) {
+        ReservationPipeline pipeline = this.pipeline;
+        CompletableFuture<Reservation> result = pipeline == null ? null : pipeline.offer(customer, showingId, howManyTickets);
+        if(result == null) {
+            try {
+                return CompletableFuture.completedFuture(reserve(customer, showingId, howManyTickets));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        long start = System.nanoTime();
+        result.whenComplete((reservation, failure) -> {
+            if(reservation != null) {
+                metrics.recordReservation(System.nanoTime() - start, reservation.getAudienceCount());
+            } else if(failure instanceof ReservationRejectedException) {
+                metrics.recordRejection(System.nanoTime() - start, ((ReservationRejectedException) failure).getReason());
+            }
+        });
+        return result;
+    }
+
+    private Reservation reserveInPipeline(Customer customer, long showingId, int howManyTickets) {
+        ReservationPipeline pipeline = this.pipeline;
+        CompletableFuture<Reservation> result = pipeline == null ? null : pipeline.offer(customer, showingId, howManyTickets);
+        if(result == null) {
+            return null;
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            //the writer's exception, e.g. the rejection, as if the reservation was made on this thread
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param showingId
+     * @return the showing with the given id or null if there is none
+     */
+    public Showing getShowing(long showingId) {
+        Showing showing = showingsById.get(showingId);
+        if(showing == null && snapshot != null) {
+            int index = snapshot.indexOf(showingId);
+            if(index >= 0) {
+                load(List.of(snapshot.showDateOf(index)));
+                showing = showingsById.get(showingId);
+            }
+        }
+        return showing;
+    }
+
+    /**
+     * @return showings of the date, loaded from the snapshot if they are not yet, or null if there are none
+     */
+    private List<Showing> showingsOf(LocalDate showDate) {
+        List<Showing> showings = showDate == null ? null : schedule.get(showDate);
+        if(showings == null && showDate != null && snapshot != null) {
+            load(List.of(showDate));
+            showings = schedule.get(showDate);
+        }
+        return showings;
+    }
+
+    private void loadAll() {
+        if(snapshot != null) {
+            load(snapshot.getShowDates());
+        }
+    }
+
+    //builds the showings of the dates which are not loaded yet; they are indexed before they are put into the schedule,
+    //so a date found in the schedule is fully loaded
+    private void load(List<LocalDate> showDates) {
+        synchronized (snapshot) {
+            Map<LocalDate, List<Showing>> loaded = new HashMap<>();
+            int count = 0;
+            for (LocalDate showDate : showDates) {
+                List<Showing> showings = schedule.containsKey(showDate) ? null : snapshot.showingsOf(showDate, discountRules);
+                if(showings != null) {
+                    loaded.put(showDate, showings);
+                    count += showings.size();
+                }
+            }
+            if(loaded.isEmpty()) {
+                return;
+            }
+            LongHashIndex<Showing> index = showingsById.copy(count);
+            loaded.forEach((showDate, showings) -> showings.forEach(showing -> {
+                index.put(showing.getId(), showing);
+                scheduleIndex.add(showDate, showing);
+            }));
+            showingsById = index;
+            schedule.putAll(loaded);
+        }
+    }
+
+    /**
+     * Method to reserve tickets for a showing of a given screen.
+     * @param customer
+     * @param showDate
+     * @param screen
+     * @param sequence sequence of the showing on the screen
+     * @param howManyTickets
+     * @return reservation
+     */
+    public Reservation reserve(Customer customer, LocalDate showDate, Screen screen, int sequence, int howManyTickets) {
+        long start = System.nanoTime();
+        try {
+            if(showDate.isBefore(provider.currentDate())) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
+            }
+            showingsOf(showDate);
+            Showing showing = scheduleIndex.findShowing(showDate, screen, sequence);
+            if(showing == null) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.NO_SHOWING,
+                        "not able to find any showing on screen " + screen.getNumber() + " for given sequence " + sequence);
+            }
+            Reservation pipelined = reserveInPipeline(customer, showing.getId(), howManyTickets);
+            return booked(start, pipelined != null ? pipelined : book(customer, showDate, showing, howManyTickets));
+        } catch (ReservationRejectedException e) {
+            throw rejected(start, e);
+        }
+    }
+
+    private Reservation booked(long start, Reservation reservation) {
+        metrics.recordReservation(System.nanoTime() - start, reservation.getAudienceCount());
+        return reservation;
+    }
+
+    private ReservationRejectedException rejected(long start, ReservationRejectedException e) {
+        metrics.recordRejection(System.nanoTime() - start, e.getReason());
+        return e;
+    }
+
+    /**
+     * Method to reserve tickets for several showings at once, e.g. for a school trip or a corporate block.
+     * The whole batch is validated first and either all requests are booked or none is.
+     * Seats are taken in the order of the showing ids, so concurrent batches which share showings always
+     * compete for them in the same order.
+     * @param requests
+     * @return reservations, in the order of the requests
+     */
+    public List<Reservation> reserveAll(List<ReservationRequest> requests) {
+        long start = System.nanoTime();
+        try {
+            List<Reservation> reservations = reserveBatch(requests);
+            metrics.recordReservation(System.nanoTime() - start, reservations.stream().mapToInt(Reservation::getAudienceCount).sum());
+            return reservations;
+        } catch (ReservationRejectedException e) {
+            throw rejected(start, e);
+        }
+    }
+
+    private List<Reservation> reserveBatch(List<ReservationRequest> requests) {
+        if(requests == null || requests.isEmpty() || requests.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalStateException("no reservations requested");
+        }
+        int count = requests.size();
+        LocalDate today = provider.currentDate();
+        Showing[] showings = new Showing[count];
+        LocalDate[] showDates = new LocalDate[count];
+        long[] ticketFees = new long[count];
+        Map<Showing, Integer> ticketsByShowing = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            ReservationRequest request = requests.get(i);
+            showings[i] = request.isByShowingId() ? findShowing(request.getShowingId()) : findShowing(request.getShowDate(), request.getSequence());
+            showDates[i] = request.isByShowingId() ? showings[i].getStartTime().toLocalDate() : request.getShowDate();
+            if(showDates[i].isBefore(today)) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
+            }
+            ticketFees[i] = quote(showings[i]);
+            int tickets = ticketsByShowing.merge(showings[i], request.getHowManyTickets(), Integer::sum);
+            //fail fast, before any seat is taken
+            if(tickets > showings[i].getSeatsLeft()) {
+                throw new ReservationRejectedException(ReservationRejectedException.Reason.SOLD_OUT, "not enough tickets left for the showing");
+            }
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> showings[i].getId()).thenComparingInt(i -> i));
+        int[][] seats = new int[count][];
+        int acquired = 0;
+        try {
+            for (; acquired < count; acquired++) {
+                int i = order[acquired];
+                seats[i] = showings[i].reserveSeats(requests.get(i).getHowManyTickets());
+            }
+        } catch (RuntimeException e) {
+            //roll back in reverse order, the batch is all or nothing
+            while (acquired-- > 0) {
+                int i = order[acquired];
+                showings[i].releaseSeats(seats[i]);
+            }
+            throw e;
+        }
+
+        List<Reservation> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reservations.add(new Reservation(requests.get(i).getCustomer(), showDates[i], showings[i], seats[i], ticketFees[i]));
+        }
+        this.reservations.record(reservations, journal).forEach(this.reservations::register);
+        return reservations;
+    }
+
+    /**
+     * Method to hold seats during checkout; the seats go back to the showing when the hold is not confirmed in time.
+     * @param customer
+     * @param showDate
+     * @param sequence
+     * @param howManyTickets
+     * @param timeToLive how long the seats are held
+     * @return hold, to be confirmed with {@link #confirm(SeatHold)} or released with {@link #releaseHold(SeatHold)}
+     */
+    public SeatHold hold(Customer customer, LocalDate showDate, int sequence, int howManyTickets, Duration timeToLive) {
         if(showDate.isBefore(provider.currentDate())) {
-            throw new IllegalStateException("cannot book tickets for showing in the past");
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
         }
-        Showing showing;
+        Showing showing = findShowing(showDate, sequence);
+        return seatHolds.hold(customer, showDate, showing, howManyTickets, timeToLive, quote(showing));
+    }
+
+    /**
+     * Same as {@link #hold(Customer, LocalDate, int, int, Duration)} for a showing given by its id.
+     */
+    public SeatHold hold(Customer customer, long showingId, int howManyTickets, Duration timeToLive) {
+        Showing showing = findShowing(showingId);
+        LocalDate showDate = showing.getStartTime().toLocalDate();
+        if(showDate.isBefore(provider.currentDate())) {
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
+        }
+        return seatHolds.hold(customer, showDate, showing, howManyTickets, timeToLive, quote(showing));
+    }
+
+    /**
+     * Method to sell the held seats.
+     * @param hold
+     * @return reservation for the held seats
+     */
+    public Reservation confirm(SeatHold hold) {
+        seatHolds.confirm(hold);
+        Reservation reservation = new Reservation(hold.getCustomer(), hold.getShowDate(), hold.getShowing(), hold.getSeats(),
+                hold.getTicketFeeInCents());
         try {
-            if(schedule.containsKey(showDate)) {
-                showing = schedule.get(showDate).get(sequence - 1);
-            } else {
-                throw new IllegalStateException("not able to find any showing for showDate: " + showDate);
+            reservations.record(reservation, journal);
+        } catch (RuntimeException e) {
+            //the seats are given back, so the hold is over
+            hold.transition(SeatHold.State.CONFIRMED, SeatHold.State.RELEASED);
+            backfill(hold.getShowing());
+            throw e;
+        }
+        return reservations.register(reservation);
+    }
+
+    /**
+     * Method to give held seats back, e.g. when the checkout is abandoned.
+     * @param hold
+     */
+    public void releaseHold(SeatHold hold) {
+        seatHolds.release(hold);
+        backfill(hold.getShowing());
+    }
+
+    /**
+     * Method to expire the holds whose time is up; to be called periodically, e.g. every {@link SeatHolds#DEFAULT_TICK},
+     * or by the ticker of {@link #startHoldExpiry(Duration)}.
+     * The seats of expired holds are offered to the waitlists of their showings.
+     * @return number of expired holds
+     */
+    public int expireHolds() {
+        Set<Showing> released = new HashSet<>();
+        int expired = seatHolds.expire(hold -> released.add(hold.getShowing()));
+        released.forEach(this::backfill);
+        return expired;
+    }
+
+    /**
+     * Method to expire the holds every tick on a background thread, so held seats come back without a caller
+     * driving {@link #expireHolds()}.
+     * @param tick time between two expiry runs, e.g. {@link SeatHolds#DEFAULT_TICK}
+     */
+    public synchronized void startHoldExpiry(Duration tick) {
+        if(tick == null || tick.isNegative() || tick.isZero()) {
+            throw new IllegalStateException("hold expiry cannot be started");
+        }
+        if(holdExpiry != null) {
+            throw new IllegalStateException("hold expiry is already running");
+        }
+        holdExpiry = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("hold-expiry").daemon().factory());
+        long tickNanos = tick.toNanos();
+        holdExpiry.scheduleWithFixedDelay(() -> {
+            try {
+                expireHolds();
+            } catch (RuntimeException e) {
+                //e.g. a failed backfill; an exception would cancel every later run, the next tick tries again
+                backgroundFailed("hold expiry failed", e);
             }
-        } catch (IndexOutOfBoundsException  iobe) {
-            throw new IllegalStateException("not able to find any showing for given sequence " + sequence);
+        }, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Method to stop the ticker of {@link #startHoldExpiry(Duration)}; holds only expire through {@link #expireHolds()} again.
+     */
+    public synchronized void stopHoldExpiry() {
+        if (holdExpiry != null) {
+            holdExpiry.shutdownNow();
+            holdExpiry = null;
+        }
+    }
+
+    /**
+     * Method to cancel a reservation; its seats go back to the showing, and to its waitlist if parties are waiting.
+     * Only one of several concurrent cancellations of the same reservation succeeds.
+     * A failure while backfilling the waitlist does not fail the cancellation.
+     * @param reservationId id of the reservation, see {@link Reservation#getId()}
+     * @return the cancelled reservation
+     */
+    public Reservation cancel(long reservationId) {
+        Reservation reservation = reservations.get(reservationId);
+        if(reservation == null || !reservation.cancel()) {
+            throw new IllegalStateException("not able to find any reservation for id: " + reservationId);
+        }
+        Showing showing = reservation.getShowing();
+        int[] seats = reservation.getSeats();
+        if(journal != null) {
+            try {
+                journal.released(reservation);
+            } catch (RuntimeException e) {
+                //not durable, so the seats stay sold
+                reservation.uncancel();
+                throw e;
+            }
+        }
+        showing.releaseSeats(seats);
+        reservations.remove(reservation);
+        try {
+            backfill(showing);
+        } catch (RuntimeException e) {
+            //the cancellation is journaled and done, a failed booking or listener of the waitlist must not undo the refund;
+            //the seats stay free and are offered again on the next backfill
+            backgroundFailed("waitlist backfill of showing " + showing.getId() + " failed after cancelling reservation " + reservationId, e);
+        }
+        return reservation;
+    }
+
+    /**
+     * Method to cancel a reservation and work out what is paid back, see {@link #cancel(long)}.
+     * @param reservationId
+     * @return amount to refund, the total fee of the reservation
+     */
+    public double refund(long reservationId) {
+        return cancel(reservationId).getTotalFee();
+    }
+
+    /**
+     * @param reservationId
+     * @return the reservation with the given id, or null if there is none or it was cancelled
+     */
+    public Reservation getReservation(long reservationId) {
+        return reservations.get(reservationId);
+    }
+
+    /**
+     * @param customerId see {@link Customer#getId()}
+     * @return reservations of the customer which are not cancelled, in the order they were made
+     */
+    public List<Reservation> getBookings(String customerId) {
+        return reservations.getByCustomer(customerId);
+    }
+
+    /**
+     * @param showingId
+     * @return reservations for the showing which are not cancelled, in the order they were made
+     */
+    public List<Reservation> getReservations(long showingId) {
+        return reservations.getByShowing(showingId);
+    }
+
+    /**
+     * Method to put a party on the waitlist of a showing, typically after it was rejected as sold out.
+     * When seats of the showing are released, e.g. by an expired hold, they are booked for the party which joined
+     * first among those fitting into them, see {@link Waitlist}, and the {@link WaitlistListener} is notified.
+     * If enough seats are free already, they are booked right away.
+     * @param customer
+     * @param showingId id of the showing, see {@link Showing#getId()}
+     * @param partySize number of seats the party needs
+     * @return entry of the party; holds the reservation once it got seats
+     */
+    public WaitlistEntry joinWaitlist(Customer customer, long showingId, int partySize) {
+        Showing showing = findShowing(showingId);
+        if(showing.getStartTime().toLocalDate().isBefore(provider.currentDate())) {
+            throw new ReservationRejectedException(ReservationRejectedException.Reason.PAST_DATE, "cannot book tickets for showing in the past");
+        }
+        WaitlistEntry entry = waitlists.computeIfAbsent(showingId, id -> new Waitlist(showing)).join(customer, partySize);
+        waitlistListener.waitlisted(entry);
+        backfill(showing);
+        return entry;
+    }
+
+    /**
+     * Method to take a party off the waitlist of its showing.
+     * @param entry
+     * @return false if the party already got seats or left before
+     */
+    public boolean leaveWaitlist(WaitlistEntry entry) {
+        Waitlist waitlist = entry == null ? null : waitlists.get(entry.getShowing().getId());
+        return waitlist != null && waitlist.leave(entry);
+    }
+
+    /**
+     * @param showingId
+     * @return number of parties waiting for seats of the showing
+     */
+    public int getWaitlistSize(long showingId) {
+        Waitlist waitlist = waitlists.get(showingId);
+        return waitlist == null ? 0 : waitlist.size();
+    }
+
+    /**
+     * @param waitlistListener notified when parties join a waitlist and when seats are booked for them
+     */
+    public void setWaitlistListener(WaitlistListener waitlistListener) {
+        if(waitlistListener == null) {
+            throw new IllegalStateException("waitlist listener cannot be null");
+        }
+        this.waitlistListener = waitlistListener;
+    }
+
+    //failures which are not passed on to the caller are logged and counted, so they do not go unnoticed
+    private void backgroundFailed(String message, RuntimeException e) {
+        metrics.recordBackgroundFailure();
+        LOGGER.log(System.Logger.Level.WARNING, message, e);
+    }
+
+    private void backfill(Showing showing) {
+        Waitlist waitlist = waitlists.get(showing.getId());
+        if(waitlist == null) {
+            return;
         }
-        showing.reduceSeatsLeft(howManyTickets);
-        return new Reservation(customer, showDate, showing, howManyTickets);
+        LocalDate showDate = showing.getStartTime().toLocalDate();
+        List<WaitlistEntry> served = waitlist.backfill(entry -> book(entry.getCustomer(), showDate, showing, entry.getPartySize()));
+        //notified after the waitlist is unlocked, so a slow listener does not hold up the showing
+        WaitlistListener listener = waitlistListener;
+        for (WaitlistEntry entry : served) {
+            listener.reserved(entry, entry.getReservation());
+        }
+    }
+
+    private Reservation book(Customer customer, LocalDate showDate, Showing showing, int howManyTickets) {
+        //quoted before the seats are taken, at the fill rate the customer saw
+        long ticketFeeInCents = quote(showing);
+        int[] seats = showing.reserveSeats(howManyTickets);
+        Reservation reservation = new Reservation(customer, showDate, showing, seats, ticketFeeInCents);
+        return reservations.register(reservations.record(reservation, journal));
+    }
+
+    /**
+     * @return fee of a single ticket for the showing as of now, see {@link #setDemandPricing(DemandPricing)}
+     */
+    public long quote(Showing showing) {
+        DemandPricing pricing = demandPricing;
+        return pricing == null ? showing.getDiscountedMovieFeeInCents() : pricing.quote(showing);
+    }
+
+    /**
+     * Method to price tickets by demand from now on; every reservation keeps the fee it was quoted.
+     * Off by default, so tickets are sold at the discounted fee of their showing.
+     * @param demandPricing pricing to use, or null to switch it off
+     */
+    public void setDemandPricing(DemandPricing demandPricing) {
+        this.demandPricing = demandPricing;
+    }
+
+    /**
+     * @return true if any showing is scheduled on the given date, e.g. to validate a request before rendering
+     */
+    public boolean hasShowings(LocalDate showDate) {
+        return showingsOf(showDate) != null;
+    }
+
+    /**
+     * @return showings of the given screen on the given date, ordered by start time
+     */
+    public List<Showing> getShowings(LocalDate showDate, Screen screen) {
+        showingsOf(showDate);
+        return scheduleIndex.getShowings(showDate, screen);
+    }
+
+    /**
+     * Method to find the next showings of a movie after the given time, on any screen.
+     * @param movie
+     * @param after
+     * @param limit maximum number of showings to return
+     * @return showings ordered by start time
+     */
+    public List<Showing> nextShowings(Movie movie, LocalDateTime after, int limit) {
+        loadAll();
+        return scheduleIndex.nextShowings(movie, after, limit);
+    }
+
+    /**
+     * @return showings playing at the given time on any screen, ordered by screen
+     */
+    public List<Showing> playingAt(LocalDateTime time) {
+        //a showing of the day before may still be playing after midnight
+        showingsOf(time.toLocalDate().minusDays(1));
+        showingsOf(time.toLocalDate());
+        return scheduleIndex.playingAt(time);
+    }
+
+    /**
+     * Method to change the ticket price of a movie. Only the showings of the movie are repriced, through the
+     * schedule index, and only the rendered schedules of their dates are dropped.
+     * Reservations made before keep the fee they were quoted.
+     * @param movie
+     * @param ticketPrice new ticket price
+     * @return the movie with its new ticket price, which the showings are filed under from now on
+     */
+    public synchronized Movie changeTicketPrice(Movie movie, double ticketPrice) {
+        if(movie == null) {
+            throw new IllegalStateException("not able to change the ticket price of a missing movie");
+        }
+        loadAll();
+        List<Showing> showings = scheduleIndex.getShowings(movie);
+        if(showings.isEmpty()) {
+            throw new IllegalStateException("not able to find any showing for movie: " + movie.getTitle());
+        }
+        Movie repriced = movie.withTicketPrice(ticketPrice);
+        Set<LocalDate> showDates = new HashSet<>();
+        Set<PricingTable> pricingTables = new HashSet<>();
+        for (Showing showing : showings) {
+            showing.reprice(repriced);
+            showDates.add(showing.getStartTime().toLocalDate());
+            pricingTables.add(showing.getPricingTable());
+        }
+        //no showing of the theater is priced with the old ticket price any more
+        if(!repriced.equals(movie)) {
+            pricingTables.forEach(pricingTable -> pricingTable.evict(movie));
+        }
+        scheduleIndex.movieRepriced(movie, repriced);
+        showDates.forEach(renderCache::invalidate);
+        return repriced;
     }
 
     public void printSchedule(PrintSchedule printSchedule, LocalDate showDate) {
-        if(schedule.containsKey(showDate)) {
-            if(printSchedule == PrintSchedule.TEXT) {
-                printScheduleInTextFormat(showDate);
-            } else {
-                //JSON format
-                printScheduleInJsonFormat(showDate);
-            }
-        } else {
+        try {
+            renderSchedule(printSchedule, showDate, System.out);
+            System.out.flush();
+        } catch (IOException e) {
+            System.out.println("Failed to print schedule in " + printSchedule + " format.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method to write the schedule of a date in the given format, as printed by {@link #printSchedule(PrintSchedule, LocalDate)}.
+     * Rendered schedules are cached; repeat renders only re-encode the seats left of showings which sold tickets since.
+     * @param printSchedule
+     * @param showDate
+     * @param out stream to write to; not closed
+     * @throws IOException
+     */
+    public void renderSchedule(PrintSchedule printSchedule, LocalDate showDate, OutputStream out) throws IOException {
+        if(showingsOf(showDate) == null) {
             throw new IllegalStateException("not able to find any showing for showDate: " + showDate);
         }
+        long start = System.nanoTime();
+        renderCache.render(printSchedule, showDate, out);
+        metrics.recordRender(System.nanoTime() - start);
     }
 
-    private void printScheduleInTextFormat(LocalDate showDate) {
-        System.out.println(showDate);
-        System.out.println("===================================================");
-        schedule.get(showDate).forEach(s ->
-                System.out.println(s.getSequenceOfTheDay() + ": " + s.getStartTime() + " " + s.getMovie().getTitle() + " " + Utility.humanReadableFormat(s.getMovie().getRunningTime()) +
-                        " Seats left: " + s.getSeatsLeft() + " $" + s.getMovieFee() + " (movieFee) --> $" + s.getDiscountedMovieFee() + " (discountedMovieFee)")
-        );
-        System.out.println("===================================================");
-    }
-
-    private void printScheduleInJsonFormat(LocalDate showDate) {
-        System.out.println(showDate);
-        System.out.println("===================================================");
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
-        schedule.get(showDate).forEach(s -> {
-                    try {
-                        System.out.println(mapper.writeValueAsString(s));
-                    } catch (JsonProcessingException e) {
-                        System.out.println("Failed to print schedule in Json format.");
-                        e.printStackTrace();
-                    }
-                }
-        );
-        System.out.println("===================================================");
+    /**
+     * @return current values of the reservation and render metrics and the seat fill of every showing;
+     * showings of a snapshot which were not loaded yet have not sold anything since and are left out
+     */
+    public TheaterMetrics.Snapshot metricsSnapshot() {
+        return metrics.snapshot(schedule);
     }
 
-    public static void main(String[] args) {
-        LocalDateProvider provider = LocalDateProvider.singleton();
+    /**
+     * Method to export the schedule of a date range as JSON, e.g. for the listings endpoint.
+     * All showings of the range are streamed through one generator, as a single array or one showing per line.
+     * @param from first date, inclusive
+     * @param to last date, inclusive
+     * @param layout
+     * @param out stream to write to; flushed but not closed
+     * @throws IOException
+     */
+    public void exportSchedule(LocalDate from, LocalDate to, ScheduleWriter.Layout layout, OutputStream out) throws IOException {
+        ScheduleWriter.shared().write(showingsBetween(from, to), layout, out);
+    }
+
+    /**
+     * Same as {@link #exportSchedule(LocalDate, LocalDate, ScheduleWriter.Layout, OutputStream)} but writing characters.
+     */
+    public void exportSchedule(LocalDate from, LocalDate to, ScheduleWriter.Layout layout, Writer out) throws IOException {
+        ScheduleWriter.shared().write(showingsBetween(from, to), layout, out);
+    }
+
+    /**
+     * Method to write the schedule and the seats sold so far to a snapshot file, to be opened with {@link ScheduleSnapshot#open(Path)}.
+     * @param file
+     * @throws IOException
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        loadAll();
+        ScheduleSnapshot.write(schedule, file);
+    }
+
+    private List<Showing> showingsBetween(LocalDate from, LocalDate to) {
+        if(from == null || to == null || to.isBefore(from)) {
+            throw new IllegalStateException("invalid date range: " + from + " - " + to);
+        }
+        List<Showing> showings = new ArrayList<>();
+        for (LocalDate showDate = from; !showDate.isAfter(to); showDate = showDate.plusDays(1)) {
+            List<Showing> showingsOfDay = showingsOf(showDate);
+            if (showingsOfDay != null) {
+                showings.addAll(showingsOfDay);
+            }
+        }
+        return showings;
+    }
+
+    /**
+     * @param today
+     * @return schedule with today's showings of the sample movies, as used by {@link #main(String[])} and {@link TheaterServer}
+     */
+    static Map<LocalDate, List<Showing>> sampleSchedule(LocalDate today) {
         Map<LocalDate, List<Showing>> schedule = new HashMap<>();
         Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
         Movie turningRed = new Movie("Turning Red", Duration.ofMinutes(85), 11);
         Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
-        LocalDate today = provider.currentDate();
         List<Showing> todaysSchedule = List.of(
                 new Showing(turningRed, 1, LocalDateTime.of(today, LocalTime.of(9, 0))),
                 new Showing(spiderMan, 2, LocalDateTime.of(today, LocalTime.of(11, 0))),
@@ -116,8 +884,16 @@ public class Theater {
         );
         //todays showing
         schedule.put(today, todaysSchedule);
+        return schedule;
+    }
+
+    public static void main(String[] args) {
+        LocalDateProvider provider = LocalDateProvider.singleton();
+        LocalDate today = provider.currentDate();
+        Map<LocalDate, List<Showing>> schedule = sampleSchedule(today);
 
         Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        theater.startHoldExpiry(SeatHolds.DEFAULT_TICK);
         System.out.println("==================== Printing in Text format ====================");
         theater.printSchedule(PrintSchedule.TEXT, today);
         System.out.println("==================== Printing in Json format ====================");
@@ -125,9 +901,11 @@ public class Theater {
 
         System.out.println("======== Reservation complete with following details ============");
         Reservation reservationForRajesh = theater.reserve(new Customer("Rajesh", "1"), today, 2, 3);
-        System.out.println("Customer: " + reservationForRajesh.getCustomer().getName() + " ShowDate: " + reservationForRajesh.getShowDate() + " Movie: " + reservationForRajesh.getShowing().getMovie().getTitle() +
+        System.out.println("Customer: " + reservationForRajesh.getCustomer().getName() + " ShowDate: " + reservationForRajesh.getShowDate() +
+                " Movie: " + reservationForRajesh.getShowing().getMovie().getTitle() +
                 " NoOfTickets: " + reservationForRajesh.getAudienceCount() + " TotalFee: " + reservationForRajesh.getTotalFee());
 
         System.out.println("No of seats left after reservation: " + reservationForRajesh.getShowing().getSeatsLeft());
+        theater.stopHoldExpiry();
     }
 }
@@ -0,0 +1,163 @@
+package com.jpmc.theater;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation of the theater's hot paths: reservation and render latencies, booked tickets and rejections by reason,
+ * and failures of the work done next to them which does not fail the caller, e.g. waitlist backfills.
+ * Recording is allocation free - histograms are fixed arrays of atomic counters and counters are {@link LongAdder}s -
+ * so it can stay on in production. Values are pulled with {@link #snapshot(Map)}, e.g. by an exporter to the
+ * monitoring system of choice; nothing is pushed or aggregated in the background.
+ */
+public class TheaterMetrics {
+
+    private final LatencyHistogram reserveLatency = new LatencyHistogram();
+    private final LatencyHistogram renderLatency = new LatencyHistogram();
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder ticketsSold = new LongAdder();
+    private final LongAdder[] rejections = new LongAdder[ReservationRejectedException.Reason.values().length];
+    private final LongAdder backgroundFailures = new LongAdder();
+
+    public TheaterMetrics() {
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos time taken by the reservation
+     * @param tickets number of booked tickets
+     */
+    public void recordReservation(long nanos, int tickets) {
+        reserveLatency.record(nanos);
+        reservations.increment();
+        ticketsSold.add(tickets);
+    }
+
+    /**
+     * @param nanos time taken until the reservation was rejected
+     * @param reason
+     */
+    public void recordRejection(long nanos, ReservationRejectedException.Reason reason) {
+        reserveLatency.record(nanos);
+        rejections[reason.ordinal()].increment();
+    }
+
+    /**
+     * Method to count a failure which was not passed on to a caller, e.g. of a waitlist backfill after a cancellation
+     * or of a hold expiry run.
+     */
+    public void recordBackgroundFailure() {
+        backgroundFailures.increment();
+    }
+
+    /**
+     * @param nanos time taken to render a schedule
+     */
+    public void recordRender(long nanos) {
+        renderLatency.record(nanos);
+    }
+
+    /**
+     * Method to take the current values.
+     * @param schedule showings whose seat fill is reported
+     * @return snapshot
+     */
+    public Snapshot snapshot(Map<?, List<Showing>> schedule) {
+        Map<ReservationRejectedException.Reason, Long> rejectionCounts = new EnumMap<>(ReservationRejectedException.Reason.class);
+        for (ReservationRejectedException.Reason reason : ReservationRejectedException.Reason.values()) {
+            rejectionCounts.put(reason, rejections[reason.ordinal()].sum());
+        }
+        Map<Long, Double> seatFill = new LinkedHashMap<>();
+        for (List<Showing> showings : schedule.values()) {
+            for (Showing showing : showings) {
+                int capacity = showing.getScreen().getCapacity();
+                seatFill.put(showing.getId(), (double) (capacity - showing.getSeatsLeft()) / capacity);
+            }
+        }
+        return new Snapshot(reserveLatency.snapshot(), renderLatency.snapshot(), reservations.sum(), ticketsSold.sum(), rejectionCounts,
+                backgroundFailures.sum(), seatFill);
+    }
+
+    /**
+     * Metric values at one point in time.
+     */
+    public static class Snapshot {
+        private final LatencyHistogram.Snapshot reserveLatency;
+        private final LatencyHistogram.Snapshot renderLatency;
+        private final long reservations;
+        private final long ticketsSold;
+        private final Map<ReservationRejectedException.Reason, Long> rejections;
+        private final long backgroundFailures;
+        private final Map<Long, Double> seatFill;
+
+        private Snapshot(LatencyHistogram.Snapshot reserveLatency, LatencyHistogram.Snapshot renderLatency, long reservations, long ticketsSold,
+                         Map<ReservationRejectedException.Reason, Long> rejections, long backgroundFailures, Map<Long, Double> seatFill) {
+            this.reserveLatency = reserveLatency;
+            this.renderLatency = renderLatency;
+            this.reservations = reservations;
+            this.ticketsSold = ticketsSold;
+            this.rejections = Collections.unmodifiableMap(rejections);
+            this.backgroundFailures = backgroundFailures;
+            this.seatFill = Collections.unmodifiableMap(seatFill);
+        }
+
+        /**
+         * @return latency of reservations, booked and rejected, in nanoseconds
+         */
+        public LatencyHistogram.Snapshot getReserveLatency() {
+            return reserveLatency;
+        }
+
+        /**
+         * @return latency of schedule renders in nanoseconds
+         */
+        public LatencyHistogram.Snapshot getRenderLatency() {
+            return renderLatency;
+        }
+
+        public long getReservations() {
+            return reservations;
+        }
+
+        public long getTicketsSold() {
+            return ticketsSold;
+        }
+
+        public Map<ReservationRejectedException.Reason, Long> getRejections() {
+            return rejections;
+        }
+
+        /**
+         * @return failures which were not passed on to a caller, see {@link #recordBackgroundFailure()}
+         */
+        public long getBackgroundFailures() {
+            return backgroundFailures;
+        }
+
+        /**
+         * @return share of sold seats, 0.0 to 1.0, by showing id
+         */
+        public Map<Long, Double> getSeatFill() {
+            return seatFill;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "reserveLatency=" + reserveLatency +
+                    ", renderLatency=" + renderLatency +
+                    ", reservations=" + reservations +
+                    ", ticketsSold=" + ticketsSold +
+                    ", rejections=" + rejections +
+                    ", backgroundFailures=" + backgroundFailures +
+                    ", showings=" + seatFill.size() +
+                    '}';
+        }
+    }
+}
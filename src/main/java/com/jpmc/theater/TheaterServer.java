@@ -0,0 +1,329 @@
+package com.jpmc.theater;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP front end of a {@link Theater}.
+ * Every request runs on its own virtual thread, so tens of thousands of mostly idle checkout connections only cost
+ * a few hundred bytes of stack each instead of a platform thread.
+ * <ul>
+ *     <li>{@code GET /schedule?date=2022-03-08&format=text|json} - schedule of a date as plain text, as printed by
+ *     {@link Theater#printSchedule}</li>
+ *     <li>{@code GET /listings?from=2022-03-08&to=2022-03-14&layout=array|ndjson} - showings of a date range as JSON</li>
+ *     <li>{@code POST /reservations} with form parameters {@code customerName}, {@code customerId}, {@code tickets}
+ *     and either {@code showingId} or {@code date} and {@code sequence} - reserves tickets</li>
+ *     <li>{@code POST /cancellations} with form parameter {@code reservationId} - cancels a reservation and answers the refund</li>
+ *     <li>{@code GET /bookings?customerId=1} - reservations of a customer</li>
+ *     <li>{@code GET /metrics} - snapshot of the {@link TheaterMetrics}</li>
+ * </ul>
+ * Malformed requests, e.g. no tickets or a date without showings, are answered with 400, cancellations of unknown
+ * reservations with 404, bookings the theater rejects, e.g. sold out showings, and cancellations lost to a concurrent one
+ * with 409, and any other failure with 500; those are logged through the {@link System.Logger} of this class.
+ */
+public class TheaterServer implements Closeable {
+
+    private static final System.Logger LOGGER = System.getLogger(TheaterServer.class.getName());
+
+    private static final ObjectWriter JSON = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .writer();
+
+    private final Theater theater;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param theater
+     * @param address address to listen on; port 0 picks a free port
+     * @throws IOException
+     */
+    public TheaterServer(Theater theater, InetSocketAddress address) throws IOException {
+        if(theater == null || address == null) {
+            throw new IllegalStateException("Theater server cannot be created");
+        }
+        this.theater = theater;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/schedule", exchange -> handle(exchange, "GET", this::schedule));
+        server.createContext("/listings", exchange -> handle(exchange, "GET", this::listings));
+        server.createContext("/reservations", exchange -> handle(exchange, "POST", this::reserve));
+        server.createContext("/cancellations", exchange -> handle(exchange, "POST", this::cancel));
+        server.createContext("/bookings", exchange -> handle(exchange, "GET", this::bookings));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", this::metrics));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void schedule(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        LocalDate showDate = LocalDate.parse(required(parameters, "date"));
+        PrintSchedule format = PrintSchedule.valueOf(parameters.getOrDefault("format", "text").toUpperCase());
+        if(!theater.hasShowings(showDate)) {
+            throw new IllegalArgumentException("not able to find any showing for showDate: " + showDate);
+        }
+        //rendered before the headers are sent, so a failure can still be answered with an error
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        theater.renderSchedule(format, showDate, body);
+        //a printout in either format, with a date header and rulers around the showings; /listings is the JSON feed
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            body.writeTo(out);
+        }
+    }
+
+    private void listings(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        LocalDate from = LocalDate.parse(required(parameters, "from"));
+        LocalDate to = LocalDate.parse(parameters.getOrDefault("to", from.toString()));
+        ScheduleWriter.Layout layout = ScheduleWriter.Layout.valueOf(parameters.getOrDefault("layout", "array").toUpperCase());
+        if(to.isBefore(from)) {
+            throw new IllegalArgumentException("invalid date range: " + from + " - " + to);
+        }
+        exchange.getResponseHeaders().set("Content-Type", layout == ScheduleWriter.Layout.NDJSON ? "application/x-ndjson" : "application/json");
+        //streamed, the range can hold a lot of showings
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            theater.exportSchedule(from, to, layout, out);
+        }
+    }
+
+    private void reserve(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        Customer customer = new Customer(text(parameters, "customerName"), text(parameters, "customerId"));
+        int tickets = Integer.parseInt(required(parameters, "tickets"));
+        if(tickets < 1) {
+            throw new IllegalArgumentException("invalid number of tickets: " + tickets);
+        }
+        Reservation reservation = parameters.containsKey("showingId")
+                ? theater.reserve(customer, Long.parseLong(parameters.get("showingId")), tickets)
+                : theater.reserve(customer, LocalDate.parse(required(parameters, "date")), Integer.parseInt(required(parameters, "sequence")), tickets);
+        sendJson(exchange, 201, reservation(reservation));
+    }
+
+    private void cancel(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        long reservationId = Long.parseLong(required(parameters, "reservationId"));
+        //cancelled reservations are dropped from the registry, so they are unknown as well
+        if(theater.getReservation(reservationId) == null) {
+            throw new NotFoundException("not able to find any reservation for id: " + reservationId);
+        }
+        Reservation reservation;
+        try {
+            reservation = theater.cancel(reservationId);
+        } catch (IllegalStateException e) {
+            //cancelled by a concurrent request in between
+            throw new ConflictException(e.getMessage());
+        }
+        Map<String, Object> body = reservation(reservation);
+        body.put("refund", reservation.getTotalFee());
+        sendJson(exchange, 200, body);
+    }
+
+    private void bookings(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        List<Map<String, Object>> body = new ArrayList<>();
+        for (Reservation reservation : theater.getBookings(required(parameters, "customerId"))) {
+            body.add(reservation(reservation));
+        }
+        sendJson(exchange, 200, body);
+    }
+
+    private static Map<String, Object> reservation(Reservation reservation) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("reservationId", reservation.getId());
+        body.put("customerId", reservation.getCustomer().getId());
+        body.put("showDate", reservation.getShowDate());
+        body.put("showingId", reservation.getShowing().getId());
+        body.put("movie", reservation.getShowing().getMovie().getTitle());
+        body.put("seats", reservation.getSeats());
+        body.put("totalFee", reservation.getTotalFee());
+        return body;
+    }
+
+    private void metrics(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        TheaterMetrics.Snapshot snapshot = theater.metricsSnapshot();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("reservations", snapshot.getReservations());
+        body.put("ticketsSold", snapshot.getTicketsSold());
+        body.put("rejections", snapshot.getRejections());
+        body.put("backgroundFailures", snapshot.getBackgroundFailures());
+        body.put("reserveLatencyNanos", latency(snapshot.getReserveLatency()));
+        body.put("renderLatencyNanos", latency(snapshot.getRenderLatency()));
+        body.put("seatFill", snapshot.getSeatFill());
+        sendJson(exchange, 200, body);
+    }
+
+    private static Map<String, Object> latency(LatencyHistogram.Snapshot histogram) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("count", histogram.getCount());
+        latency.put("mean", histogram.getMean());
+        latency.put("p50", histogram.getValueAtPercentile(50));
+        latency.put("p99", histogram.getValueAtPercentile(99));
+        latency.put("p999", histogram.getValueAtPercentile(99.9));
+        latency.put("max", histogram.getMax());
+        return latency;
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+    }
+
+    /**
+     * Request which conflicts with the state of the theater, answered with 409.
+     */
+    private static final class ConflictException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private ConflictException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Request for something the theater does not have, answered with 404.
+     */
+    private static final class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try (exchange) {
+            if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                sendError(exchange, 405, "method not allowed: " + exchange.getRequestMethod());
+                return;
+            }
+            try {
+                handler.handle(exchange, parameters(exchange));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                //NumberFormatException and unknown enum constants are IllegalArgumentExceptions too
+                sendError(exchange, 400, e.getMessage());
+            } catch (NotFoundException e) {
+                sendError(exchange, 404, e.getMessage());
+            } catch (ReservationRejectedException | ConflictException e) {
+                sendError(exchange, 409, e.getMessage());
+            } catch (RuntimeException e) {
+                //e.g. a failed journal write; the request was valid, the server could not serve it
+                LOGGER.log(System.Logger.Level.ERROR, "failed to serve " + exchange.getRequestMethod() + " " + exchange.getRequestURI(), e);
+                sendError(exchange, 500, "internal server error");
+            }
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parse(exchange.getRequestURI().getRawQuery(), parameters);
+        if ("POST".equals(exchange.getRequestMethod())) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parse(new String(in.readAllBytes(), StandardCharsets.UTF_8), parameters);
+            }
+        }
+        return parameters;
+    }
+
+    private static void parse(String encoded, Map<String, String> parameters) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static String text(Map<String, String> parameters, String name) {
+        String value = required(parameters, name);
+        if (value.isBlank()) {
+            throw new IllegalArgumentException("missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            //a streamed response already started, it can only be cut off
+            return;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        sendJson(exchange, status, body);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = JSON.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Starts a server for the sample schedule of {@link Theater#main(String[])}.
+     * @param args optional port, 8080 by default
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        LocalDateProvider provider = LocalDateProvider.singleton();
+        Theater theater = new Theater(provider, Theater.sampleSchedule(provider.currentDate()));
+        theater.startHoldExpiry(SeatHolds.DEFAULT_TICK);
+        TheaterServer server = new TheaterServer(theater, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            theater.stopHoldExpiry();
+        }));
+        server.start();
+        System.out.println("Theater server listening on port " + server.getPort());
+    }
+}
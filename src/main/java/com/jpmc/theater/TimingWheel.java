@@ -0,0 +1,156 @@
+package com.jpmc.theater;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel, used to expire large numbers of timers without one scheduled task per timer.
+ * <p>
+ * Time is cut into ticks. Level 0 has a slot per tick for the next 64 ticks, level 1 a slot per 64 ticks for the
+ * next 64^2 ticks and so on. A timer goes to the lowest level whose range covers its deadline; when the wheel
+ * reaches a higher level slot, its timers are cascaded down to a finer level. Scheduling is O(1) and every timer
+ * is moved at most once per level before it fires, so expiry is O(1) amortized as well.
+ * <p>
+ * The wheel has no thread of its own: {@link #advance(long, Consumer)} fires the timers whose deadline passed.
+ * All methods are synchronized, so timers can be scheduled from any thread.
+ * @param <T> type of the timer payload
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    //deadlines further away are parked in the last slot in range and re-scheduled when it cascades
+    private static final long MAX_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Node<T>[][] slots;
+    //next tick to process, every earlier tick has fired
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis resolution of the wheel; timers fire up to one tick late
+     * @param startMillis current time
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        if(tickMillis < 1 || startMillis < 0) {
+            throw new IllegalStateException("Timing wheel cannot be created");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = (Node<T>[][]) new Node<?>[LEVELS][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Method to add a timer.
+     * @param payload
+     * @param deadlineMillis time at which the timer fires; timers already due fire with the next tick
+     */
+    public synchronized void schedule(T payload, long deadlineMillis) {
+        if(payload == null) {
+            throw new IllegalStateException("null timers cannot be scheduled");
+        }
+        //round up, a timer never fires before its deadline
+        long deadlineTick = Math.max(currentTick, (deadlineMillis + tickMillis - 1) / tickMillis);
+        insert(new Node<>(payload, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Method to move the wheel to the given time and fire every timer which is due.
+     * @param nowMillis
+     * @param expired called for every due timer, while the wheel is locked, so it should be short
+     * @return number of fired timers
+     */
+    public synchronized int advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick <= targetTick) {
+            if (size == 0) {
+                //nothing to fire or cascade on the way, jump straight past the target
+                currentTick = targetTick + 1;
+                break;
+            }
+            int index = (int) (currentTick & SLOT_MASK);
+            if (index == 0) {
+                cascade(1);
+            }
+            Node<T> node = slots[0][index];
+            slots[0][index] = null;
+            while (node != null) {
+                Node<T> next = node.next;
+                node.next = null;
+                if (node.deadlineTick <= currentTick) {
+                    size--;
+                    fired++;
+                    expired.accept(node.payload);
+                } else {
+                    //parked with a deadline beyond the range of the wheel
+                    insert(node);
+                }
+                node = next;
+            }
+            currentTick++;
+        }
+        return fired;
+    }
+
+    /**
+     * @return number of timers which have not fired yet
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    // moves the timers of the current slot of the level down, cascading the next level first when this one wraps
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        int index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        if (index == 0) {
+            cascade(level + 1);
+        }
+        Node<T> node = slots[level][index];
+        slots[level][index] = null;
+        while (node != null) {
+            Node<T> next = node.next;
+            node.next = null;
+            insert(node);
+            node = next;
+        }
+    }
+
+    private void insert(Node<T> node) {
+        long delta = node.deadlineTick - currentTick;
+        long slotTick = delta > MAX_TICKS ? currentTick + MAX_TICKS : node.deadlineTick;
+        int level = 0;
+        while (level < LEVELS - 1 && (slotTick - currentTick) >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int index = (int) ((slotTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        node.next = slots[level][index];
+        slots[level][index] = node;
+    }
+
+    private static final class Node<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private Node<T> next;
+
+        private Node(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TimingWheel{" +
+                "tickMillis=" + tickMillis +
+                ", size=" + size() +
+                '}';
+    }
+}
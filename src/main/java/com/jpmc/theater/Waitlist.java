@@ -0,0 +1,186 @@
+package com.jpmc.theater;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * First come, first served waitlist of a single showing, for parties of any size up to the capacity of its screen.
+ * <p>
+ * Parties are queued in one FIFO bucket per party size, and a segment tree over the party sizes keeps the join order of
+ * the oldest party in every bucket. When seats are released, the party which joined first among those that fit into
+ * the free seats is found with a prefix minimum query in O(log capacity), so a party of 2 is not blocked behind an
+ * earlier party of 8 which does not fit yet, while parties of the same size keep their order.
+ * <p>
+ * Parties which leave stay in their bucket until they reach its head, so leaving does not scan the queue.
+ */
+public class Waitlist {
+
+    private static final long EMPTY = Long.MAX_VALUE;
+
+    private final Showing showing;
+    private final int maxPartySize;
+    private final ArrayDeque<WaitlistEntry>[] buckets;
+    //sequence of the oldest waiting party in every bucket; leaves start at index 'leaves', one per party size
+    private final long[] tree;
+    private final int leaves;
+    private long nextSequence;
+    private int waiting;
+
+    /**
+     * @param showing
+     */
+    @SuppressWarnings("unchecked")
+    public Waitlist(Showing showing) {
+        if(showing == null) {
+            throw new IllegalStateException("Waitlist cannot be created");
+        }
+        this.showing = showing;
+        this.maxPartySize = showing.getScreen().getCapacity();
+        this.buckets = (ArrayDeque<WaitlistEntry>[]) new ArrayDeque<?>[maxPartySize + 1];
+        this.leaves = Integer.highestOneBit(Math.max(1, maxPartySize - 1)) << 1;
+        this.tree = new long[2 * leaves];
+        Arrays.fill(tree, EMPTY);
+    }
+
+    public Showing getShowing() {
+        return showing;
+    }
+
+    /**
+     * Method to put a party at the end of the waitlist.
+     * @param customer
+     * @param partySize number of seats the party needs, at most the capacity of the screen
+     * @return entry of the party
+     */
+    public synchronized WaitlistEntry join(Customer customer, int partySize) {
+        if(partySize < 1 || partySize > maxPartySize) {
+            throw new IllegalStateException("invalid party size for the waitlist: " + partySize);
+        }
+        WaitlistEntry entry = new WaitlistEntry(nextSequence++, customer, showing, partySize);
+        ArrayDeque<WaitlistEntry> bucket = buckets[partySize];
+        if (bucket == null) {
+            bucket = buckets[partySize] = new ArrayDeque<>();
+        }
+        bucket.addLast(entry);
+        waiting++;
+        if (bucket.size() == 1) {
+            update(partySize);
+        }
+        return entry;
+    }
+
+    /**
+     * Method to take a party off the waitlist.
+     * @param entry
+     * @return false if the party already got seats or left before
+     */
+    public synchronized boolean leave(WaitlistEntry entry) {
+        if(entry == null || entry.getShowing() != showing || !entry.leave()) {
+            return false;
+        }
+        waiting--;
+        if (buckets[entry.getPartySize()].peekFirst() == entry) {
+            removeHead(entry.getPartySize());
+        }
+        return true;
+    }
+
+    /**
+     * Method to hand the free seats of the showing to the waiting parties, oldest fitting party first,
+     * until no waiting party fits into the seats left.
+     * @param book reserves the seats of a party; a {@link ReservationRejectedException} ends the backfill
+     * @return entries which got seats, in the order they were served
+     */
+    public synchronized List<WaitlistEntry> backfill(Function<WaitlistEntry, Reservation> book) {
+        List<WaitlistEntry> served = new ArrayList<>();
+        while (waiting > 0) {
+            int partySize = oldestFitting(showing.getSeatsLeft());
+            if (partySize == 0) {
+                break;
+            }
+            WaitlistEntry entry = buckets[partySize].peekFirst();
+            Reservation reservation;
+            try {
+                reservation = book.apply(entry);
+            } catch (ReservationRejectedException e) {
+                //the seats were sold to someone else in the meantime
+                break;
+            }
+            entry.reserved(reservation);
+            waiting--;
+            removeHead(partySize);
+            served.add(entry);
+        }
+        return served;
+    }
+
+    /**
+     * @return number of parties waiting
+     */
+    public synchronized int size() {
+        return waiting;
+    }
+
+    //drops the head of the bucket and the parties behind it which already left
+    private void removeHead(int partySize) {
+        ArrayDeque<WaitlistEntry> bucket = buckets[partySize];
+        bucket.pollFirst();
+        while (!bucket.isEmpty() && bucket.peekFirst().getState() != WaitlistEntry.State.WAITING) {
+            bucket.pollFirst();
+        }
+        update(partySize);
+    }
+
+    private void update(int partySize) {
+        ArrayDeque<WaitlistEntry> bucket = buckets[partySize];
+        int node = leaves + partySize - 1;
+        tree[node] = bucket.isEmpty() ? EMPTY : bucket.peekFirst().getSequence();
+        for (node >>= 1; node > 0; node >>= 1) {
+            tree[node] = Math.min(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * @return size of the party which joined first among those of at most the given size, 0 if there is none
+     */
+    private int oldestFitting(int seats) {
+        int limit = Math.min(seats, maxPartySize);
+        long oldest = EMPTY;
+        int oldestNode = 0;
+        for (int l = leaves, r = leaves + limit; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                if (tree[l] < oldest) {
+                    oldest = tree[l];
+                    oldestNode = l;
+                }
+                l++;
+            }
+            if ((r & 1) == 1) {
+                r--;
+                if (tree[r] < oldest) {
+                    oldest = tree[r];
+                    oldestNode = r;
+                }
+            }
+        }
+        if (oldest == EMPTY) {
+            return 0;
+        }
+        //descend to the bucket the minimum came from
+        while (oldestNode < leaves) {
+            oldestNode = tree[2 * oldestNode] == oldest ? 2 * oldestNode : 2 * oldestNode + 1;
+        }
+        return oldestNode - leaves + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Waitlist{" +
+                "showingId=" + showing.getId() +
+                ", waiting=" + size() +
+                '}';
+    }
+}
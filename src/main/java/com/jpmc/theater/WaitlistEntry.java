@@ -0,0 +1,90 @@
+package com.jpmc.theater;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A party waiting for seats of a sold out showing.
+ * An entry ends exactly once: seats are reserved for it or the customer leaves the waitlist.
+ */
+public class WaitlistEntry {
+
+    public enum State {
+        WAITING,
+        RESERVED,
+        LEFT
+    }
+
+    private long sequence;
+    private Customer customer;
+    private Showing showing;
+    private int partySize;
+    private volatile Reservation reservation;
+    private AtomicReference<State> state = new AtomicReference<>(State.WAITING);
+
+    /**
+     * @param sequence order in which the parties joined the waitlist of the showing
+     * @param customer
+     * @param showing
+     * @param partySize number of seats the party needs
+     */
+    public WaitlistEntry(long sequence, Customer customer, Showing showing, int partySize) {
+        validate(customer, showing, partySize);
+        this.sequence = sequence;
+        this.customer = customer;
+        this.showing = showing;
+        this.partySize = partySize;
+    }
+
+    private void validate(Customer customer, Showing showing, int partySize) {
+        if(customer == null || showing == null || partySize < 1) {
+            throw new IllegalStateException("Waitlist entry cannot be created");
+        }
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public Showing getShowing() {
+        return showing;
+    }
+
+    public int getPartySize() {
+        return partySize;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return reservation made for the party, or null while it is waiting
+     */
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    boolean reserved(Reservation reservation) {
+        this.reservation = reservation;
+        return state.compareAndSet(State.WAITING, State.RESERVED);
+    }
+
+    boolean leave() {
+        return state.compareAndSet(State.WAITING, State.LEFT);
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{" +
+                "sequence=" + sequence +
+                ", customer=" + customer +
+                ", showingId=" + showing.getId() +
+                ", partySize=" + partySize +
+                ", state=" + state.get() +
+                '}';
+    }
+}
@@ -0,0 +1,22 @@
+package com.jpmc.theater;
+
+/**
+ * Notified about the customers waiting for seats of sold out showings, e.g. to send them a message.
+ * Called on the thread which released the seats, after the waitlist is unlocked; it should not block.
+ */
+public interface WaitlistListener {
+
+    /**
+     * Method called when a party joined the waitlist of a showing.
+     * @param entry
+     */
+    default void waitlisted(WaitlistEntry entry) {
+    }
+
+    /**
+     * Method called when released seats were booked for a waiting party.
+     * @param entry
+     * @param reservation reservation made for the party
+     */
+    void reserved(WaitlistEntry entry, Reservation reservation);
+}
@@ -0,0 +1,108 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DemandPricingTests {
+
+    private final LocalDate showDate = LocalDate.of(2030, 3, 8);
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 10);
+
+    //no discount applies to the 5th showing of the day in the evening
+    private Showing newShowing() {
+        return new Showing(theBatMan, 5, LocalDateTime.of(showDate, LocalTime.of(20, 0)));
+    }
+
+    @Test
+    void testQuoteFollowsFillRateAndTimeToStart() {
+        MutableClock clock = new MutableClock(Instant.parse("2030-03-01T00:00:00Z"), ZoneOffset.UTC);
+        DemandPricing pricing = new DemandPricing(DemandPricing.DEFAULT_CURVE, clock, Runnable::run);
+        Showing showing = newShowing();
+        assertEquals(1000, showing.getDiscountedMovieFeeInCents());
+        assertEquals(1000, pricing.quote(showing));
+        showing.reserveSeats(80);
+        assertEquals(1180, pricing.quote(showing));
+        showing.reserveSeats(20);
+        assertEquals(1300, pricing.quote(showing));
+
+        //90 minutes before the start a nearly empty showing gets cheaper
+        clock.set(Instant.parse("2030-03-08T18:30:00Z"));
+        Showing lastMinute = newShowing();
+        assertEquals(800, pricing.quote(lastMinute));
+        lastMinute.reserveSeats(10);
+        assertEquals(860, pricing.quote(lastMinute));
+        clock.set(Instant.parse("2030-03-09T00:00:00Z"));
+        assertEquals(860, pricing.quote(lastMinute));
+        assertEquals(10_000, pricing.getMultiplier(0, DemandPricing.LEAD_HOURS));
+    }
+
+    @Test
+    void testCurveIsRecomputedOnTheExecutor() {
+        MutableClock clock = new MutableClock(Instant.parse("2030-03-01T00:00:00Z"), ZoneOffset.UTC);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DemandPricing pricing = new DemandPricing((fillRate, hoursToStart) -> 1, clock, executor);
+            Showing showing = newShowing();
+            pricing.changeCurve((fillRate, hoursToStart) -> 1.5 + fillRate).join();
+            assertEquals(1500, pricing.quote(showing));
+            showing.reserveSeats(50);
+            assertEquals(2000, pricing.quote(showing));
+
+            //a broken curve leaves the last table in place
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> pricing.changeCurve((fillRate, hoursToStart) -> fillRate - 1).join());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals(2000, pricing.quote(showing));
+            //and the last valid curve keeps being recomputed
+            pricing.recompute().join();
+            showing.reserveSeats(50);
+            assertEquals(2500, pricing.quote(showing));
+            assertThrows(IllegalStateException.class, () -> pricing.changeCurve(null));
+            assertThrows(IllegalStateException.class, () -> new DemandPricing((fillRate, hoursToStart) -> Double.NaN, clock));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testReservationsKeepTheQuotedFee() {
+        MutableClock clock = new MutableClock(Instant.parse("2030-03-01T00:00:00Z"), ZoneOffset.UTC);
+        Showing showing = newShowing();
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        schedule.put(showDate, List.of(showing));
+        Theater theater = new Theater(new LocalDateProvider(clock), schedule);
+        Customer customer = new Customer("Rajesh", "1");
+
+        Reservation beforePricing = theater.reserve(customer, showing.getId(), 60);
+        assertEquals(1000, beforePricing.getTicketFeeInCents());
+        theater.setDemandPricing(new DemandPricing(DemandPricing.DEFAULT_CURVE, clock, Runnable::run));
+        SeatHold hold = theater.hold(customer, showing.getId(), 10, Duration.ofMinutes(10));
+        assertEquals(1060, hold.getTicketFeeInCents());
+        Reservation duringPeak = theater.reserve(customer, showing.getId(), 2);
+        assertEquals(1120, duringPeak.getTicketFeeInCents());
+        assertEquals(22.4, duringPeak.getTotalFee());
+        assertEquals(1060, theater.confirm(hold).getTicketFeeInCents());
+
+        theater.changeTicketPrice(theBatMan, 20);
+        assertEquals(1000, beforePricing.getTicketFeeInCents());
+        assertEquals(22.4, duringPeak.getTotalFee());
+        assertEquals(2240, theater.quote(showing));
+        theater.setDemandPricing(null);
+        assertEquals(2000, theater.quote(showing));
+        assertEquals(22.4, theater.refund(duringPeak.getId()));
+    }
+}
@@ -0,0 +1,108 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscountRuleSetTests {
+
+    private final Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+
+    @Test
+    void testDefaultRuleSetReportsWinningRule() {
+        LocalDate notThe7th = LocalDate.of(2022, 3, 8);
+        AppliedDiscount special = DiscountRuleSet.DEFAULT.evaluate(spiderMan, 3, LocalDateTime.of(notThe7th, LocalTime.of(10, 0)));
+        assertEquals("special movie 1", special.getRuleName());
+        assertEquals(2.5, special.getAmount());
+        assertEquals(250, special.getAmountInCents());
+
+        AppliedDiscount firstShow = DiscountRuleSet.DEFAULT.evaluate(spiderMan, 1, LocalDateTime.of(notThe7th, LocalTime.of(10, 0)));
+        assertEquals("showing #1 of the day", firstShow.getRuleName());
+        assertEquals(3.0, firstShow.getAmount());
+
+        AppliedDiscount afternoon = DiscountRuleSet.DEFAULT.evaluate(theBatMan, 2, LocalDateTime.of(notThe7th, LocalTime.of(12, 0)));
+        assertEquals("start between 11h and 16h", afternoon.getRuleName());
+        assertEquals(2.25, afternoon.getAmount());
+
+        AppliedDiscount on7th = DiscountRuleSet.DEFAULT.evaluate(theBatMan, 5, LocalDateTime.of(2022, 3, 7, 20, 0));
+        assertEquals("showing on day 7", on7th.getRuleName());
+        assertEquals(1.0, on7th.getAmount());
+
+        AppliedDiscount none = DiscountRuleSet.DEFAULT.evaluate(theBatMan, 5, LocalDateTime.of(notThe7th, LocalTime.of(20, 0)));
+        assertSame(AppliedDiscount.NONE, none);
+        assertNull(none.getRuleName());
+    }
+
+    @Test
+    void testRulesWhichCannotApplyAreSkipped() {
+        List<DiscountRule> on8thInTheEvening = DiscountRuleSet.DEFAULT.getApplicableRules(8, 20);
+        assertEquals(3, on8thInTheEvening.size());
+        assertTrue(on8thInTheEvening.stream().noneMatch(rule -> rule.getName().equals("showing on day 7")));
+
+        assertEquals(5, DiscountRuleSet.DEFAULT.getApplicableRules(7, 12).size());
+        assertEquals(5, DiscountRuleSet.DEFAULT.getRules().size());
+    }
+
+    @Test
+    void testCustomRuleIsNeverEvaluatedOutsideItsSlot() {
+        DiscountRule lateNight = new DiscountRule() {
+            @Override
+            public String getName() {
+                return "late night";
+            }
+
+            @Override
+            public boolean canApply(int dayOfMonth, int hour) {
+                return hour >= 22;
+            }
+
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                if (showStartTime.getHour() < 22) {
+                    fail("rule should have been skipped");
+                }
+                return 400;
+            }
+        };
+        DiscountRuleSet ruleSet = DiscountRuleSet.compile(List.of(DiscountRules.sequenceOfTheDay(1, 3), lateNight));
+        assertEquals(AppliedDiscount.NONE, ruleSet.evaluate(theBatMan, 5, LocalDateTime.of(2022, 3, 8, 21, 0)));
+        assertEquals("late night", ruleSet.evaluate(theBatMan, 1, LocalDateTime.of(2022, 3, 8, 23, 0)).getRuleName());
+
+        Showing showing = new Showing(theBatMan, Theater.DEFAULT_SCREEN, 1, LocalDateTime.of(2022, 3, 8, 23, 0), ruleSet);
+        assertEquals(5.0, showing.getDiscountedMovieFee());
+        assertEquals("late night", showing.getAppliedDiscount().getRuleName());
+    }
+
+    @Test
+    void testRuleWhoseDiscountDependsOnTheStartTimeIsRejected() {
+        DiscountRule eveningByTheHour = new DiscountRule() {
+            @Override
+            public String getName() {
+                return "evening by the hour";
+            }
+
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                //not told to the rule set through canApply, so a memoized discount would be wrong for other hours
+                return showStartTime.getHour() >= 18 ? 100 : 0;
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> {
+            DiscountRuleSet.compile(List.of(eveningByTheHour));
+        });
+    }
+
+    @Test
+    void testCompileWithMissingRules() {
+        assertThrows(IllegalStateException.class, () -> {
+            DiscountRuleSet.compile(null);
+        });
+    }
+}
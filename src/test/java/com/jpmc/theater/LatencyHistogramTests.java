@@ -0,0 +1,49 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTests {
+
+    @Test
+    void testBucketsCoverEveryValue() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000, 1_000_000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            assertTrue(highest >= value, value + " above its bucket " + highest);
+            //about 3% precision
+            assertTrue(highest - value <= value / 32, value + " too far from its bucket " + highest);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(5_000.5, snapshot.getMean());
+        assertEquals(10_000, snapshot.getMax());
+        assertEquals(5_000, snapshot.getValueAtPercentile(50), 5_000 / 32.0);
+        assertEquals(9_900, snapshot.getValueAtPercentile(99), 9_900 / 32.0);
+        assertEquals(10_000, snapshot.getValueAtPercentile(100));
+        assertThrows(IllegalStateException.class, () -> {
+            snapshot.getValueAtPercentile(101);
+        });
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+}
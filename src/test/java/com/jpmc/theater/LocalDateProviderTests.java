@@ -2,14 +2,74 @@ package com.jpmc.theater;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class LocalDateProviderTests {
 
     @Test
     void makeSureCurrentTime() {
         assertEquals(LocalDate.now(), LocalDateProvider.singleton().currentDate());
+        assertSame(LocalDateProvider.singleton(), LocalDateProvider.singleton());
+        assertEquals(LocalDate.now(), new LocalDateProvider().currentDate());
+        assertEquals(ZoneId.systemDefault(), new LocalDateProvider().getZone());
+    }
+
+    @Test
+    void testDateRollsOverAtMidnightOfTheZone() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        MutableClock clock = new MutableClock(LocalDateTime.of(2022, 3, 7, 23, 59, 59).atZone(newYork).toInstant(), newYork);
+        LocalDateProvider provider = new LocalDateProvider(clock);
+        assertEquals(LocalDate.of(2022, 3, 7), provider.currentDate());
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(LocalDate.of(2022, 3, 8), provider.currentDate());
+        //the clock going back, e.g. corrected by NTP
+        clock.advance(Duration.ofSeconds(-1));
+        assertEquals(LocalDate.of(2022, 3, 7), provider.currentDate());
+    }
+
+    @Test
+    void testSameInstantDiffersBetweenZones() {
+        MutableClock utc = new MutableClock(LocalDateTime.of(2022, 3, 8, 2, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        assertEquals(LocalDate.of(2022, 3, 8), new LocalDateProvider(utc).currentDate());
+        assertEquals(LocalDate.of(2022, 3, 7), new LocalDateProvider(utc.withZone(ZoneId.of("America/Los_Angeles"))).currentDate());
+    }
+
+    @Test
+    void testDaylightSavingChange() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        //clocks moved forward at 2am on 2022-03-13, so that day has 23 hours
+        MutableClock clock = new MutableClock(LocalDateTime.of(2022, 3, 13, 0, 0).atZone(newYork).toInstant(), newYork);
+        LocalDateProvider provider = new LocalDateProvider(clock);
+        clock.advance(Duration.ofHours(23).minusSeconds(1));
+        assertEquals(LocalDate.of(2022, 3, 13), provider.currentDate());
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(LocalDate.of(2022, 3, 14), provider.currentDate());
+    }
+
+    @Test
+    void testTheaterRejectsReservationsOnceTheDayIsOver() {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2022, 3, 8, 12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        LocalDate showDate = LocalDate.of(2022, 3, 8);
+        Theater theater = new Theater(new LocalDateProvider(clock), Theater.sampleSchedule(showDate));
+        theater.reserve(new Customer("Rajesh", "1"), showDate, 9, 1);
+        clock.advance(Duration.ofHours(12));
+        assertThrows(ReservationRejectedException.class, () -> {
+            theater.reserve(new Customer("Rajesh", "1"), showDate, 9, 1);
+        });
+    }
+
+    @Test
+    void testInvalidProvider() {
+        assertThrows(IllegalStateException.class, () -> {
+            new LocalDateProvider(null);
+        });
     }
 }
@@ -0,0 +1,53 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashIndexTests {
+
+    @Test
+    void testPutAndGet() {
+        LongHashIndex<String> index = new LongHashIndex<>();
+        assertNull(index.put(42L, "a"));
+        assertNull(index.put(-7L, "b"));
+        assertNull(index.put(0L, "zero"));
+        assertEquals("a", index.get(42L));
+        assertEquals("b", index.get(-7L));
+        assertEquals("zero", index.get(0L));
+        assertNull(index.get(43L));
+        assertEquals("a", index.put(42L, "c"));
+        assertEquals("c", index.get(42L));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testPutNullValue() {
+        LongHashIndex<String> index = new LongHashIndex<>();
+        assertThrows(IllegalStateException.class, () -> {
+            index.put(1L, null);
+        });
+    }
+
+    @Test
+    void testGrowAndRemoveAgainstHashMap() {
+        LongHashIndex<Long> index = new LongHashIndex<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            //showing ids share most of their high bits, so keep the keys close together
+            long key = (29_000_000L + random.nextInt(5_000)) << 20 | random.nextInt(24);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), index.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), index.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        expected.forEach((key, value) -> assertEquals(value, index.get(key)));
+    }
+}
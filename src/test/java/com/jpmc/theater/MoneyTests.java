@@ -0,0 +1,55 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MoneyTests {
+
+    @Test
+    void testFromDouble() {
+        assertEquals(1250, Money.fromDouble(12.5));
+        assertEquals(938, Money.fromDouble(9.38));
+        assertEquals(0, Money.fromDouble(0.0));
+        assertEquals(-300, Money.fromDouble(-3));
+        //ties go to the even cent
+        assertEquals(12, Money.fromDouble(0.125));
+        assertEquals(14, Money.fromDouble(0.135));
+        assertEquals(13, Money.fromDouble(0.1251));
+    }
+
+    @Test
+    void testFromDoubleWithInvalidAmount() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            Money.fromDouble(Double.NaN);
+        });
+    }
+
+    @Test
+    void testToDouble() {
+        assertEquals(9.38, Money.toDouble(938));
+        assertEquals(12.5, Money.toDouble(1250));
+        assertEquals(0.0, Money.toDouble(0));
+    }
+
+    @Test
+    void testPercentageRoundsHalfEven() {
+        //25% of 12.50 is 3.125 -> 3.12, the same as Utility.roundOff
+        assertEquals(312, Money.percentage(1250, 2500));
+        assertEquals(Utility.roundOff(12.5 * 0.25), Money.toDouble(Money.percentage(1250, 2500)));
+        //25% of 12.70 is 3.175 -> 3.18
+        assertEquals(318, Money.percentage(1270, 2500));
+        assertEquals(250, Money.percentage(1250, 2000));
+        assertEquals(-312, Money.percentage(-1250, 2500));
+        assertEquals(2500, Money.toBasisPoints(0.25));
+    }
+
+    @Test
+    void testTimes() {
+        assertEquals(2814, Money.times(938, 3));
+        assertThrows(ArithmeticException.class, () -> {
+            Money.times(Long.MAX_VALUE / 2, 3);
+        });
+    }
+}
@@ -27,6 +27,18 @@ public class MovieTests {
         assertEquals(0, spiderMan.getSpecialCode());
     }
 
+    @Test
+    void testMovieWithAnotherTicketPrice() {
+        Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90),12.5, 1);
+        Movie repriced = spiderMan.withTicketPrice(14);
+        assertEquals(14.0, repriced.getTicketPrice());
+        assertEquals(12.5, spiderMan.getTicketPrice());
+        assertEquals(spiderMan, repriced.withTicketPrice(12.5));
+        assertThrows(IllegalStateException.class, () -> {
+            spiderMan.withTicketPrice(-1);
+        });
+    }
+
     @Test
     void testCreateMovieWithZeroTicketPrice() {
         Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90),0.0, 1);
@@ -0,0 +1,48 @@
+package com.jpmc.theater;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Clock for tests, which only moves when told to.
+ */
+public class MutableClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile long millis;
+
+    public MutableClock(Instant start, ZoneId zone) {
+        this.millis = start.toEpochMilli();
+        this.zone = zone;
+    }
+
+    public void advance(Duration duration) {
+        millis += duration.toMillis();
+    }
+
+    public void set(Instant instant) {
+        millis = instant.toEpochMilli();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new MutableClock(Instant.ofEpochMilli(millis), zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+}
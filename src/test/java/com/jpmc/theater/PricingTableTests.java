@@ -0,0 +1,127 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PricingTableTests {
+
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+
+    @Test
+    void testSameSlotClassIsEvaluatedOnce() {
+        AtomicInteger evaluations = new AtomicInteger();
+        DiscountRule counting = new DiscountRule() {
+            @Override
+            public String getName() {
+                return "counting";
+            }
+
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                evaluations.incrementAndGet();
+                return 100;
+            }
+        };
+        PricingTable pricingTable = DiscountRuleSet.compile(List.of(counting)).getPricingTable();
+        //not counting the sample showings the rule is checked with
+        evaluations.set(0);
+        //four weeks of the same movie, sequence and hour
+        for (int day = 1; day <= 28; day++) {
+            assertEquals(100, pricingTable.discountOf(theBatMan, 2, LocalDateTime.of(2022, 3, day, 20, 0)).getAmountInCents());
+        }
+        assertEquals(1, evaluations.get());
+        assertEquals(1, pricingTable.size());
+
+        pricingTable.discountOf(theBatMan, 3, LocalDateTime.of(2022, 3, 1, 20, 0));
+        pricingTable.discountOf(theBatMan.withTicketPrice(10), 2, LocalDateTime.of(2022, 3, 1, 20, 0));
+        assertEquals(3, evaluations.get());
+    }
+
+    @Test
+    void testSlotClassesFollowApplicableRules() {
+        DiscountRuleSet ruleSet = DiscountRuleSet.DEFAULT;
+        //day 7 has its own rule, so it is another class than day 8 at the same hour
+        assertEquals(ruleSet.slotClassOf(LocalDateTime.of(2022, 3, 8, 20, 0)), ruleSet.slotClassOf(LocalDateTime.of(2022, 3, 9, 21, 0)));
+        assertEquals(ruleSet.slotClassOf(LocalDateTime.of(2022, 3, 8, 12, 0)), ruleSet.slotClassOf(LocalDateTime.of(2022, 4, 30, 16, 0)));
+        assertNotEquals(ruleSet.slotClassOf(LocalDateTime.of(2022, 3, 7, 20, 0)), ruleSet.slotClassOf(LocalDateTime.of(2022, 3, 8, 20, 0)));
+        assertNotEquals(ruleSet.slotClassOf(LocalDateTime.of(2022, 3, 8, 12, 0)), ruleSet.slotClassOf(LocalDateTime.of(2022, 3, 8, 20, 0)));
+        //other hours, start time window, day 7 and day 7 within the window
+        assertEquals(4, ruleSet.getSlotClassCount());
+    }
+
+    @Test
+    void testMemoizedDiscountMatchesEvaluation() {
+        PricingTable pricingTable = DiscountRuleSet.DEFAULT.getPricingTable();
+        Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+        for (int hour = 0; hour < 24; hour++) {
+            for (int sequence = 1; sequence <= 3; sequence++) {
+                LocalDateTime startTime = LocalDateTime.of(2022, 3, 7, hour, 30);
+                assertEquals(DiscountRuleSet.DEFAULT.evaluate(spiderMan, sequence, startTime).getAmountInCents(),
+                        pricingTable.discountOf(spiderMan, sequence, startTime).getAmountInCents());
+            }
+        }
+        LocalDateTime startTime = LocalDateTime.of(2022, 3, 8, 20, 0);
+        assertSame(pricingTable.discountOf(spiderMan, 5, startTime), pricingTable.discountOf(spiderMan, 5, startTime.plusDays(1)));
+    }
+
+    @Test
+    void testDiscountsOfTheOldTicketPriceAreEvictedOnReprice() {
+        DiscountRule tenPercent = new DiscountRule() {
+            @Override
+            public String getName() {
+                return "ten percent";
+            }
+
+            @Override
+            public long getDiscount(Movie movie, int sequenceOfTheDay, LocalDateTime showStartTime) {
+                return movie.getTicketPriceInCents() / 10;
+            }
+        };
+        DiscountRuleSet discountRules = DiscountRuleSet.compile(List.of(tenPercent));
+        PricingTable pricingTable = discountRules.getPricingTable();
+        LocalDate showDate = LocalDate.now().plusDays(1);
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        schedule.put(showDate, List.of(
+                new Showing(theBatMan, Theater.DEFAULT_SCREEN, 1, LocalDateTime.of(showDate, LocalTime.of(10, 0)), discountRules),
+                new Showing(theBatMan, Theater.DEFAULT_SCREEN, 2, LocalDateTime.of(showDate, LocalTime.of(20, 0)), discountRules)));
+        Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        assertEquals(2, pricingTable.size());
+
+        Movie repriced = theater.changeTicketPrice(theBatMan, 10);
+        assertEquals(900, schedule.get(showDate).get(1).getDiscountedMovieFeeInCents());
+        //only the discounts of the new price are left
+        assertEquals(2, pricingTable.size());
+        assertEquals(0, pricingTable.evict(theBatMan));
+        assertEquals(2, pricingTable.evict(repriced));
+    }
+
+    @Test
+    void testTableIsClearedOnceFull() {
+        PricingTable pricingTable = new PricingTable(DiscountRuleSet.DEFAULT, 2);
+        LocalDateTime startTime = LocalDateTime.of(2022, 3, 8, 20, 0);
+        for (int price = 1; price <= 10; price++) {
+            pricingTable.discountOf(theBatMan.withTicketPrice(price), 1, startTime);
+            assertTrue(pricingTable.size() <= 2);
+        }
+        assertEquals(300, pricingTable.discountOf(theBatMan.withTicketPrice(10), 1, startTime).getAmountInCents());
+    }
+
+    @Test
+    void testFeeIsNeverNegative() {
+        assertEquals(500, PricingTable.feeOf(theBatMan, new AppliedDiscount(null, 400)));
+        assertEquals(0, PricingTable.feeOf(theBatMan, new AppliedDiscount(null, 1000)));
+    }
+}
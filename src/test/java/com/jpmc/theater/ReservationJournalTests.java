@@ -0,0 +1,254 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationJournalTests {
+
+    private Path directory;
+
+    private final LocalDateTime startTime = LocalDateTime.of(LocalDate.of(2030, 3, 8), LocalTime.of(9, 0));
+
+    @BeforeEach
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        try (var paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private final ReservationRegistry registry = new ReservationRegistry();
+
+    private Showing newShowing() {
+        return new Showing(new Movie("Turning Red", Duration.ofMinutes(85), 11), 1, startTime);
+    }
+
+    private Reservation newReservation(Showing showing, int[] seats) {
+        return registry.identify(new Reservation(new Customer("Rajesh", "1"), startTime.toLocalDate(), showing, seats, 1100));
+    }
+
+    @Test
+    void testReplayRebuildsSeats() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        Showing showing = newShowing();
+        int[] first = showing.reserveSeats(3);
+        int[] second = showing.reserveSeats(2);
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            Reservation cancelled = newReservation(showing, first);
+            journal.reserved(cancelled);
+            journal.reserved(newReservation(showing, second));
+            journal.released(cancelled);
+            assertEquals(3, journal.getAppendedRecords());
+        }
+
+        Showing restored = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertEquals(3, journal.replay(id -> id == restored.getId() ? restored : null));
+        }
+        assertEquals(Theater.SEATING_CAPACITY - 2, restored.getSeatsLeft());
+        for (int seat : second) {
+            assertTrue(restored.isSeatTaken(seat));
+        }
+        for (int seat : first) {
+            assertFalse(restored.isSeatTaken(seat));
+        }
+    }
+
+    @Test
+    void testBatchIsJournaledTogether() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        Showing showing = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            journal.reservedAll(List.of(newReservation(showing, new int[]{0, 1}), newReservation(showing, new int[]{5})));
+            assertEquals(2, journal.getAppendedRecords());
+        }
+        Showing restored = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertEquals(2, journal.replay(id -> restored));
+        }
+        assertEquals(Theater.SEATING_CAPACITY - 3, restored.getSeatsLeft());
+    }
+
+    @Test
+    void testReplaySkipsUnknownShowings() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            journal.reserved(newReservation(newShowing(), new int[]{1, 2}));
+        }
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertEquals(0, journal.replay(id -> null));
+        }
+    }
+
+    @Test
+    void testReplayTruncatesTornTail() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        Showing showing = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            journal.reserved(newReservation(showing, new int[]{0, 1}));
+        }
+        long validSize = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            //length and the start of a record, cut off by a crash
+            channel.write(ByteBuffer.allocate(7).putInt(21).put((byte) 1).flip());
+        }
+
+        Showing restored = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertEquals(1, journal.replay(id -> restored));
+            assertEquals(validSize, Files.size(file));
+            journal.reserved(newReservation(restored, new int[]{2}));
+        }
+        Showing restoredAgain = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertEquals(2, journal.replay(id -> restoredAgain));
+        }
+        assertEquals(Theater.SEATING_CAPACITY - 3, restoredAgain.getSeatsLeft());
+    }
+
+    @Test
+    void testReplayStopsAtCorruptRecord() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        Showing showing = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            journal.reserved(newReservation(showing, new int[]{0}));
+            journal.reserved(newReservation(showing, new int[]{1}));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            //flip a byte of the customer name of the last record
+            channel.write(ByteBuffer.allocate(1).put((byte) 7).flip(), Files.size(file) - 5);
+        }
+        Showing restored = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertEquals(1, journal.replay(id -> restored));
+        }
+        assertTrue(restored.isSeatTaken(0));
+        assertFalse(restored.isSeatTaken(1));
+    }
+
+    @Test
+    void testConcurrentAppendsAreAllDurable() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        Showing showing = newShowing();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < Theater.SEATING_CAPACITY; i++) {
+                futures.add(executor.submit(() -> journal.reserved(newReservation(showing, showing.reserveSeats(1)))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Showing restored = newShowing();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertEquals(Theater.SEATING_CAPACITY, journal.replay(id -> restored));
+        }
+        assertEquals(0, restored.getSeatsLeft());
+    }
+
+    @Test
+    void testAppendBeforeReplay() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        new ReservationJournal(file).close();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            assertThrows(IllegalStateException.class, () -> {
+                journal.reserved(newReservation(newShowing(), new int[]{0}));
+            });
+        }
+    }
+
+    @Test
+    void testNotAJournal() throws Exception {
+        Path file = directory.resolve("schedule.txt");
+        Files.writeString(file, "hello");
+        assertThrows(IllegalStateException.class, () -> {
+            new ReservationJournal(file);
+        });
+    }
+
+    @Test
+    void testTheaterRestoresReservationsAfterRestart() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        LocalDate today = LocalDateProvider.singleton().currentDate();
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            Theater theater = new Theater(LocalDateProvider.singleton(), scheduleFor(today), journal);
+            theater.reserve(new Customer("Rajesh", "1"), today, 1, 4);
+        }
+        Map<LocalDate, List<Showing>> schedule = scheduleFor(today);
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            new Theater(LocalDateProvider.singleton(), schedule, journal);
+        }
+        assertEquals(Theater.SEATING_CAPACITY - 4, schedule.get(today).get(0).getSeatsLeft());
+    }
+
+    @Test
+    void testReservationsCanBeCancelledAfterRestart() throws Exception {
+        Path file = directory.resolve("reservations.journal");
+        LocalDate today = LocalDateProvider.singleton().currentDate();
+        Reservation kept;
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            Theater theater = new Theater(LocalDateProvider.singleton(), scheduleFor(today), journal);
+            kept = theater.reserve(new Customer("Rajesh", "1"), today, 1, 4);
+            Reservation cancelled = theater.reserve(new Customer("Anna", "2"), today, 1, 2);
+            theater.cancel(cancelled.getId());
+        }
+        Map<LocalDate, List<Showing>> schedule = scheduleFor(today);
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            Theater theater = new Theater(LocalDateProvider.singleton(), schedule, journal);
+            Showing showing = schedule.get(today).get(0);
+            assertEquals(Theater.SEATING_CAPACITY - 4, showing.getSeatsLeft());
+            assertEquals(List.of(), theater.getBookings("2"));
+            Reservation restored = theater.getBookings("1").get(0);
+            assertEquals(kept.getId(), restored.getId());
+            assertEquals(new Customer("Rajesh", "1"), restored.getCustomer());
+            assertArrayEquals(kept.getSeats(), restored.getSeats());
+            assertEquals(kept.getTicketFeeInCents(), restored.getTicketFeeInCents());
+            //new reservations do not reuse the ids of the restored ones
+            assertTrue(theater.reserve(new Customer("Anna", "2"), today, 1, 1).getId() > kept.getId());
+            assertEquals(kept.getTotalFee(), theater.refund(kept.getId()));
+            assertEquals(Theater.SEATING_CAPACITY - 1, showing.getSeatsLeft());
+        }
+        //the refund after the restart is journaled as well
+        schedule = scheduleFor(today);
+        try (ReservationJournal journal = new ReservationJournal(file)) {
+            Theater theater = new Theater(LocalDateProvider.singleton(), schedule, journal);
+            assertNull(theater.getReservation(kept.getId()));
+            assertEquals(1, theater.getBookings("2").size());
+        }
+        assertEquals(Theater.SEATING_CAPACITY - 1, schedule.get(today).get(0).getSeatsLeft());
+    }
+
+    private static Map<LocalDate, List<Showing>> scheduleFor(LocalDate date) {
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        schedule.put(date, List.of(new Showing(new Movie("The Batman", Duration.ofMinutes(95), 9), 1, LocalDateTime.of(date, LocalTime.of(23, 0)))));
+        return schedule;
+    }
+}
@@ -0,0 +1,197 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationPipelineTests {
+
+    private final LocalDate today = LocalDate.now();
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+    private final Customer customer = new Customer("Rajesh", "1");
+
+    private Map<LocalDate, List<Showing>> schedule(LocalDate... days) {
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        for (LocalDate day : days) {
+            schedule.put(day, List.of(
+                    new Showing(theBatMan, 1, LocalDateTime.of(day, LocalTime.of(10, 0))),
+                    new Showing(theBatMan, 2, LocalDateTime.of(day, LocalTime.of(14, 0)))));
+        }
+        return schedule;
+    }
+
+    private static ReservationRejectedException.Reason reasonOf(CompletableFuture<Reservation> result) {
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        return ((ReservationRejectedException) e.getCause()).getReason();
+    }
+
+    @Test
+    void testRequestsAreAppliedByTheWriters() {
+        Map<LocalDate, List<Showing>> schedule = schedule(today.minusDays(1), today);
+        Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        try (ReservationPipeline pipeline = theater.startPipeline(2, 8)) {
+            Showing showing = schedule.get(today).get(1);
+            Reservation reservation = theater.reserveAsync(customer, showing.getId(), 3).join();
+            assertSame(showing, reservation.getShowing());
+            assertEquals(today, reservation.getShowDate());
+            assertEquals(3, reservation.getSeats().length);
+            assertEquals(97, showing.getSeatsLeft());
+
+            assertEquals(ReservationRejectedException.Reason.NO_SHOWING, reasonOf(theater.reserveAsync(customer, 42, 1)));
+            assertEquals(ReservationRejectedException.Reason.PAST_DATE,
+                    reasonOf(theater.reserveAsync(customer, schedule.get(today.minusDays(1)).get(0).getId(), 1)));
+            assertEquals(ReservationRejectedException.Reason.SOLD_OUT, reasonOf(theater.reserveAsync(customer, showing.getId(), 98)));
+
+            //the blocking reservations go through the pipeline as well and see its rejections as their own
+            assertEquals(2, theater.reserve(customer, today, 1, 2).getAudienceCount());
+            assertEquals(1, theater.reserve(customer, today, Theater.DEFAULT_SCREEN, 2, 1).getAudienceCount());
+            assertThrows(ReservationRejectedException.class, () -> theater.reserve(customer, showing.getId(), 98));
+            assertEquals(7, pipeline.getProcessed());
+            assertThrows(IllegalStateException.class, () -> theater.startPipeline(1, 8));
+            assertThrows(IllegalStateException.class, () -> pipeline.submit(null, showing.getId(), 1));
+        }
+        assertEquals(3, theater.metricsSnapshot().getReservations());
+    }
+
+    @Test
+    void testClosedPipelineFallsBackToTheCallingThread() {
+        Map<LocalDate, List<Showing>> schedule = schedule(today);
+        Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        ReservationPipeline pipeline = theater.startPipeline(1, 4);
+        Showing showing = schedule.get(today).get(0);
+        List<CompletableFuture<Reservation>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(pipeline.submit(customer, showing.getId(), 1));
+        }
+        pipeline.close();
+        //everything published before the close is applied
+        results.forEach(result -> assertTrue(result.isDone()));
+        assertEquals(80, showing.getSeatsLeft());
+        assertTrue(pipeline.isClosed());
+        assertThrows(IllegalStateException.class, () -> pipeline.submit(customer, showing.getId(), 1));
+
+        assertEquals(2, theater.reserve(customer, showing.getId(), 2).getAudienceCount());
+        assertEquals(20, pipeline.getProcessed());
+        try (ReservationPipeline restarted = theater.startPipeline(1, 4)) {
+            assertEquals(1, theater.reserveAsync(customer, showing.getId(), 1).join().getAudienceCount());
+            assertEquals(1, restarted.getProcessed());
+        }
+    }
+
+    @Test
+    void testConcurrentBuyersNeverOversell() throws Exception {
+        Map<LocalDate, List<Showing>> schedule = schedule(today);
+        Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        Showing showing = schedule.get(today).get(0);
+        int threads = 4;
+        int requestsPerThread = 60;
+        List<CompletableFuture<Reservation>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (ReservationPipeline pipeline = theater.startPipeline(2, 16)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<CompletableFuture<Reservation>>>> submitted = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                submitted.add(executor.submit(() -> {
+                    start.await();
+                    List<CompletableFuture<Reservation>> own = new ArrayList<>();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        own.add(pipeline.submit(customer, showing.getId(), 1));
+                    }
+                    return own;
+                }));
+            }
+            start.countDown();
+            for (var future : submitted) {
+                results.addAll(future.get(10, TimeUnit.SECONDS));
+            }
+            CompletableFuture.allOf(results.stream().map(result -> result.exceptionally(e -> null)).toArray(CompletableFuture[]::new))
+                    .get(10, TimeUnit.SECONDS);
+            //runs of requests for the same showing are applied together
+            assertTrue(pipeline.getBatches() <= pipeline.getProcessed());
+        } finally {
+            executor.shutdown();
+        }
+        long booked = results.stream().filter(result -> !result.isCompletedExceptionally()).count();
+        assertEquals(Theater.SEATING_CAPACITY, booked);
+        assertEquals(0, showing.getSeatsLeft());
+        assertEquals(threads * requestsPerThread - Theater.SEATING_CAPACITY,
+                results.stream().filter(CompletableFuture::isCompletedExceptionally).count());
+    }
+
+    @Test
+    void testBatchesAreJournaled() throws Exception {
+        Path file = Files.createTempFile("pipeline", ".journal");
+        Files.delete(file);
+        try {
+            try (ReservationJournal journal = new ReservationJournal(file)) {
+                Map<LocalDate, List<Showing>> schedule = schedule(today);
+                Theater theater = new Theater(LocalDateProvider.singleton(), schedule, journal);
+                try (ReservationPipeline pipeline = theater.startPipeline(1, 32)) {
+                    List<CompletableFuture<Reservation>> results = new ArrayList<>();
+                    for (int i = 0; i < 10; i++) {
+                        results.add(pipeline.submit(customer, schedule.get(today).get(i % 2).getId(), 2));
+                    }
+                    results.forEach(CompletableFuture::join);
+                }
+                assertEquals(10, journal.getAppendedRecords());
+            }
+            try (ReservationJournal journal = new ReservationJournal(file)) {
+                Map<LocalDate, List<Showing>> schedule = schedule(today);
+                new Theater(LocalDateProvider.singleton(), schedule, journal);
+                assertEquals(90, schedule.get(today).get(0).getSeatsLeft());
+                assertEquals(90, schedule.get(today).get(1).getSeatsLeft());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testWriterSurvivesAFailingQuote() {
+        Map<LocalDate, List<Showing>> schedule = schedule(today);
+        Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        Showing showing = schedule.get(today).get(0);
+        Showing broken = schedule.get(today).get(1);
+        ReservationRegistry registry = new ReservationRegistry();
+        ToLongFunction<Showing> quotes = quoted -> {
+            if (quoted == broken) {
+                throw new AssertionError("no price for the showing");
+            }
+            return quoted.getDiscountedMovieFeeInCents();
+        };
+        try (ReservationPipeline pipeline = new ReservationPipeline(theater::getShowing, quotes, LocalDateProvider.singleton(), null, registry, 1, 8)) {
+            CompletableFuture<Reservation> first = pipeline.submit(customer, showing.getId(), 2);
+            CompletableFuture<Reservation> failed = pipeline.submit(customer, broken.getId(), 2);
+            CompletionException e = assertThrows(CompletionException.class, failed::join);
+            assertTrue(e.getCause() instanceof AssertionError);
+            //requests batched with the failing one are failed as well unless they were handed out, and keep no seats
+            if (first.isCompletedExceptionally()) {
+                assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+            } else {
+                assertEquals(Theater.SEATING_CAPACITY - 2, showing.getSeatsLeft());
+            }
+            assertEquals(Theater.SEATING_CAPACITY, broken.getSeatsLeft());
+            //the writer keeps applying requests
+            assertEquals(3, pipeline.submit(customer, showing.getId(), 3).join().getAudienceCount());
+        }
+    }
+}
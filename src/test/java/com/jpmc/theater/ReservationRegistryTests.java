@@ -0,0 +1,118 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationRegistryTests {
+
+    private final LocalDate showDate = LocalDate.of(2030, 3, 8);
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+    private final Showing morning = new Showing(theBatMan, 1, LocalDateTime.of(showDate, LocalTime.of(10, 0)));
+    private final Showing evening = new Showing(theBatMan, 2, LocalDateTime.of(showDate, LocalTime.of(19, 0)));
+
+    private Reservation newReservation(Customer customer, Showing showing) {
+        return new Reservation(customer, showDate, showing, showing.reserveSeats(2));
+    }
+
+    @Test
+    void testReservationsAreIndexedByCustomerAndShowing() {
+        ReservationRegistry registry = new ReservationRegistry();
+        Customer rajesh = new Customer("Rajesh", "1");
+        Customer anna = new Customer("Anna", "2");
+        Reservation first = registry.register(newReservation(rajesh, morning));
+        Reservation second = registry.register(newReservation(anna, morning));
+        Reservation third = registry.register(newReservation(rajesh, evening));
+        assertEquals(1, first.getId());
+        assertEquals(3, third.getId());
+        assertSame(second, registry.get(second.getId()));
+        assertNull(registry.get(42));
+        assertEquals(List.of(first, third), registry.getByCustomer("1"));
+        assertEquals(List.of(first, second), registry.getByShowing(morning.getId()));
+        assertEquals(List.of(), registry.getByCustomer("3"));
+        assertEquals(3, registry.size());
+
+        assertTrue(registry.remove(first));
+        assertFalse(registry.remove(first));
+        assertNull(registry.get(first.getId()));
+        assertEquals(List.of(third), registry.getByCustomer("1"));
+        assertEquals(List.of(second), registry.getByShowing(morning.getId()));
+        assertEquals(2, registry.size());
+
+        assertThrows(IllegalStateException.class, () -> registry.register(third));
+        assertThrows(IllegalStateException.class, () -> registry.register(null));
+    }
+
+    @Test
+    void testConcurrentRegistrationsGetUniqueIds() throws Exception {
+        ReservationRegistry registry = new ReservationRegistry();
+        Showing showing = new Showing(theBatMan, new Screen(2, "Screen 2", 40, 50), 1, LocalDateTime.of(showDate, LocalTime.of(10, 0)));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Reservation>>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Customer customer = new Customer("Customer " + t, String.valueOf(t));
+                results.add(executor.submit(() -> {
+                    List<Reservation> registered = new ArrayList<>();
+                    for (int i = 0; i < 250; i++) {
+                        Reservation reservation = registry.register(newReservation(customer, showing));
+                        registered.add(reservation);
+                        if (i % 2 == 1) {
+                            assertTrue(registry.remove(reservation));
+                        }
+                    }
+                    return registered;
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Reservation>> result : results) {
+                result.get().forEach(reservation -> ids.add(reservation.getId()));
+            }
+            assertEquals(1000, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(500, registry.size());
+        assertEquals(500, registry.getByShowing(showing.getId()).size());
+        assertEquals(125, registry.getByCustomer("3").size());
+    }
+
+    @Test
+    void testRecordGivesBackTheSeatsWhenTheJournalFails() throws Exception {
+        ReservationRegistry registry = new ReservationRegistry();
+        Showing showing = new Showing(theBatMan, 3, LocalDateTime.of(showDate, LocalTime.of(22, 0)));
+        List<Reservation> reservations = List.of(newReservation(new Customer("Rajesh", "1"), showing),
+                newReservation(new Customer("Anna", "2"), showing));
+        Path file = Files.createTempFile("reservations", ".journal");
+        try {
+            Files.delete(file);
+            new ReservationJournal(file).close();
+            //an existing journal which is not replayed refuses appends
+            try (ReservationJournal journal = new ReservationJournal(file)) {
+                assertThrows(IllegalStateException.class, () -> registry.record(reservations, journal));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+        assertEquals(0, registry.size());
+
+        Reservation reservation = registry.record(newReservation(new Customer("Rajesh", "1"), showing), null);
+        assertTrue(reservation.getId() > 0);
+        assertNull(registry.get(reservation.getId()));
+    }
+}
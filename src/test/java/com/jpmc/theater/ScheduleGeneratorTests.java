@@ -0,0 +1,143 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScheduleGeneratorTests {
+
+    private static final Duration CLEANING = Duration.ofMinutes(15);
+
+    private final Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+    private final Movie turningRed = new Movie("Turning Red", Duration.ofMinutes(85), 11);
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+    private final List<Movie> movies = List.of(spiderMan, turningRed, theBatMan);
+
+    @Test
+    void testShowingsDoNotOverlapAndFitOpeningHours() {
+        List<Screen> screens = List.of(screen(1), screen(2), screen(3));
+        LocalDate from = LocalDate.of(2022, 3, 7);
+        Map<LocalDate, List<Showing>> schedule = new ScheduleGenerator(movies, screens, LocalTime.of(10, 0), LocalTime.of(23, 30), CLEANING)
+                .generate(from, from.plusDays(6));
+        assertEquals(7, schedule.size());
+        for (Map.Entry<LocalDate, List<Showing>> entry : schedule.entrySet()) {
+            List<Showing> showings = entry.getValue();
+            //810 minutes open, a showing takes at most 95 + 15 minutes: 8 showings per screen
+            assertEquals(3 * 8, showings.size());
+            for (int i = 0; i < showings.size(); i++) {
+                Showing showing = showings.get(i);
+                LocalDateTime start = showing.getStartTime();
+                assertEquals(entry.getKey(), start.toLocalDate());
+                assertTrue(!start.toLocalTime().isBefore(LocalTime.of(10, 0)));
+                assertTrue(!start.plus(showing.getMovie().getRunningTime()).toLocalTime().isAfter(LocalTime.of(23, 30)));
+                assertEquals(0, start.getMinute() % ScheduleGenerator.START_TIME_GRID_MINUTES);
+                if (i > 0 && showings.get(i - 1).getScreen().equals(showing.getScreen())) {
+                    Showing previous = showings.get(i - 1);
+                    assertTrue(!previous.getStartTime().plus(previous.getMovie().getRunningTime()).plus(CLEANING).isAfter(start));
+                    assertNotEquals(previous.getMovie(), showing.getMovie());
+                    assertEquals(previous.getSequenceOfTheDay() + 1, showing.getSequenceOfTheDay());
+                }
+            }
+        }
+        //unique ids, so the schedule can be loaded into a theater
+        Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        assertEquals(8, theater.getShowings(from, screen(2)).size());
+    }
+
+    @Test
+    void testPackingLeavesTheSmallestGap() {
+        //a 5h window; 100 + 130 + 45 minutes of movies plus 10 minutes cleaning
+        List<Movie> odd = List.of(new Movie("A", Duration.ofMinutes(100), 10), new Movie("B", Duration.ofMinutes(130), 10), new Movie("C", Duration.ofMinutes(45), 10));
+        ScheduleGenerator generator = new ScheduleGenerator(odd, List.of(screen(1)), LocalTime.of(12, 0), LocalTime.of(17, 0), Duration.ofMinutes(10));
+        for (int rotation = 0; rotation < 3; rotation++) {
+            List<Showing> showings = generator.plan(LocalDate.of(2022, 3, 8), screen(1), rotation);
+            long screened = showings.stream().mapToLong(showing -> showing.getMovie().getRunningTime().toMinutes()).sum();
+            assertEquals(bestScreenedMinutes(odd, 0, 300, null), screened);
+        }
+    }
+
+    // exhaustive search of the most screened minutes, start times on the 5 minute grid
+    private static long bestScreenedMinutes(List<Movie> movies, int startMinute, int openMinutes, Movie last) {
+        long best = 0;
+        for (Movie movie : movies) {
+            int running = (int) movie.getRunningTime().toMinutes();
+            if (movie.equals(last) || startMinute + running > openMinutes) {
+                continue;
+            }
+            int next = startMinute + (running + 10 + 4) / 5 * 5;
+            best = Math.max(best, running + bestScreenedMinutes(movies, next, openMinutes, movie));
+        }
+        return best;
+    }
+
+    @Test
+    void testParallelAndSequentialGenerationAgree() {
+        List<Screen> screens = List.of(screen(1), screen(2), screen(3), screen(4), screen(5));
+        ScheduleGenerator generator = new ScheduleGenerator(movies, screens, LocalTime.of(9, 0), LocalTime.MIDNIGHT, CLEANING);
+        LocalDate from = LocalDate.of(2022, 3, 1);
+        Map<LocalDate, List<Showing>> parallel = generator.generate(from, from.plusDays(30));
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            Map<LocalDate, List<Showing>> sequential = generator.generate(from, from.plusDays(30), single);
+            assertEquals(parallel.keySet(), sequential.keySet());
+            for (LocalDate date : parallel.keySet()) {
+                assertEquals(parallel.get(date).toString(), sequential.get(date).toString());
+            }
+        } finally {
+            single.shutdown();
+        }
+        //screens and days do not all get the same lineup
+        Set<Movie> firstMovies = new HashSet<>();
+        parallel.get(from).forEach(showing -> {
+            if (showing.getSequenceOfTheDay() == 1) {
+                firstMovies.add(showing.getMovie());
+            }
+        });
+        assertTrue(firstMovies.size() > 1);
+    }
+
+    @Test
+    void testMovieLongerThanOpeningHoursIsNotScheduled() {
+        Movie epic = new Movie("Epic", Duration.ofHours(5), 20);
+        ScheduleGenerator generator = new ScheduleGenerator(List.of(epic), List.of(screen(1)), LocalTime.of(18, 0), LocalTime.of(22, 0), CLEANING);
+        Map<LocalDate, List<Showing>> schedule = generator.generate(LocalDate.of(2022, 3, 8), LocalDate.of(2022, 3, 8));
+        assertTrue(schedule.get(LocalDate.of(2022, 3, 8)).isEmpty());
+    }
+
+    @Test
+    void testInvalidGenerator() {
+        assertThrows(IllegalStateException.class, () -> {
+            new ScheduleGenerator(List.of(), List.of(screen(1)), LocalTime.of(10, 0), LocalTime.of(22, 0), CLEANING);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new ScheduleGenerator(movies, List.of(screen(1), screen(1)), LocalTime.of(10, 0), LocalTime.of(22, 0), CLEANING);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new ScheduleGenerator(movies, List.of(screen(1)), LocalTime.of(22, 0), LocalTime.of(10, 0), CLEANING);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new ScheduleGenerator(movies, List.of(screen(1)), LocalTime.of(10, 0), LocalTime.of(22, 0), Duration.ofMinutes(-1));
+        });
+        ScheduleGenerator generator = new ScheduleGenerator(movies, List.of(screen(1)), LocalTime.of(10, 0), LocalTime.of(22, 0), CLEANING);
+        assertThrows(IllegalStateException.class, () -> {
+            generator.generate(LocalDate.of(2022, 3, 8), LocalDate.of(2022, 3, 7));
+        });
+    }
+
+    private static Screen screen(int number) {
+        return new Screen(number, "Screen " + number, Theater.SEATING_ROWS, Theater.SEATS_PER_ROW);
+    }
+}
@@ -0,0 +1,138 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleIndexTests {
+
+    private final LocalDate today = LocalDate.now();
+    private final Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+    private final Screen screen1 = new Screen(1, "Screen 1", 10, 10);
+    private final Screen screen2 = new Screen(2, "Screen 2", 20, 24);
+
+    private ScheduleIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new ScheduleIndex();
+        //added out of order on purpose
+        index.add(today, new Showing(theBatMan, screen2, 2, at(today, 21, 0)));
+        index.add(today, new Showing(spiderMan, screen1, 1, at(today, 17, 0)));
+        index.add(today, new Showing(theBatMan, screen1, 2, at(today, 19, 0)));
+        index.add(today, new Showing(spiderMan, screen2, 1, at(today, 19, 30)));
+        index.add(today.plusDays(1), new Showing(spiderMan, screen1, 1, at(today.plusDays(1), 10, 0)));
+    }
+
+    @Test
+    void testGetShowingsOfScreenOrderedByStartTime() {
+        List<Showing> showings = index.getShowings(today, screen1);
+        assertEquals(2, showings.size());
+        assertEquals(at(today, 17, 0), showings.get(0).getStartTime());
+        assertEquals(at(today, 19, 0), showings.get(1).getStartTime());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void testGetShowingsOfDateOrderedByScreen() {
+        List<Showing> showings = index.getShowings(today);
+        assertEquals(4, showings.size());
+        assertEquals(screen1, showings.get(0).getScreen());
+        assertEquals(screen1, showings.get(1).getScreen());
+        assertEquals(screen2, showings.get(2).getScreen());
+        assertEquals(screen2, showings.get(3).getScreen());
+    }
+
+    @Test
+    void testFindShowingBySequence() {
+        assertEquals(at(today, 21, 0), index.findShowing(today, screen2, 2).getStartTime());
+        assertNull(index.findShowing(today, screen2, 3));
+        assertNull(index.findShowing(today.plusDays(2), screen1, 1));
+    }
+
+    @Test
+    void testNextShowingsOfMovieOnAnyScreen() {
+        List<Showing> showings = index.nextShowings(spiderMan, at(today, 19, 0), 10);
+        assertEquals(2, showings.size());
+        assertEquals(at(today, 19, 30), showings.get(0).getStartTime());
+        assertEquals(at(today.plusDays(1), 10, 0), showings.get(1).getStartTime());
+
+        assertEquals(1, index.nextShowings(spiderMan, at(today, 19, 0), 1).size());
+        assertTrue(index.nextShowings(theBatMan, at(today, 21, 0), 10).isEmpty());
+    }
+
+    @Test
+    void testAddTwoShowingsAtSameTimeOnSameScreen() {
+        assertThrows(IllegalStateException.class, () -> {
+            index.add(today, new Showing(theBatMan, screen1, 3, at(today, 17, 0)));
+        });
+    }
+
+    @Test
+    void testAddOverlappingShowings() {
+        //spider-man runs 17:00 - 18:30 on screen 1
+        assertThrows(IllegalStateException.class, () -> {
+            index.add(today, new Showing(theBatMan, screen1, 3, at(today, 18, 0)));
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            index.add(today, new Showing(theBatMan, screen1, 3, at(today, 15, 30)));
+        });
+        //back to back is fine, and other screens are not affected
+        index.add(today, new Showing(theBatMan, screen1, 3, at(today, 15, 25)));
+        index.add(today, new Showing(theBatMan, new Screen(3, "Screen 3", 10, 10), 1, at(today, 18, 0)));
+        assertEquals(7, index.size());
+        assertNull(index.findOverlap(screen1, at(today, 18, 30), at(today, 19, 0)));
+        assertEquals(at(today, 19, 0), index.findOverlap(screen1, at(today, 18, 30), at(today, 19, 1)).getStartTime());
+    }
+
+    @Test
+    void testOverlapAcrossMidnight() {
+        //the batman runs 23:30 - 01:05 on screen 1
+        index.add(today, new Showing(theBatMan, screen1, 3, at(today, 23, 30)));
+        assertThrows(IllegalStateException.class, () -> {
+            index.add(today.plusDays(1), new Showing(spiderMan, screen1, 2, at(today.plusDays(1), 1, 0)));
+        });
+        index.add(today.plusDays(1), new Showing(spiderMan, screen1, 2, at(today.plusDays(1), 1, 5)));
+        assertEquals(theBatMan, index.playingAt(screen1, at(today.plusDays(1), 0, 30)).getMovie());
+    }
+
+    @Test
+    void testPlayingAt() {
+        assertNull(index.playingAt(screen1, at(today, 16, 59)));
+        assertEquals(at(today, 17, 0), index.playingAt(screen1, at(today, 17, 0)).getStartTime());
+        //ended at 18:30
+        assertNull(index.playingAt(screen1, at(today, 18, 30)));
+
+        List<Showing> playing = index.playingAt(at(today, 20, 0));
+        assertEquals(2, playing.size());
+        assertEquals(screen1, playing.get(0).getScreen());
+        assertEquals(screen2, playing.get(1).getScreen());
+        assertTrue(index.playingAt(at(today, 12, 0)).isEmpty());
+    }
+
+    @Test
+    void testReserveOnScreen() {
+        Theater theater = new Theater(LocalDateProvider.singleton(), Map.of(today, index.getShowings(today)));
+        Reservation reservation = theater.reserve(new Customer("Rajesh", "1"), today, screen2, 1, 4);
+        assertEquals(screen2, reservation.getShowing().getScreen());
+        assertEquals(spiderMan, reservation.getShowing().getMovie());
+        assertEquals(screen2.getCapacity() - 4, reservation.getShowing().getSeatsLeft());
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserve(new Customer("Rajesh", "1"), today, screen2, 3, 1);
+        });
+        assertEquals(1, theater.nextShowings(theBatMan, at(today, 20, 0), 5).size());
+    }
+
+    private static LocalDateTime at(LocalDate date, int hour, int minute) {
+        return LocalDateTime.of(date, LocalTime.of(hour, minute));
+    }
+}
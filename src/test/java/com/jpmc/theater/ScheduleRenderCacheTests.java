@@ -0,0 +1,95 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleRenderCacheTests {
+
+    private static final String NL = System.lineSeparator();
+    private static final String RULER = "===================================================" + NL;
+
+    private final LocalDate showDate = LocalDate.of(2022, 3, 8);
+    private final Showing first = new Showing(new Movie("Turning Red", Duration.ofMinutes(85), 11), 1, LocalDateTime.of(showDate, LocalTime.of(9, 0)));
+    private final Showing second = new Showing(new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1), 2, LocalDateTime.of(showDate, LocalTime.of(11, 0)));
+    private final Map<LocalDate, List<Showing>> schedule = new HashMap<>(Map.of(showDate, new ArrayList<>(List.of(first, second))));
+    private final ScheduleRenderCache cache = new ScheduleRenderCache(schedule::get);
+
+    @Test
+    void testRenderText() throws Exception {
+        assertEquals(showDate + NL + RULER
+                + "1: 2022-03-08T09:00 Turning Red (1 hour 25 minutes) Seats left: 100 $11.0 (movieFee) --> $8.0 (discountedMovieFee)" + NL
+                + "2: 2022-03-08T11:00 Spider-Man: No Way Home (1 hour 30 minutes) Seats left: 100 $12.5 (movieFee) --> $9.38 (discountedMovieFee)" + NL
+                + RULER, render(PrintSchedule.TEXT));
+    }
+
+    @Test
+    void testSeatsLeftArePatchedAfterReservation() throws Exception {
+        String before = render(PrintSchedule.TEXT);
+        second.reduceSeatsLeft(7);
+        String after = render(PrintSchedule.TEXT);
+        assertEquals(before.replace("Seats left: 100 $12.5", "Seats left: 93 $12.5"), after);
+        //nothing changed since, so the cached bytes are served as they are
+        assertEquals(after, render(PrintSchedule.TEXT));
+    }
+
+    @Test
+    void testJsonSeatsLeftArePatchedAfterReservation() throws Exception {
+        String before = render(PrintSchedule.JSON);
+        assertEquals(2, countOccurrences(before, "\"seatsLeft\":100"));
+        first.reduceSeatsLeft(1);
+        String after = render(PrintSchedule.JSON);
+        assertEquals(1, countOccurrences(after, "\"seatsLeft\":100"));
+        assertEquals(1, countOccurrences(after, "\"seatsLeft\":99"));
+        String[] beforeLines = before.split(NL);
+        String[] afterLines = after.split(NL);
+        //only the line of the first showing changed
+        assertEquals(beforeLines[2].replace("\"seatsLeft\":100", "\"seatsLeft\":99"), afterLines[2]);
+        assertEquals(beforeLines[3], afterLines[3]);
+        //the patched line is what Jackson writes for the showing now
+        ByteArrayOutputStream fresh = new ByteArrayOutputStream();
+        new ScheduleRenderCache(schedule::get).render(PrintSchedule.JSON, showDate, fresh);
+        assertEquals(fresh.toString(StandardCharsets.UTF_8), after);
+    }
+
+    @Test
+    void testInvalidatePicksUpScheduleChanges() throws Exception {
+        render(PrintSchedule.TEXT);
+        schedule.get(showDate).remove(1);
+        assertEquals(2, countOccurrences(render(PrintSchedule.TEXT), "Seats left"));
+        cache.invalidate(showDate);
+        assertEquals(1, countOccurrences(render(PrintSchedule.TEXT), "Seats left"));
+    }
+
+    @Test
+    void testRenderUnknownDate() {
+        assertThrows(IllegalStateException.class, () -> {
+            cache.render(PrintSchedule.TEXT, showDate.plusDays(1), new ByteArrayOutputStream());
+        });
+    }
+
+    private String render(PrintSchedule format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.render(format, showDate, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static int countOccurrences(String text, String part) {
+        int count = 0;
+        for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,146 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleSnapshotTests {
+
+    private final LocalDate today = LocalDateProvider.singleton().currentDate();
+    private final LocalDate tomorrow = today.plusDays(1);
+    private final Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+    private final Movie turningRed = new Movie("Turning Red", Duration.ofMinutes(85), 11);
+    private final Screen imax = new Screen(2, "IMAX", 3, 20);
+
+    private Path file;
+    private Map<LocalDate, List<Showing>> schedule;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        file = Files.createTempFile("schedule", ".snapshot");
+        schedule = new HashMap<>();
+        schedule.put(today, List.of(
+                new Showing(turningRed, 1, LocalDateTime.of(today, LocalTime.of(23, 0))),
+                new Showing(spiderMan, imax, 1, LocalDateTime.of(today, LocalTime.of(23, 30)))));
+        schedule.put(tomorrow, List.of(
+                new Showing(spiderMan, 1, LocalDateTime.of(tomorrow, LocalTime.of(11, 0)))));
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testFlyweightViews() throws Exception {
+        Showing sold = schedule.get(today).get(1);
+        int[] seats = sold.reserveSeats(5);
+        ScheduleSnapshot.write(schedule, file);
+
+        ScheduleSnapshot snapshot = ScheduleSnapshot.open(file);
+        assertEquals(3, snapshot.getShowingCount());
+        assertEquals(2, snapshot.getMovieCount());
+        int index = snapshot.indexOf(sold.getId());
+        ScheduleSnapshot.ShowingView view = snapshot.showingView().moveTo(index);
+        assertEquals(sold.getId(), view.getId());
+        assertEquals(sold.getStartTime(), view.getStartTime());
+        assertEquals(2, view.getScreenNumber());
+        assertEquals(1, view.getSequenceOfTheDay());
+        assertEquals(imax.getCapacity() - 5, view.getSeatsLeft());
+        assertEquals(sold.getDiscountedMovieFeeInCents(), view.getDiscountedMovieFeeInCents());
+        assertEquals(today.toEpochDay(), view.getShowDateEpochDay());
+        for (int seat : seats) {
+            assertTrue(view.isSeatTaken(seat));
+        }
+        assertEquals(5, countTaken(view, imax.getCapacity()));
+
+        ScheduleSnapshot.MovieView movie = snapshot.movieView().moveTo(view.getMovieIndex());
+        assertEquals("Spider-Man: No Way Home", movie.getTitle());
+        assertEquals(Duration.ofMinutes(90), movie.getRunningTime());
+        assertEquals(1250, movie.getTicketPriceInCents());
+        assertEquals(1, movie.getSpecialCode());
+
+        assertEquals(-1, snapshot.indexOf(42));
+        assertThrows(IllegalStateException.class, () -> {
+            view.moveTo(3);
+        });
+    }
+
+    @Test
+    void testTheaterStartsFromSnapshot() throws Exception {
+        Theater original = new Theater(LocalDateProvider.singleton(), schedule);
+        Reservation reservation = original.reserve(new Customer("Rajesh", "1"), tomorrow, 1, 4);
+        original.writeSnapshot(file);
+
+        Theater restored = new Theater(LocalDateProvider.singleton(), ScheduleSnapshot.open(file));
+        Showing showing = restored.getShowing(reservation.getShowing().getId());
+        assertEquals(Theater.SEATING_CAPACITY - 4, showing.getSeatsLeft());
+        for (int seat : reservation.getSeats()) {
+            assertTrue(showing.isSeatTaken(seat));
+        }
+        assertEquals(reservation.getShowing().getDiscountedMovieFee(), showing.getDiscountedMovieFee());
+        Reservation next = restored.reserve(new Customer("Rajesh", "1"), tomorrow, 1, 2);
+        assertEquals(Theater.SEATING_CAPACITY - 6, next.getShowing().getSeatsLeft());
+        assertEquals(2, restored.getShowings(today, imax).size() + restored.getShowings(today, Theater.DEFAULT_SCREEN).size());
+    }
+
+    @Test
+    void testTheaterLoadsShowingsOfADateWhenFirstNeeded() throws Exception {
+        //a single 5% discount, so the stored fees differ from the ones of the default rules
+        DiscountRuleSet discountRules = DiscountRuleSet.compile(List.of(DiscountRules.startTimeWindow(0, 23, 0.05)));
+        Showing showing = new Showing(spiderMan, Theater.DEFAULT_SCREEN, 1, LocalDateTime.of(tomorrow, LocalTime.of(11, 0)), discountRules);
+        schedule.put(tomorrow, List.of(showing));
+        ScheduleSnapshot.write(schedule, file);
+        ScheduleSnapshot snapshot = ScheduleSnapshot.open(file);
+        assertEquals(List.of(today, tomorrow), snapshot.getShowDates());
+        assertNull(snapshot.showingsOf(today.minusDays(1), discountRules));
+
+        Theater restored = new Theater(LocalDateProvider.singleton(), snapshot, discountRules);
+        assertTrue(restored.metricsSnapshot().getSeatFill().isEmpty());
+        Showing loaded = restored.getShowing(showing.getId());
+        assertEquals(showing.getDiscountedMovieFeeInCents(), loaded.getDiscountedMovieFeeInCents());
+        //only the date of the showing was built
+        assertEquals(1, restored.metricsSnapshot().getSeatFill().size());
+        assertSame(loaded, restored.reserve(new Customer("Rajesh", "1"), tomorrow, 1, 2).getShowing());
+        assertEquals(2, restored.playingAt(LocalDateTime.of(tomorrow, LocalTime.of(0, 20))).size());
+        assertEquals(3, restored.metricsSnapshot().getSeatFill().size());
+
+        //the caller's rules are used when the movie is repriced
+        restored.changeTicketPrice(loaded.getMovie(), 20);
+        assertEquals(1900, loaded.getDiscountedMovieFeeInCents());
+
+        //the stored fee is kept even if the snapshot is opened with other rules
+        Theater withDefaults = new Theater(LocalDateProvider.singleton(), snapshot);
+        assertEquals(showing.getDiscountedMovieFeeInCents(), withDefaults.getShowing(showing.getId()).getDiscountedMovieFeeInCents());
+    }
+
+    @Test
+    void testNotASnapshot() throws Exception {
+        Files.writeString(file, "not a snapshot");
+        assertThrows(IllegalStateException.class, () -> {
+            ScheduleSnapshot.open(file);
+        });
+    }
+
+    private static int countTaken(ScheduleSnapshot.ShowingView view, int capacity) {
+        int taken = 0;
+        for (int seat = 0; seat < capacity; seat++) {
+            if (view.isSeatTaken(seat)) {
+                taken++;
+            }
+        }
+        return taken;
+    }
+}
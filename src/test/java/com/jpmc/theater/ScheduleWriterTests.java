@@ -0,0 +1,88 @@
+package com.jpmc.theater;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleWriterTests {
+
+    private final ObjectMapper reader = new ObjectMapper();
+    private final LocalDate today = LocalDate.now();
+    private final List<Showing> showings = List.of(
+            new Showing(new Movie("Turning Red", Duration.ofMinutes(85), 11), 1, LocalDateTime.of(today, LocalTime.of(9, 0))),
+            new Showing(new Movie("The Batman", Duration.ofMinutes(95), 9), 2, LocalDateTime.of(today, LocalTime.of(10, 45))),
+            new Showing(new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1), 3, LocalDateTime.of(today, LocalTime.of(12, 50)))
+    );
+
+    @Test
+    void testWriteJsonArray() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ScheduleWriter.shared().write(showings, ScheduleWriter.Layout.ARRAY, out);
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("["));
+        assertTrue(json.endsWith("]"));
+        assertEquals(3, countOccurrences(json, "\"sequenceOfTheDay\""));
+        assertTrue(json.contains("\"discountedMovieFee\":9.38"));
+        assertTrue(json.contains("\"startTime\":\"" + today + "T12:50:00\""));
+    }
+
+    @Test
+    void testWriteNdjson() throws Exception {
+        StringWriter out = new StringWriter();
+        ScheduleWriter.shared().write(showings, ScheduleWriter.Layout.NDJSON, out);
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(out.toString().endsWith("\n"));
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith("{"));
+            assertTrue(lines[i].contains("\"sequenceOfTheDay\":" + (i + 1)));
+        }
+        JsonNode last = reader.readTree(lines[1]);
+        assertEquals("The Batman", last.get("movie").get("title").asText());
+        assertEquals("(1 hour 35 minutes)", last.get("movie").get("runningTime").asText());
+        assertEquals(7.0, last.get("discountedMovieFee").asDouble());
+    }
+
+    @Test
+    void testWriteEmptySchedule() throws Exception {
+        StringWriter array = new StringWriter();
+        ScheduleWriter.shared().write(List.of(), ScheduleWriter.Layout.ARRAY, array);
+        assertEquals("[]", array.toString());
+
+        StringWriter ndjson = new StringWriter();
+        ScheduleWriter.shared().write(List.of(), ScheduleWriter.Layout.NDJSON, ndjson);
+        assertEquals("", ndjson.toString());
+    }
+
+    @Test
+    void testStreamIsNotClosed() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                fail("the caller owns the stream");
+            }
+        };
+        ScheduleWriter.shared().write(showings, ScheduleWriter.Layout.NDJSON, out);
+        ScheduleWriter.shared().write(showings, ScheduleWriter.Layout.NDJSON, out);
+        assertEquals(6, out.toString(StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    private static int countOccurrences(String text, String part) {
+        int count = 0;
+        for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,54 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ScreenTests {
+
+    @Test
+    void testCreateScreen() {
+        Screen screen = new Screen(3, "IMAX", 20, 30);
+        assertEquals(3, screen.getNumber());
+        assertEquals("IMAX", screen.getName());
+        assertEquals(600, screen.getCapacity());
+    }
+
+    @Test
+    void testCreateScreenWithInvalidLayout() {
+        assertThrows(IllegalStateException.class, () -> {
+            new Screen(0, "IMAX", 20, 30);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new Screen(1, " ", 20, 30);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new Screen(1, "IMAX", 0, 30);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new Screen(1, "IMAX", 20, 65);
+        });
+    }
+
+    @Test
+    void testShowingUsesCapacityOfItsScreen() {
+        Screen screen = new Screen(2, "Screen 2", 4, 12);
+        Showing showing = new Showing(new Movie("The Batman", Duration.ofMinutes(95), 9), screen, 1, LocalDateTime.now().withHour(10));
+        assertEquals(screen, showing.getScreen());
+        assertEquals(48, showing.getSeatsLeft());
+        assertThrows(IllegalStateException.class, () -> {
+            showing.reduceSeatsLeft(49);
+        });
+    }
+
+    @Test
+    void testShowingWithoutScreenUsesDefaultScreen() {
+        Showing showing = new Showing(new Movie("The Batman", Duration.ofMinutes(95), 9), 1, LocalDateTime.now().withHour(10));
+        assertEquals(Theater.DEFAULT_SCREEN, showing.getScreen());
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+    }
+}
@@ -0,0 +1,87 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatHoldsTests {
+
+    private final MutableClock clock = new MutableClock(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+    private final SeatHolds seatHolds = new SeatHolds(clock);
+    private final LocalDate showDate = LocalDate.of(2030, 3, 8);
+    private final Showing showing = new Showing(new Movie("Turning Red", Duration.ofMinutes(85), 11), 1, LocalDateTime.of(showDate, LocalTime.of(9, 0)));
+    private final Customer customer = new Customer("Rajesh", "1");
+
+    @Test
+    void testHoldExpires() {
+        SeatHold hold = seatHolds.hold(customer, showDate, showing, 4, Duration.ofMinutes(10));
+        assertEquals(Theater.SEATING_CAPACITY - 4, showing.getSeatsLeft());
+        clock.advance(Duration.ofMinutes(9));
+        assertEquals(0, seatHolds.expire());
+        assertEquals(SeatHold.State.HELD, hold.getState());
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(1, seatHolds.expire());
+        assertEquals(SeatHold.State.EXPIRED, hold.getState());
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+        assertEquals(0, seatHolds.getActiveHolds());
+        assertThrows(IllegalStateException.class, () -> {
+            seatHolds.confirm(hold);
+        });
+    }
+
+    @Test
+    void testConfirmedHoldKeepsSeats() {
+        SeatHold hold = seatHolds.hold(customer, showDate, showing, 4, Duration.ofMinutes(10));
+        seatHolds.confirm(hold);
+        clock.advance(Duration.ofMinutes(11));
+        assertEquals(0, seatHolds.expire());
+        assertEquals(SeatHold.State.CONFIRMED, hold.getState());
+        assertEquals(Theater.SEATING_CAPACITY - 4, showing.getSeatsLeft());
+        for (int seat : hold.getSeats()) {
+            assertTrue(showing.isSeatTaken(seat));
+        }
+    }
+
+    @Test
+    void testConfirmAfterDeadlineBeforeTheWheelMoved() {
+        SeatHold hold = seatHolds.hold(customer, showDate, showing, 2, Duration.ofMinutes(10));
+        clock.advance(Duration.ofMinutes(10));
+        assertThrows(IllegalStateException.class, () -> {
+            seatHolds.confirm(hold);
+        });
+        assertEquals(SeatHold.State.EXPIRED, hold.getState());
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+        assertEquals(0, seatHolds.expire());
+    }
+
+    @Test
+    void testReleaseHold() {
+        SeatHold hold = seatHolds.hold(customer, showDate, showing, 3, Duration.ofMinutes(10));
+        seatHolds.release(hold);
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+        assertThrows(IllegalStateException.class, () -> {
+            seatHolds.release(hold);
+        });
+        clock.advance(Duration.ofMinutes(10));
+        assertEquals(0, seatHolds.expire());
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+    }
+
+    @Test
+    void testInvalidHold() {
+        assertThrows(IllegalStateException.class, () -> {
+            seatHolds.hold(customer, showDate, showing, 1, Duration.ZERO);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            seatHolds.hold(customer, showDate, showing, Theater.SEATING_CAPACITY + 1, Duration.ofMinutes(1));
+        });
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+    }
+}
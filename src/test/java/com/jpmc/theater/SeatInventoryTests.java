@@ -0,0 +1,146 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatInventoryTests {
+
+    @Test
+    void testTryReserveAndRelease() {
+        SeatInventory inventory = new SeatInventory(10);
+        assertEquals(10, inventory.getCapacity());
+        assertTrue(inventory.tryReserve(4));
+        assertEquals(6, inventory.getSeatsLeft());
+        assertFalse(inventory.tryReserve(7));
+        assertEquals(6, inventory.getSeatsLeft());
+        inventory.release(4);
+        assertEquals(10, inventory.getSeatsLeft());
+        assertTrue(inventory.tryReserve(10));
+        assertEquals(0, inventory.getSeatsLeft());
+    }
+
+    @Test
+    void testReleaseMoreThanReserved() {
+        SeatInventory inventory = new SeatInventory(10);
+        inventory.tryReserve(2);
+        assertThrows(IllegalStateException.class, () -> {
+            inventory.release(3);
+        });
+        assertEquals(8, inventory.getSeatsLeft());
+    }
+
+    @Test
+    void testInvalidNumberOfSeats() {
+        SeatInventory inventory = new SeatInventory(10);
+        assertThrows(IllegalStateException.class, () -> {
+            inventory.tryReserve(0);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            inventory.release(-1);
+        });
+    }
+
+    @Test
+    void testCreateSeatInventoryWithNegativeCapacity() {
+        assertThrows(IllegalStateException.class, () -> {
+            new SeatInventory(-1);
+        });
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        int capacity = 10_000;
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        SeatInventory inventory = new SeatInventory(capacity);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                int ticketsPerBooking = 1 + i % 3;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int sold = 0;
+                    //keep buying until the show is sold out, refunding every 10th booking on the way
+                    for (int booking = 1; inventory.getSeatsLeft() > 0; booking++) {
+                        if (inventory.tryReserve(ticketsPerBooking)) {
+                            sold += ticketsPerBooking;
+                            if (booking % 10 == 0) {
+                                inventory.release(ticketsPerBooking);
+                                sold -= ticketsPerBooking;
+                            }
+                        } else if (inventory.tryReserve(1)) {
+                            sold += 1;
+                        }
+                    }
+                    return sold;
+                }));
+            }
+            start.countDown();
+            int totalSold = 0;
+            for (Future<Integer> result : results) {
+                totalSold += result.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(capacity, totalSold);
+            assertEquals(0, inventory.getSeatsLeft());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentReduceSeatsLeftOnShowing() throws Exception {
+        Showing showing = new Showing(
+                new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1),
+                3,
+                LocalDateTime.now().withHour(10)
+        );
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int sold = 0;
+                    while (showing.getSeatsLeft() > 0) {
+                        try {
+                            showing.reduceSeatsLeft(3);
+                            sold += 3;
+                        } catch (IllegalStateException e) {
+                            //sold out for a party of 3, try a single seat
+                            try {
+                                showing.reduceSeatsLeft(1);
+                                sold += 1;
+                            } catch (IllegalStateException ignored) {
+                                //sold out
+                            }
+                        }
+                    }
+                    return sold;
+                }));
+            }
+            start.countDown();
+            int totalSold = 0;
+            for (Future<Integer> result : results) {
+                totalSold += result.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(Theater.SEATING_CAPACITY, totalSold);
+            assertEquals(0, showing.getSeatsLeft());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
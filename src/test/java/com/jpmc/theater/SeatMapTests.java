@@ -0,0 +1,186 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatMapTests {
+
+    @Test
+    void testCreateSeatMap() {
+        SeatMap seatMap = new SeatMap(10, 12);
+        assertEquals(10, seatMap.getRows());
+        assertEquals(12, seatMap.getSeatsPerRow());
+        assertEquals(120, seatMap.getCapacity());
+        assertEquals(120, seatMap.getFreeSeats());
+    }
+
+    @Test
+    void testCreateSeatMapWithInvalidLayout() {
+        assertThrows(IllegalStateException.class, () -> {
+            new SeatMap(0, 10);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new SeatMap(10, SeatMap.MAX_SEATS_PER_ROW + 1);
+        });
+    }
+
+    @Test
+    void testAllocateContiguousPrefersMiddleOfTheAuditorium() {
+        SeatMap seatMap = new SeatMap(5, 10);
+        //middle row is row 2 (seats 20..29), centred block of 4 starts at position 3
+        assertArrayEquals(new int[]{23, 24, 25, 26}, seatMap.allocateContiguous(4));
+        //the centre of row 2 is gone, block 0 .. 2 is closer to the centre than block 7 .. 9
+        assertArrayEquals(new int[]{20, 21, 22}, seatMap.allocateContiguous(3));
+        assertEquals(43, seatMap.getFreeSeats());
+    }
+
+    @Test
+    void testAllocateContiguousMovesToNextRowWhenRowIsFragmented() {
+        SeatMap seatMap = new SeatMap(3, 8);
+        //fragment the middle row (seats 8..15) so that only blocks of 2 are left
+        seatMap.take(new int[]{10, 13});
+        int[] seats = seatMap.allocateContiguous(4);
+        assertNotNull(seats);
+        for (int i = 1; i < seats.length; i++) {
+            assertEquals(seats[i - 1] + 1, seats[i]);
+        }
+        assertEquals(seats[0] / 8, seats[3] / 8);
+        assertNotEquals(1, seats[0] / 8);
+    }
+
+    @Test
+    void testAllocateContiguousFullRowOf64Seats() {
+        SeatMap seatMap = new SeatMap(2, 64);
+        int[] seats = seatMap.allocateContiguous(64);
+        assertEquals(64, seats.length);
+        assertEquals(64, seatMap.getFreeSeats());
+        assertNull(seatMap.allocateContiguous(65));
+    }
+
+    @Test
+    void testAllocateFallsBackToSingleSeats() {
+        SeatMap seatMap = new SeatMap(2, 4);
+        //leave only seats 1, 3, 5 and 7 free
+        seatMap.take(new int[]{0, 2, 4, 6});
+        assertNull(seatMap.allocateContiguous(2));
+        int[] seats = seatMap.allocate(3);
+        assertEquals(3, seats.length);
+        assertEquals(3, new HashSet<>(Arrays.asList(box(seats))).size());
+        assertEquals(1, seatMap.getFreeSeats());
+        assertThrows(IllegalStateException.class, () -> {
+            seatMap.allocate(2);
+        });
+        assertEquals(1, seatMap.getFreeSeats());
+    }
+
+    @Test
+    void testTakeAndReleaseSeats() {
+        SeatMap seatMap = new SeatMap(2, 4);
+        seatMap.take(new int[]{1, 5});
+        assertTrue(seatMap.isTaken(1));
+        assertTrue(seatMap.isTaken(5));
+        assertThrows(IllegalStateException.class, () -> {
+            seatMap.take(new int[]{5});
+        });
+        //all or nothing, seat 2 is given back when seat 5 turns out to be taken
+        assertThrows(IllegalStateException.class, () -> {
+            seatMap.take(new int[]{2, 5});
+        });
+        assertFalse(seatMap.isTaken(2));
+        seatMap.release(new int[]{5});
+        assertFalse(seatMap.isTaken(5));
+        assertThrows(IllegalStateException.class, () -> {
+            seatMap.release(new int[]{5});
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            seatMap.isTaken(8);
+        });
+    }
+
+    @Test
+    void testShowingReservesAndReleasesSeats() {
+        Showing showing = new Showing(
+                new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1),
+                3,
+                LocalDateTime.now().withHour(10)
+        );
+        int[] seats = showing.reserveSeats(4);
+        assertEquals(4, seats.length);
+        Set<Integer> distinct = new HashSet<>();
+        for (int seat : seats) {
+            assertTrue(showing.isSeatTaken(seat));
+            distinct.add(seat);
+        }
+        assertEquals(4, distinct.size());
+        assertEquals(Theater.SEATING_CAPACITY - 4, showing.getSeatsLeft());
+
+        showing.releaseSeats(seats);
+        for (int seat : seats) {
+            assertFalse(showing.isSeatTaken(seat));
+        }
+        assertEquals(Theater.SEATING_CAPACITY, showing.getSeatsLeft());
+    }
+
+    @Test
+    void testConcurrentScatteredReservationsKeepCountAndMapInSync() throws Exception {
+        //rows of 3 seats, so parties of 4 always take the single seat fallback and scan several rows
+        Showing showing = new Showing(
+                new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1),
+                new Screen(2, "Small", 4, 3),
+                3,
+                LocalDateTime.now().withHour(10)
+        );
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                int partySize = i % 2 == 0 ? 4 : 1;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int booking = 0; booking < 20_000; booking++) {
+                        try {
+                            showing.releaseSeats(showing.reserveSeats(partySize));
+                        } catch (ReservationRejectedException e) {
+                            //sold out for the moment
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        int free = 0;
+        for (int seat = 0; seat < 12; seat++) {
+            if (!showing.isSeatTaken(seat)) {
+                free++;
+            }
+        }
+        assertEquals(12, free);
+        assertEquals(free, showing.getSeatsLeft());
+    }
+
+    private static Integer[] box(int[] values) {
+        return Arrays.stream(values).boxed().toArray(Integer[]::new);
+    }
+}
@@ -0,0 +1,162 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedTheaterTests {
+
+    private final LocalDate today = LocalDate.now();
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+    private final Customer customer = new Customer("Rajesh", "1");
+
+    @Test
+    void testShowingsAreSpreadOverShards() {
+        List<Screen> screens = List.of(screen(1), screen(2), screen(3), screen(4));
+        Map<LocalDate, List<Showing>> schedule = new ScheduleGenerator(List.of(theBatMan, new Movie("Turning Red", Duration.ofMinutes(85), 11)),
+                screens, LocalTime.of(10, 0), LocalTime.of(23, 0), Duration.ofMinutes(15)).generate(today, today.plusDays(6));
+        ShardedTheater theater = new ShardedTheater(LocalDateProvider.singleton(), 8, schedule);
+        assertEquals(schedule.values().stream().mapToInt(List::size).sum(), theater.getShowingCount());
+
+        Set<Integer> usedShards = new HashSet<>();
+        for (int day = 0; day < 7; day++) {
+            for (Screen screen : screens) {
+                usedShards.add(theater.shardIndexOf(today.plusDays(day), screen));
+            }
+        }
+        assertTrue(usedShards.size() > 4);
+        assertEquals(schedule.get(today).size(), theater.getShowings(today).size());
+
+        Showing showing = schedule.get(today.plusDays(2)).get(3);
+        assertSame(showing, theater.getShowing(showing.getId()));
+        Reservation reservation = theater.reserve(customer, showing.getId(), 3);
+        assertEquals(3, reservation.getSeats().length);
+        Reservation bySequence = theater.reserve(customer, today.plusDays(2), showing.getScreen(), showing.getSequenceOfTheDay(), 2);
+        assertSame(showing, bySequence.getShowing());
+        assertEquals(showing.getScreen().getCapacity() - 5, showing.getSeatsLeft());
+
+        theater.cancel(reservation);
+        assertEquals(showing.getScreen().getCapacity() - 2, showing.getSeatsLeft());
+
+        //the seats are sold again, a second cancellation must not free them
+        Reservation resold = theater.reserve(customer, showing.getId(), 3);
+        assertThrows(IllegalStateException.class, () -> theater.cancel(reservation));
+        assertEquals(showing.getScreen().getCapacity() - 5, showing.getSeatsLeft());
+        for (int seat : resold.getSeats()) {
+            assertTrue(showing.isSeatTaken(seat));
+        }
+    }
+
+    @Test
+    void testScheduleEdits() {
+        ShardedTheater theater = new ShardedTheater(LocalDateProvider.singleton(), 4);
+        Showing late = new Showing(theBatMan, screen(1), 1, LocalDateTime.of(today, LocalTime.of(23, 30)));
+        theater.addShowing(late);
+        //runs until 01:05, in the shard of the next day
+        assertThrows(IllegalStateException.class, () -> {
+            theater.addShowing(new Showing(theBatMan, screen(1), 1, LocalDateTime.of(today.plusDays(1), LocalTime.of(1, 0))));
+        });
+        theater.addShowing(new Showing(theBatMan, screen(1), 1, LocalDateTime.of(today.plusDays(1), LocalTime.of(1, 5))));
+        assertThrows(IllegalStateException.class, () -> {
+            theater.addShowing(new Showing(theBatMan, screen(1), 2, LocalDateTime.of(today, LocalTime.of(23, 30))));
+        });
+
+        Reservation reservation = theater.reserve(customer, late.getId(), 1);
+        assertThrows(IllegalStateException.class, () -> {
+            theater.removeShowing(late.getId());
+        });
+        theater.cancel(reservation);
+        assertSame(late, theater.removeShowing(late.getId()));
+        assertNull(theater.getShowing(late.getId()));
+        assertTrue(theater.getShowings(today, screen(1)).isEmpty());
+        assertThrows(ReservationRejectedException.class, () -> {
+            theater.reserve(customer, late.getId(), 1);
+        });
+        assertThrows(ReservationRejectedException.class, () -> {
+            theater.reserve(customer, today, screen(1), 1, 1);
+        });
+        //the slot is free again
+        theater.addShowing(new Showing(theBatMan, screen(1), 1, LocalDateTime.of(today, LocalTime.of(23, 0))));
+    }
+
+    @Test
+    void testReservationInThePast() {
+        Showing showing = new Showing(theBatMan, screen(1), 1, LocalDateTime.of(today.minusDays(1), LocalTime.of(20, 0)));
+        ShardedTheater theater = new ShardedTheater(LocalDateProvider.singleton(), 2, Map.of(today.minusDays(1), List.of(showing)));
+        ReservationRejectedException e = assertThrows(ReservationRejectedException.class, () -> {
+            theater.reserve(customer, showing.getId(), 1);
+        });
+        assertEquals(ReservationRejectedException.Reason.PAST_DATE, e.getReason());
+    }
+
+    @Test
+    void testConcurrentSalesAndEdits() throws Exception {
+        ShardedTheater theater = new ShardedTheater(LocalDateProvider.singleton(), 4);
+        Screen screen = screen(1);
+        Showing sold = new Showing(theBatMan, screen, 1, LocalDateTime.of(today, LocalTime.of(10, 0)));
+        theater.addShowing(sold);
+        AtomicInteger tickets = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            int worker = i;
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 50; j++) {
+                    if (worker % 2 == 0) {
+                        try {
+                            theater.reserve(customer, sold.getId(), 1);
+                            tickets.incrementAndGet();
+                        } catch (ReservationRejectedException e) {
+                            //sold out
+                        }
+                    } else {
+                        //add and remove a showing of another screen and day, while selling
+                        Showing edited = new Showing(theBatMan, screen(2 + worker), 1, LocalDateTime.of(today.plusDays(j), LocalTime.of(20, 0)));
+                        theater.addShowing(edited);
+                        theater.removeShowing(edited.getId());
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(screen.getCapacity(), tickets.get());
+        assertEquals(0, sold.getSeatsLeft());
+        assertEquals(1, theater.getShowingCount());
+    }
+
+    @Test
+    void testInvalidTheater() {
+        assertThrows(IllegalStateException.class, () -> {
+            new ShardedTheater(LocalDateProvider.singleton(), 0);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new ShardedTheater(null, 4);
+        });
+    }
+
+    private static Screen screen(int number) {
+        return new Screen(number, "Screen " + number, Theater.SEATING_ROWS, Theater.SEATS_PER_ROW);
+    }
+}
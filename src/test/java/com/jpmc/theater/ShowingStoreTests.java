@@ -0,0 +1,164 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShowingStoreTests {
+
+    private final LocalDate showDate = LocalDate.of(2022, 3, 7);
+    private final Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+    private final Screen screen1 = new Screen(1, "Screen 1", 10, 10);
+    private final Screen screen2 = new Screen(2, "Screen 2", 20, 24);
+
+    @Test
+    void testViewMatchesShowings() {
+        Map<LocalDate, List<Showing>> schedule = Theater.sampleSchedule(showDate);
+        schedule.get(showDate).get(2).reserveSeats(7);
+        ShowingStore store = ShowingStore.of(schedule);
+        assertEquals(9, store.getShowingCount());
+        ShowingStore.ShowingView view = store.showingView();
+        for (Showing showing : schedule.get(showDate)) {
+            int index = store.indexOf(showing.getId());
+            view.moveTo(index);
+            assertEquals(showing.getId(), view.getId());
+            assertSame(showing.getMovie(), view.getMovie());
+            assertEquals(showing.getScreen(), view.getScreen());
+            assertEquals(showing.getStartTime(), view.getStartTime());
+            assertEquals(showing.getEndTime(), view.getEndTime());
+            assertEquals(showing.getSequenceOfTheDay(), view.getSequenceOfTheDay());
+            assertEquals(showing.getMovieFee(), view.getMovieFee());
+            assertEquals(showing.getDiscountedMovieFee(), view.getDiscountedMovieFee());
+            assertEquals(showing.getSeatsLeft(), view.getSeatsLeft());
+        }
+        assertEquals(-1, store.indexOf(12345));
+    }
+
+    @Test
+    void testRowsAreSortedByStartTimeAndScreen() {
+        ShowingStore store = new ShowingStore.Builder(DiscountRuleSet.DEFAULT)
+                .add(theBatMan, screen1, 2, at(21, 0))
+                .add(spiderMan, screen2, 1, at(19, 0))
+                .add(spiderMan, screen1, 1, at(19, 0))
+                .add(theBatMan, screen2, 2, at(9, 0))
+                .build();
+        ShowingStore.ShowingView view = store.showingView();
+        assertEquals(at(9, 0), view.moveTo(0).getStartTime());
+        assertEquals(screen1, view.moveTo(1).getScreen());
+        assertEquals(screen2, view.moveTo(2).getScreen());
+        assertEquals(at(21, 0), view.moveTo(3).getStartTime());
+        //the 1st showing of the day gets $3 off
+        assertEquals(9.5, view.moveTo(1).getDiscountedMovieFee());
+
+        assertEquals(1, store.firstIndexFrom(at(19, 0)));
+        assertEquals(3, store.firstIndexFrom(at(19, 0).plusSeconds(1)));
+        assertEquals(4, store.firstIndexFrom(at(22, 0)));
+        assertEquals(480 + 100 + 480, store.sumSeatsLeft(0, 3));
+    }
+
+    @Test
+    void testInvalidShowings() {
+        ShowingStore.Builder builder = new ShowingStore.Builder(DiscountRuleSet.DEFAULT).add(spiderMan, screen1, 1, at(19, 0));
+        builder.add(theBatMan, screen1, 2, at(19, 0));
+        assertThrows(IllegalStateException.class, builder::build);
+        assertThrows(IllegalStateException.class, () -> {
+            builder.add(theBatMan, screen1, 2, at(19, 0).plusSeconds(30));
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            builder.add(theBatMan, new Screen(1, "Another 1", 5, 5), 2, at(20, 0));
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            builder.add(null, screen1, 2, at(20, 0));
+        });
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        ShowingStore store = new ShowingStore.Builder(DiscountRuleSet.DEFAULT).add(spiderMan, screen1, 1, at(19, 0)).build();
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            executor.submit(() -> {
+                if (store.tryReserve(0, 3)) {
+                    sold.addAndGet(3);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(99, sold.get());
+        assertEquals(1, store.showingView().moveTo(0).getSeatsLeft());
+        assertFalse(store.tryReserve(0, 2));
+
+        store.release(0, 99);
+        assertEquals(100, store.showingView().moveTo(0).getSeatsLeft());
+        assertThrows(IllegalStateException.class, () -> {
+            store.release(0, 1);
+        });
+    }
+
+    @Test
+    void testGeneratedStoreMatchesGeneratedSchedule() {
+        ScheduleGenerator generator = new ScheduleGenerator(List.of(spiderMan, theBatMan), List.of(screen2, screen1),
+                LocalTime.of(10, 0), LocalTime.of(23, 0), Duration.ofMinutes(15));
+        Map<LocalDate, List<Showing>> schedule = generator.generate(showDate, showDate.plusDays(9));
+        ShowingStore store = generator.generateStore(showDate, showDate.plusDays(9));
+        ShowingStore pooled = generator.generateStore(showDate, showDate.plusDays(9), new ForkJoinPool(4));
+        assertEquals(schedule.values().stream().mapToInt(List::size).sum(), store.getShowingCount());
+        assertEquals(store.getShowingCount(), pooled.getShowingCount());
+        ShowingStore.ShowingView view = store.showingView();
+        ShowingStore.ShowingView pooledView = pooled.showingView();
+        schedule.values().forEach(showings -> showings.forEach(showing -> {
+            view.moveTo(store.indexOf(showing.getId()));
+            assertEquals(showing.getMovie(), view.getMovie());
+            assertEquals(showing.getScreen(), view.getScreen());
+            assertEquals(showing.getSequenceOfTheDay(), view.getSequenceOfTheDay());
+            assertEquals(showing.getDiscountedMovieFeeInCents(), view.getDiscountedMovieFeeInCents());
+            pooledView.moveTo(pooled.indexOf(showing.getId()));
+            assertEquals(view.toString(), pooledView.toString());
+        }));
+    }
+
+    @Test
+    void testRowsArePricedAndCopiedLikeShowings() {
+        Map<LocalDate, List<Showing>> schedule = Theater.sampleSchedule(showDate);
+        schedule.get(showDate).get(8).reserveSeats(90);
+        ShowingStore store = ShowingStore.of(schedule);
+        MutableClock clock = new MutableClock(Instant.parse("2022-03-01T00:00:00Z"), ZoneOffset.UTC);
+        DemandPricing pricing = new DemandPricing(DemandPricing.DEFAULT_CURVE, clock, Runnable::run);
+        ShowingStore.Builder copy = new ShowingStore.Builder(DiscountRuleSet.DEFAULT);
+        ShowingStore.ShowingView view = store.showingView();
+        for (Showing showing : schedule.get(showDate)) {
+            ShowingInfo row = view.moveTo(store.indexOf(showing.getId()));
+            assertEquals(pricing.quote(showing), pricing.quote(row));
+            copy.add(row);
+        }
+        ShowingStore copied = copy.build();
+        assertEquals(store.getShowingCount(), copied.getShowingCount());
+        assertEquals(store.sumSeatsLeft(0, store.getShowingCount()), copied.sumSeatsLeft(0, copied.getShowingCount()));
+        assertEquals(view.moveTo(8).toString(), copied.showingView().moveTo(8).toString());
+    }
+
+    private LocalDateTime at(int hour, int minute) {
+        return LocalDateTime.of(showDate, LocalTime.of(hour, minute));
+    }
+}
@@ -30,6 +30,16 @@ public class ShowingTests {
         assertEquals(3, showing.getSequenceOfTheDay());
     }
 
+    @Test
+    void testToStringPrintsFeesAsBeforeTheCentsConversion() {
+        Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+        Showing showing = new Showing(spiderMan, 3, LocalDateTime.of(2022, 3, 8, 10, 0));
+        assertTrue(spiderMan.toString().contains(", ticketPrice=12.5,"));
+        assertTrue(showing.toString().contains(", discountedMovieFee=10.0,"));
+        Reservation reservation = new Reservation(new Customer("Rajesh", "1"), LocalDate.of(2022, 3, 8), showing, 3);
+        assertTrue(reservation.toString().contains(", totalFee=30.0"));
+    }
+
     @Test
     void testCreateShowingWithSequence1DiscountOf3() {
         LocalDateTime showStartTime = LocalDateTime.now().withHour(10);
@@ -184,4 +194,22 @@ public class ShowingTests {
         assertEquals(0, showing.getSeatsLeft());
     }
 
+    @Test
+    void testReprice() {
+        Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
+        Showing showing = new Showing(spiderMan, 3, LocalDateTime.of(2022, 3, 8, 10, 0));
+        assertEquals(10.0, showing.getDiscountedMovieFee());
+
+        showing.reprice(spiderMan.withTicketPrice(15));
+        assertEquals(15.0, showing.getMovieFee());
+        assertEquals(12.0, showing.getDiscountedMovieFee());
+        assertEquals(300, showing.getAppliedDiscount().getAmountInCents());
+
+        assertThrows(IllegalStateException.class, () -> {
+            showing.reprice(new Movie("The Batman", Duration.ofMinutes(95), 9));
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            showing.reprice(null);
+        });
+    }
 }
@@ -0,0 +1,193 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TheaterServerTests {
+
+    private final LocalDate today = LocalDateProvider.singleton().currentDate();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Theater theater;
+    private TheaterServer server;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        theater = new Theater(LocalDateProvider.singleton(), Theater.sampleSchedule(today));
+        server = new TheaterServer(theater, new InetSocketAddress("localhost", 0));
+        server.start();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        server.close();
+    }
+
+    @Test
+    void testSchedule() throws Exception {
+        HttpResponse<String> text = get("/schedule?date=" + today);
+        assertEquals(200, text.statusCode());
+        assertTrue(text.body().startsWith(today + System.lineSeparator()));
+        assertTrue(text.body().contains("9: " + today + "T23:00 The Batman"));
+
+        HttpResponse<String> json = get("/schedule?date=" + today + "&format=json");
+        assertEquals(200, json.statusCode());
+        assertTrue(json.body().contains("\"sequenceOfTheDay\":9"));
+        //the printout has a date header and rulers, so it is not served as NDJSON
+        assertEquals("text/plain; charset=utf-8", json.headers().firstValue("Content-Type").orElse(null));
+        assertEquals("text/plain; charset=utf-8", text.headers().firstValue("Content-Type").orElse(null));
+
+        assertEquals(400, get("/schedule?date=" + today.plusDays(1)).statusCode());
+        assertEquals(400, get("/schedule?date=yesterday").statusCode());
+        assertEquals(400, get("/schedule").statusCode());
+    }
+
+    @Test
+    void testListings() throws Exception {
+        HttpResponse<String> listings = get("/listings?from=" + today + "&layout=ndjson");
+        assertEquals(200, listings.statusCode());
+        assertEquals(9, listings.body().split("\n").length);
+        assertEquals(400, get("/listings?from=" + today + "&to=" + today.minusDays(1)).statusCode());
+    }
+
+    @Test
+    void testReserve() throws Exception {
+        HttpResponse<String> reservation = post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=2&tickets=3");
+        assertEquals(201, reservation.statusCode());
+        assertTrue(reservation.body().contains("\"movie\":\"Spider-Man: No Way Home\""));
+        assertTrue(reservation.body().contains("\"totalFee\":28.14"));
+        assertEquals(Theater.SEATING_CAPACITY - 3, theater.getShowings(today, Theater.DEFAULT_SCREEN).get(1).getSeatsLeft());
+
+        long showingId = theater.getShowings(today, Theater.DEFAULT_SCREEN).get(0).getId();
+        assertEquals(201, post("customerName=Rajesh&customerId=1&showingId=" + showingId + "&tickets=1").statusCode());
+
+        assertEquals(409, post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=2&tickets=" + Theater.SEATING_CAPACITY).statusCode());
+        assertEquals(400, post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=2&tickets=many").statusCode());
+        assertEquals(400, post("customerName=Rajesh&date=" + today + "&sequence=2&tickets=1").statusCode());
+        assertEquals(400, post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=2&tickets=0").statusCode());
+        assertEquals(400, post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=2&tickets=-1").statusCode());
+        assertEquals(400, post("customerName=+&customerId=1&date=" + today + "&sequence=2&tickets=1").statusCode());
+        assertEquals(409, post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=10&tickets=1").statusCode());
+        assertEquals(405, get("/reservations").statusCode());
+    }
+
+    @Test
+    void testCancelAndBookings() throws Exception {
+        HttpResponse<String> reservation = post("customerName=Rajesh&customerId=7&date=" + today + "&sequence=2&tickets=3");
+        assertEquals(201, reservation.statusCode());
+        long reservationId = theater.getBookings("7").get(0).getId();
+        assertTrue(reservation.body().contains("\"reservationId\":" + reservationId));
+
+        HttpResponse<String> bookings = get("/bookings?customerId=7");
+        assertEquals(200, bookings.statusCode());
+        assertTrue(bookings.body().startsWith("[{\"reservationId\":" + reservationId));
+
+        HttpResponse<String> cancelled = post("/cancellations", "reservationId=" + reservationId);
+        assertEquals(200, cancelled.statusCode());
+        assertTrue(cancelled.body().contains("\"refund\":28.14"));
+        assertEquals("[]", get("/bookings?customerId=7").body());
+        assertEquals(404, post("/cancellations", "reservationId=" + reservationId).statusCode());
+        assertEquals(404, post("/cancellations", "reservationId=424242").statusCode());
+        assertEquals(400, post("/cancellations", "reservationId=first").statusCode());
+    }
+
+    @Test
+    void testUnexpectedFailuresAreServerErrors() throws Exception {
+        Theater failing = new Theater(LocalDateProvider.singleton(), Theater.sampleSchedule(today)) {
+            @Override
+            public TheaterMetrics.Snapshot metricsSnapshot() {
+                throw new ArithmeticException("/ by zero");
+            }
+        };
+        //System.Logger goes to java.util.logging unless another backend is installed
+        Logger logger = Logger.getLogger(TheaterServer.class.getName());
+        List<LogRecord> logged = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                logged.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try (TheaterServer failingServer = new TheaterServer(failing, new InetSocketAddress("localhost", 0))) {
+            failingServer.start();
+            HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + failingServer.getPort() + "/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(500, metrics.statusCode());
+            assertEquals("{\"error\":\"internal server error\"}", metrics.body());
+            assertEquals(1, logged.size());
+            assertTrue(logged.get(0).getThrown() instanceof ArithmeticException);
+            assertTrue(logged.get(0).getMessage().contains("GET /metrics"));
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    @Test
+    void testMetrics() throws Exception {
+        post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=2&tickets=3");
+        post("customerName=Rajesh&customerId=1&date=" + today + "&sequence=10&tickets=3");
+        HttpResponse<String> metrics = get("/metrics");
+        assertEquals(200, metrics.statusCode());
+        assertTrue(metrics.body().contains("\"ticketsSold\":3"));
+        assertTrue(metrics.body().contains("\"NO_SHOWING\":1"));
+        assertTrue(metrics.body().contains("\"backgroundFailures\":0"));
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < Theater.SEATING_CAPACITY + 20; i++) {
+            responses.add(client.sendAsync(request("/reservations").POST(HttpRequest.BodyPublishers.ofString(
+                    "customerName=Rajesh&customerId=" + i + "&date=" + today + "&sequence=9&tickets=1")).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        int created = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            if (response.get().statusCode() == 201) {
+                created++;
+            }
+        }
+        assertEquals(Theater.SEATING_CAPACITY, created);
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(request(path).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String form) throws Exception {
+        return post("/reservations", form);
+    }
+
+    private HttpResponse<String> post(String path, String form) throws Exception {
+        return client.send(request(path).POST(HttpRequest.BodyPublishers.ofString(form)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .header("Content-Type", "application/x-www-form-urlencoded");
+    }
+}
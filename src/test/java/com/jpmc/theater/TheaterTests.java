@@ -3,10 +3,15 @@ package com.jpmc.theater;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -199,6 +204,53 @@ public class TheaterTests {
         });
     }
 
+    @Test
+    void testReservationByShowingId() {
+        Customer customer = new Customer("Rajesh", "1");
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        long showingId = Showing.idOf(Theater.DEFAULT_SCREEN, LocalDateTime.of(tomorrow, LocalTime.of(21, 10)));
+        Reservation reservation = theater.reserve(customer, showingId, 3);
+        assertEquals(showingId, reservation.getShowing().getId());
+        assertEquals(tomorrow, reservation.getShowDate());
+        assertEquals("Spider-Man: No Way Home", reservation.getShowing().getMovie().getTitle());
+        assertEquals(8, reservation.getShowing().getSequenceOfTheDay());
+        assertEquals(SEATING_CAPACITY - 3, theater.getShowing(showingId).getSeatsLeft());
+        assertEquals(30.0, reservation.getTotalFee());
+    }
+
+    @Test
+    void testReservationByUnknownShowingId() {
+        Customer customer = new Customer("Rajesh", "1");
+        long showingId = Showing.idOf(Theater.DEFAULT_SCREEN, LocalDateTime.of(LocalDate.now(), LocalTime.of(21, 11)));
+        assertNull(theater.getShowing(showingId));
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserve(customer, showingId, 3);
+        });
+    }
+
+    @Test
+    void testReservationByShowingIdInThePast() {
+        Customer customer = new Customer("Rajesh", "1");
+        long showingId = Showing.idOf(Theater.DEFAULT_SCREEN, LocalDateTime.of(LocalDate.now().minusDays(1), LocalTime.of(9, 0)));
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserve(customer, showingId, 3);
+        });
+    }
+
+    @Test
+    void testReservationForUnknownSequence() {
+        Customer customer = new Customer("Rajesh", "1");
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserve(customer, LocalDate.now(), 10, 1);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserve(customer, LocalDate.now(), 0, 1);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserve(customer, LocalDate.now().plusDays(40), 1, 1);
+        });
+    }
+
     @Test
     void testPrintScheduleInTextFormat() {
         theater.printSchedule(PrintSchedule.TEXT, LocalDate.now());
@@ -209,6 +261,231 @@ public class TheaterTests {
         theater.printSchedule(PrintSchedule.JSON, LocalDate.now());
     }
 
+    @Test
+    void testExportScheduleForDateRange() throws Exception {
+        LocalDate today = LocalDate.now();
+        StringWriter out = new StringWriter();
+        theater.exportSchedule(today, today.plusDays(1), ScheduleWriter.Layout.NDJSON, out);
+        String[] lines = out.toString().split("\n");
+        assertEquals(18, lines.length);
+        assertTrue(lines[0].contains("\"startTime\":\"" + today + "T09:00:00\""));
+        assertTrue(lines[17].contains("\"startTime\":\"" + today.plusDays(1) + "T23:00:00\""));
+
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        theater.exportSchedule(today.plusDays(1), today.plusDays(1), ScheduleWriter.Layout.ARRAY, array);
+        assertTrue(array.toString(StandardCharsets.UTF_8).startsWith("[{"));
+
+        assertThrows(IllegalStateException.class, () -> {
+            theater.exportSchedule(today, today.minusDays(1), ScheduleWriter.Layout.ARRAY, out);
+        });
+    }
+
+    @Test
+    void testReserveAllAcrossShowingsAndDates() {
+        LocalDate today = LocalDate.now();
+        LocalDate tomorrow = today.plusDays(1);
+        Customer school = new Customer("School", "2");
+        Showing tomorrowsShowing = theater.reserve(school, tomorrow, 4, 1).getShowing();
+        List<Reservation> reservations = theater.reserveAll(List.of(
+                new ReservationRequest(school, today, 3, 30),
+                new ReservationRequest(school, tomorrowsShowing.getId(), 20),
+                new ReservationRequest(school, today, 3, 10)));
+        assertEquals(3, reservations.size());
+        assertEquals(30, reservations.get(0).getSeats().length);
+        assertEquals(tomorrow, reservations.get(1).getShowDate());
+        assertEquals(tomorrowsShowing, reservations.get(1).getShowing());
+        assertEquals(SEATING_CAPACITY - 40, reservations.get(0).getShowing().getSeatsLeft());
+        assertEquals(SEATING_CAPACITY - 21, tomorrowsShowing.getSeatsLeft());
+    }
+
+    @Test
+    void testReserveAllRollsBackWholeBatch() {
+        LocalDate today = LocalDate.now();
+        Customer school = new Customer("School", "2");
+        Showing almostFull = theater.reserve(school, today, 5, SEATING_CAPACITY - 5).getShowing();
+        Showing first = theater.getShowings(today, Theater.DEFAULT_SCREEN).get(0);
+        //the batch fits per request but not in total, so nothing may be booked
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserveAll(List.of(
+                    new ReservationRequest(school, today, 1, 10),
+                    new ReservationRequest(school, almostFull.getId(), 3),
+                    new ReservationRequest(school, today, 5, 3)));
+        });
+        assertEquals(SEATING_CAPACITY, first.getSeatsLeft());
+        assertEquals(5, almostFull.getSeatsLeft());
+    }
+
+    @Test
+    void testReserveAllValidatesWholeBatch() {
+        LocalDate today = LocalDate.now();
+        Customer school = new Customer("School", "2");
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserveAll(List.of(
+                    new ReservationRequest(school, today, 1, 10),
+                    new ReservationRequest(school, today.minusDays(1), 1, 10)));
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserveAll(List.of(new ReservationRequest(school, today, 10, 1)));
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            theater.reserveAll(List.of());
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new ReservationRequest(school, today, 1, 0);
+        });
+        assertEquals(SEATING_CAPACITY, theater.getShowings(today, Theater.DEFAULT_SCREEN).get(0).getSeatsLeft());
+    }
+
+    @Test
+    void testHoldThenConfirm() {
+        Customer customer = new Customer("Rajesh", "1");
+        SeatHold hold = theater.hold(customer, LocalDate.now(), 8, 3, Duration.ofMinutes(10));
+        assertEquals(SEATING_CAPACITY - 3, hold.getShowing().getSeatsLeft());
+        Reservation reservation = theater.confirm(hold);
+        assertArrayEquals(hold.getSeats(), reservation.getSeats());
+        assertEquals(30.0, reservation.getTotalFee());
+        assertEquals(0, theater.expireHolds());
+        assertEquals(SEATING_CAPACITY - 3, reservation.getShowing().getSeatsLeft());
+    }
+
+    @Test
+    void testHoldExpiryReleasesHeldSeatsInTheBackground() throws InterruptedException {
+        MutableClock clock = new MutableClock(Instant.now(), ZoneId.systemDefault());
+        LocalDateProvider provider = new LocalDateProvider(clock);
+        LocalDate showDate = provider.currentDate().plusDays(1);
+        Showing showing = new Showing(new Movie("Turning Red", Duration.ofMinutes(85), 11), 1, LocalDateTime.of(showDate, LocalTime.of(20, 0)));
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        schedule.put(showDate, List.of(showing));
+        Theater expiring = new Theater(provider, schedule);
+        SeatHold hold = expiring.hold(new Customer("Rajesh", "1"), showing.getId(), 4, Duration.ofMinutes(1));
+        expiring.startHoldExpiry(Duration.ofMillis(5));
+        try {
+            assertThrows(IllegalStateException.class, () -> expiring.startHoldExpiry(Duration.ofMillis(5)));
+            clock.advance(Duration.ofMinutes(2));
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (showing.getSeatsLeft() < SEATING_CAPACITY && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(SEATING_CAPACITY, showing.getSeatsLeft());
+            assertThrows(IllegalStateException.class, () -> expiring.confirm(hold));
+        } finally {
+            expiring.stopHoldExpiry();
+        }
+        assertThrows(IllegalStateException.class, () -> expiring.startHoldExpiry(Duration.ZERO));
+    }
+
+    @Test
+    void testHoldThenRelease() {
+        Customer customer = new Customer("Rajesh", "1");
+        SeatHold hold = theater.hold(customer, LocalDate.now(), 8, 3, Duration.ofMinutes(10));
+        theater.releaseHold(hold);
+        assertEquals(SEATING_CAPACITY, hold.getShowing().getSeatsLeft());
+        assertThrows(IllegalStateException.class, () -> {
+            theater.confirm(hold);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            theater.hold(customer, LocalDate.now().minusDays(1), 1, 1, Duration.ofMinutes(10));
+        });
+    }
+
+    @Test
+    void testCancelReturnsSeatsAndRefunds() {
+        Customer rajesh = new Customer("Rajesh", "1");
+        Customer anna = new Customer("Anna", "2");
+        LocalDate today = LocalDate.now();
+        Reservation first = theater.reserve(rajesh, today, 8, 3);
+        Reservation second = theater.reserve(anna, today, 8, 2);
+        Reservation third = theater.reserve(rajesh, first.getShowing().getId(), 1);
+        assertNotEquals(first.getId(), second.getId());
+        assertSame(second, theater.getReservation(second.getId()));
+        assertEquals(List.of(first, third), theater.getBookings("1"));
+        assertEquals(List.of(first, second, third), theater.getReservations(first.getShowing().getId()));
+
+        assertEquals(30.0, theater.refund(first.getId()));
+        assertTrue(first.isCancelled());
+        assertEquals(SEATING_CAPACITY - 3, first.getShowing().getSeatsLeft());
+        for (int seat : first.getSeats()) {
+            assertFalse(first.getShowing().isSeatTaken(seat));
+        }
+        assertEquals(List.of(third), theater.getBookings("1"));
+        assertNull(theater.getReservation(first.getId()));
+        assertThrows(IllegalStateException.class, () -> {
+            theater.cancel(first.getId());
+        });
+        assertSame(second, theater.cancel(second.getId()));
+        assertEquals(List.of(third), theater.getReservations(first.getShowing().getId()));
+    }
+
+    @Test
+    void testMetrics() {
+        Customer customer = new Customer("Rajesh", "1");
+        LocalDate today = LocalDate.now();
+        Reservation reservation = theater.reserve(customer, today, 8, 3);
+        theater.reserve(customer, reservation.getShowing().getId(), 2);
+        assertThrows(ReservationRejectedException.class, () -> {
+            theater.reserve(customer, today.minusDays(1), 1, 1);
+        });
+        assertThrows(ReservationRejectedException.class, () -> {
+            theater.reserve(customer, today, 10, 1);
+        });
+        assertThrows(ReservationRejectedException.class, () -> {
+            theater.reserve(customer, today, 8, SEATING_CAPACITY);
+        });
+        theater.printSchedule(PrintSchedule.TEXT, today);
+
+        TheaterMetrics.Snapshot metrics = theater.metricsSnapshot();
+        assertEquals(2, metrics.getReservations());
+        assertEquals(5, metrics.getTicketsSold());
+        assertEquals(1, (long) metrics.getRejections().get(ReservationRejectedException.Reason.PAST_DATE));
+        assertEquals(1, (long) metrics.getRejections().get(ReservationRejectedException.Reason.NO_SHOWING));
+        assertEquals(1, (long) metrics.getRejections().get(ReservationRejectedException.Reason.SOLD_OUT));
+        assertEquals(5, metrics.getReserveLatency().getCount());
+        assertEquals(1, metrics.getRenderLatency().getCount());
+        assertEquals(Double.valueOf(0.05), metrics.getSeatFill().get(reservation.getShowing().getId()));
+        assertEquals(36, metrics.getSeatFill().size());
+    }
+
+    @Test
+    void testChangeTicketPriceRepricesOnlyShowingsOfTheMovie() throws Exception {
+        LocalDate today = LocalDate.now();
+        Showing spiderMan = theater.getShowings(today, Theater.DEFAULT_SCREEN).get(2);
+        Showing theBatMan = theater.getShowings(today, Theater.DEFAULT_SCREEN).get(1);
+        double theBatManFee = theBatMan.getDiscountedMovieFee();
+        ByteArrayOutputStream before = new ByteArrayOutputStream();
+        theater.renderSchedule(PrintSchedule.TEXT, today, before);
+
+        Movie repriced = theater.changeTicketPrice(spiderMan.getMovie(), 15);
+        assertEquals(15.0, repriced.getTicketPrice());
+        //the 25% start time discount of 12:50 is the biggest
+        assertEquals(11.25, spiderMan.getDiscountedMovieFee());
+        assertEquals(theBatManFee, theBatMan.getDiscountedMovieFee());
+        assertEquals(11.25, theater.reserve(new Customer("Rajesh", "1"), today.plusDays(1), 3, 1).getTotalFee());
+        assertEquals(4, theater.nextShowings(repriced, LocalDateTime.of(today, LocalTime.MIN), 4).size());
+
+        ByteArrayOutputStream after = new ByteArrayOutputStream();
+        theater.renderSchedule(PrintSchedule.TEXT, today, after);
+        assertFalse(before.toString(StandardCharsets.UTF_8).contains("$15.0 (movieFee) --> $11.25"));
+        assertTrue(after.toString(StandardCharsets.UTF_8).contains("$15.0 (movieFee) --> $11.25"));
+
+        assertThrows(IllegalStateException.class, () -> {
+            theater.changeTicketPrice(new Movie("Unknown", Duration.ofMinutes(90), 10), 15);
+        });
+    }
+
+    @Test
+    void testOverlappingScheduleIsRejected() {
+        LocalDate today = LocalDate.now();
+        Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+        List<Showing> overlapping = List.of(
+                new Showing(theBatMan, 1, LocalDateTime.of(today, LocalTime.of(9, 0))),
+                new Showing(theBatMan, 2, LocalDateTime.of(today, LocalTime.of(10, 30)))
+        );
+        assertThrows(IllegalStateException.class, () -> {
+            new Theater(LocalDateProvider.singleton(), Map.of(today, overlapping));
+        });
+        assertEquals(3, theater.playingAt(LocalDateTime.of(today, LocalTime.of(13, 0))).get(0).getSequenceOfTheDay());
+    }
+
     private List<Showing> prepareShowingForDate(LocalDate showDate) {
         Movie spiderMan = new Movie("Spider-Man: No Way Home", Duration.ofMinutes(90), 12.5, 1);
         Movie turningRed = new Movie("Turning Red", Duration.ofMinutes(85), 11);
@@ -0,0 +1,82 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTests {
+
+    @Test
+    void testTimersFireAtTheirDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 1_000);
+        wheel.schedule("soon", 1_050);
+        wheel.schedule("later", 1_105);
+        List<String> fired = new ArrayList<>();
+        assertEquals(0, wheel.advance(1_049, fired::add));
+        assertEquals(1, wheel.advance(1_050, fired::add));
+        assertEquals(List.of("soon"), fired);
+        //deadlines are rounded up to the next tick
+        assertEquals(0, wheel.advance(1_109, fired::add));
+        assertEquals(1, wheel.advance(1_110, fired::add));
+        assertEquals(List.of("soon", "later"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testTimersCascadeThroughAllLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        long[] deadlines = {0, 1, 63, 64, 65, 4_095, 4_096, 262_143, 262_144, 16_777_215, 16_777_216, 40_000_000};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        for (long deadline : deadlines) {
+            List<Long> fired = new ArrayList<>();
+            wheel.advance(deadline - 1, fired::add);
+            assertTrue(fired.isEmpty() || fired.get(fired.size() - 1) < deadline, "fired early: " + fired);
+            fired.clear();
+            wheel.advance(deadline, fired::add);
+            assertEquals(List.of(deadline), fired);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testPastDeadlinesFireOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 10_000);
+        wheel.advance(20_000, timer -> fail("nothing is scheduled"));
+        wheel.schedule("overdue", 5_000);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(20_099, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(20_100, fired::add);
+        assertEquals(List.of("overdue"), fired);
+    }
+
+    @Test
+    void testManyTimers() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(100, 0);
+        for (int i = 0; i < 100_000; i++) {
+            //spread over 10 minutes
+            wheel.schedule(i, (i % 5_000) * 120L);
+        }
+        assertEquals(100_000, wheel.size());
+        int[] fired = new int[1];
+        assertEquals(50_000, wheel.advance(299_999, timer -> fired[0]++));
+        assertEquals(50_000, wheel.advance(600_000, timer -> fired[0]++));
+        assertEquals(100_000, fired[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testInvalidWheel() {
+        assertThrows(IllegalStateException.class, () -> {
+            new TimingWheel<String>(0, 0);
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            new TimingWheel<String>(10, 0).schedule(null, 10);
+        });
+    }
+}
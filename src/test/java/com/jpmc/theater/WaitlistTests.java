@@ -0,0 +1,163 @@
+package com.jpmc.theater;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaitlistTests {
+
+    private final Movie theBatMan = new Movie("The Batman", Duration.ofMinutes(95), 9);
+    private final Screen smallScreen = new Screen(2, "Screen 2", 1, 10);
+
+    private Showing newShowing(LocalDate showDate) {
+        return new Showing(theBatMan, smallScreen, 1, LocalDateTime.of(showDate, LocalTime.of(10, 0)));
+    }
+
+    private static Customer customer(int id) {
+        return new Customer("Customer " + id, String.valueOf(id));
+    }
+
+    private static List<WaitlistEntry> backfill(Waitlist waitlist) {
+        Showing showing = waitlist.getShowing();
+        return waitlist.backfill(entry -> new Reservation(entry.getCustomer(), showing.getStartTime().toLocalDate(), showing,
+                showing.reserveSeats(entry.getPartySize())));
+    }
+
+    @Test
+    void testOldestFittingPartyIsServedFirst() {
+        Showing showing = newShowing(LocalDate.of(2030, 3, 8));
+        int[] soldOut = showing.reserveSeats(10);
+        Waitlist waitlist = new Waitlist(showing);
+        WaitlistEntry eight = waitlist.join(customer(1), 8);
+        WaitlistEntry firstTwo = waitlist.join(customer(2), 2);
+        WaitlistEntry three = waitlist.join(customer(3), 3);
+        WaitlistEntry secondTwo = waitlist.join(customer(4), 2);
+        assertEquals(4, waitlist.size());
+        assertTrue(backfill(waitlist).isEmpty());
+
+        //4 free seats: the party of 8 does not fit, so the older party of 2 goes first, then the one of 2 behind it
+        showing.releaseSeats(new int[]{soldOut[0], soldOut[1], soldOut[2], soldOut[3]});
+        List<WaitlistEntry> served = backfill(waitlist);
+        assertEquals(List.of(firstTwo, secondTwo), served);
+        assertEquals(WaitlistEntry.State.RESERVED, firstTwo.getState());
+        assertEquals(2, firstTwo.getReservation().getAudienceCount());
+        assertEquals(WaitlistEntry.State.WAITING, three.getState());
+        assertEquals(0, showing.getSeatsLeft());
+
+        //8 free seats: the party of 8 joined before the party of 3
+        showing.releaseSeats(new int[]{soldOut[4], soldOut[5], soldOut[6], soldOut[7], soldOut[8], soldOut[9]});
+        showing.releaseSeats(firstTwo.getReservation().getSeats());
+        assertEquals(List.of(eight), backfill(waitlist));
+        assertEquals(1, waitlist.size());
+        assertNull(three.getReservation());
+    }
+
+    @Test
+    void testLeftPartiesAreSkipped() {
+        Showing showing = newShowing(LocalDate.of(2030, 3, 8));
+        int[] soldOut = showing.reserveSeats(10);
+        Waitlist waitlist = new Waitlist(showing);
+        WaitlistEntry first = waitlist.join(customer(1), 1);
+        WaitlistEntry second = waitlist.join(customer(2), 1);
+        WaitlistEntry third = waitlist.join(customer(3), 1);
+        assertTrue(waitlist.leave(second));
+        assertFalse(waitlist.leave(second));
+        assertTrue(waitlist.leave(first));
+        assertEquals(WaitlistEntry.State.LEFT, first.getState());
+        assertEquals(1, waitlist.size());
+
+        showing.releaseSeats(new int[]{soldOut[0], soldOut[1]});
+        assertEquals(List.of(third), backfill(waitlist));
+        assertFalse(waitlist.leave(third));
+        assertEquals(0, waitlist.size());
+        assertEquals(1, showing.getSeatsLeft());
+
+        assertThrows(IllegalStateException.class, () -> waitlist.join(customer(4), 11));
+        assertThrows(IllegalStateException.class, () -> waitlist.join(customer(4), 0));
+        assertThrows(IllegalStateException.class, () -> new Waitlist(null));
+    }
+
+    @Test
+    void testReleasedAndExpiredSeatsAreBackfilled() {
+        MutableClock clock = new MutableClock(Instant.now(), ZoneId.systemDefault());
+        LocalDateProvider provider = new LocalDateProvider(clock);
+        LocalDate showDate = provider.currentDate().plusDays(1);
+        Showing showing = newShowing(showDate);
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        schedule.put(showDate, List.of(showing));
+        Theater theater = new Theater(provider, schedule);
+        List<WaitlistEntry> notified = new ArrayList<>();
+        List<WaitlistEntry> waitlisted = new ArrayList<>();
+        theater.setWaitlistListener(new WaitlistListener() {
+            @Override
+            public void waitlisted(WaitlistEntry entry) {
+                waitlisted.add(entry);
+            }
+
+            @Override
+            public void reserved(WaitlistEntry entry, Reservation reservation) {
+                assertSame(entry.getReservation(), reservation);
+                notified.add(entry);
+            }
+        });
+
+        SeatHold released = theater.hold(customer(1), showing.getId(), 4, Duration.ofMinutes(10));
+        SeatHold expiring = theater.hold(customer(2), showing.getId(), 6, Duration.ofMinutes(1));
+        assertThrows(ReservationRejectedException.class, () -> theater.reserve(customer(3), showing.getId(), 3));
+        WaitlistEntry three = theater.joinWaitlist(customer(3), showing.getId(), 3);
+        WaitlistEntry five = theater.joinWaitlist(customer(4), showing.getId(), 5);
+        assertEquals(List.of(three, five), waitlisted);
+        assertEquals(2, theater.getWaitlistSize(showing.getId()));
+
+        theater.releaseHold(released);
+        assertEquals(List.of(three), notified);
+        assertEquals(showDate, three.getReservation().getShowDate());
+        assertEquals(1, showing.getSeatsLeft());
+
+        clock.advance(Duration.ofMinutes(2));
+        assertEquals(1, theater.expireHolds());
+        assertEquals(List.of(three, five), notified);
+        assertEquals(2, showing.getSeatsLeft());
+        assertEquals(0, theater.getWaitlistSize(showing.getId()));
+
+        //seats are free, so joining books them right away
+        WaitlistEntry two = theater.joinWaitlist(customer(5), showing.getId(), 2);
+        assertEquals(WaitlistEntry.State.RESERVED, two.getState());
+        assertFalse(theater.leaveWaitlist(two));
+        assertThrows(ReservationRejectedException.class, () -> theater.joinWaitlist(customer(6), 42, 1));
+    }
+
+    @Test
+    void testCancellationSucceedsWhenTheBackfillFails() {
+        LocalDate showDate = LocalDateProvider.singleton().currentDate().plusDays(1);
+        Showing showing = newShowing(showDate);
+        Map<LocalDate, List<Showing>> schedule = new HashMap<>();
+        schedule.put(showDate, List.of(showing));
+        Theater theater = new Theater(LocalDateProvider.singleton(), schedule);
+        theater.setWaitlistListener((entry, reservation) -> {
+            throw new IllegalArgumentException("listener failed");
+        });
+        theater.reserve(customer(1), showing.getId(), 6);
+        Reservation cancelled = theater.reserve(customer(2), showing.getId(), 4);
+        WaitlistEntry waiting = theater.joinWaitlist(customer(3), showing.getId(), 4);
+
+        assertEquals(24.0, theater.refund(cancelled.getId()));
+        assertNull(theater.getReservation(cancelled.getId()));
+        assertEquals(WaitlistEntry.State.RESERVED, waiting.getState());
+        assertEquals(0, showing.getSeatsLeft());
+        assertThrows(IllegalStateException.class, () -> theater.cancel(cancelled.getId()));
+        //not passed on, but counted
+        assertEquals(1, theater.metricsSnapshot().getBackgroundFailures());
+    }
+}